@@ -1,23 +1,44 @@
 package com.github.silaev.mongodb.replicaset;
 
-import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.model.Capability;
 import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.Info;
+import com.github.silaev.mongodb.replicaset.converter.impl.ApplicationPropertiesToFingerprintConverter;
 import com.github.silaev.mongodb.replicaset.converter.impl.MongoNodeToMongoSocketAddressConverter;
 import com.github.silaev.mongodb.replicaset.converter.impl.StringToMongoRsStatusConverter;
 import com.github.silaev.mongodb.replicaset.converter.impl.UserInputToApplicationPropertiesConverter;
+import com.github.silaev.mongodb.replicaset.converter.impl.VersionConverter;
+import com.github.silaev.mongodb.replicaset.core.Deadline;
+import com.github.silaev.mongodb.replicaset.core.DenseContainer;
+import com.github.silaev.mongodb.replicaset.core.DockerEnvironment;
+import com.github.silaev.mongodb.replicaset.core.AdminClient;
+import com.github.silaev.mongodb.replicaset.core.DriverAdminClient;
+import com.github.silaev.mongodb.replicaset.core.DriverTopologyMonitor;
 import com.github.silaev.mongodb.replicaset.core.Generated;
+import com.github.silaev.mongodb.replicaset.core.MongoProcessNode;
+import com.github.silaev.mongodb.replicaset.core.MongoRsStatusMonitor;
+import com.github.silaev.mongodb.replicaset.core.MongoShellSession;
+import com.github.silaev.mongodb.replicaset.core.NetworkPool;
+import com.github.silaev.mongodb.replicaset.core.PooledNetwork;
+import com.github.silaev.mongodb.replicaset.core.ProvisioningGraph;
+import com.github.silaev.mongodb.replicaset.core.ReplicaSetBootstrap;
+import com.github.silaev.mongodb.replicaset.core.ReplicaSetReuse;
+import com.github.silaev.mongodb.replicaset.core.ReplicaSetSnapshot;
+import com.github.silaev.mongodb.replicaset.core.TopologyListener;
 import com.github.silaev.mongodb.replicaset.exception.IncorrectUserInputException;
 import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.exception.MongoShellSessionException;
 import com.github.silaev.mongodb.replicaset.model.ApplicationProperties;
 import com.github.silaev.mongodb.replicaset.model.MongoDbVersion;
+import com.github.silaev.mongodb.replicaset.model.MongoCommandResult;
 import com.github.silaev.mongodb.replicaset.model.MongoNode;
 import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatusSnapshot;
 import com.github.silaev.mongodb.replicaset.model.MongoSocketAddress;
 import com.github.silaev.mongodb.replicaset.model.Pair;
 import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
 import com.github.silaev.mongodb.replicaset.model.UserInputProperties;
+import com.github.silaev.mongodb.replicaset.util.ExecutorUtils;
+import com.github.silaev.mongodb.replicaset.util.PortUtils;
 import com.github.silaev.mongodb.replicaset.util.StringUtils;
 import eu.rekawek.toxiproxy.model.ToxicDirection;
 import lombok.Builder;
@@ -27,27 +48,49 @@ import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.jetbrains.annotations.NotNull;
 import org.testcontainers.DockerClientFactory;
-import org.testcontainers.containers.Container;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.Network;
 import org.testcontainers.containers.ToxiproxyContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.dockerclient.DockerClientConfigUtils;
 import org.testcontainers.lifecycle.Startable;
+import org.testcontainers.utility.Base58;
+import org.testcontainers.utility.TestcontainersConfiguration;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -95,28 +138,49 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     public static final Comparator<MongoSocketAddress> COMPARATOR_MAPPED_PORT = Comparator.comparing(MongoSocketAddress::getMappedPort);
     public static final String RECONFIG_RS_MSG = "Reconfiguring a replica set";
     public static final String WAITING_MSG = "Waiting for";
-    static final String STATUS_COMMAND = "rs.status()";
+    public static final String READ_PREFERENCE_PRIMARY = "primary";
+    static final String STATUS_COMMAND = "print(JSON.stringify(rs.status()))";
     static final int CONTAINER_EXIT_CODE_OK = 0;
     private static final String SHOPIFY_TOXIPROXY_IMAGE = "shopify/toxiproxy:2.1.3";
     private static final String DEAD_LETTER_DB_NAME = "dead_letter";
     private static final String CLASS_NAME = MongoDbReplicaSet.class.getCanonicalName();
     private static final String LOCALHOST = "localhost";
+    private static final String LOOPBACK_IP = "127.0.0.1";
     private static final String DOCKER_HOST_WORKAROUND = "dockerhost";
     private static final String DOCKER_HOST_INTERNAL = "host.docker.internal";
     private static final int MONGO_DB_INTERNAL_PORT = 27017;
     private static final String MONGO_ARBITER_NODE_NAME = "mongo-arbiter";
     private static final String DOCKER_HOST_CONTAINER_NAME = "qoomon/docker-host:2.4.0";
     private static final String TOXIPROXY_CONTAINER_NAME = "toxiproxy";
+    private static final String NETWORK_STEP = "network";
+    private static final String MONGO_NODE_NAME_PREFIX = "mongo-node-";
+    private static final int PORT_CONFLICT_ATTEMPTS = 3;
+    private static final String REGISTER_NODES_STEP = "register-nodes";
+    private static final String INIT_REPLICA_SET_STEP = "init-replica-set";
+    private static final String JOIN_ARBITER_STEP = "join-arbiter";
     private static final MongoDbVersion FIRST_SUPPORTED_MONGODB_VERSION =
         MongoDbVersion.of(3, 6, 14);
     private static final boolean MOVE_FORWARD = true;
     private static final boolean STOP_PIPELINE = false;
-    private static final String READ_PREFERENCE_PRIMARY = "primary";
     private static final String RS_STATUS_MEMBERS_DEFINED_CONDITION = "rs.status().ok === 1 && rs.status().members !== undefined && ";
     private static final String RS_EXCEPTION = "throw new Error('Replica set status is not ok, errmsg: ' + rs.status().errmsg +" +
         " ', codeName: ' + rs.status().codeName);";
     private static final String MONGODB_DATABASE_NAME_DEFAULT = "test";
     private static final int RECONFIG_MAX_TIME_MS = 10000;
+    private static final int FIRST_MEMBER_PRIORITY = 2;
+    private static final int WAIT_INITIAL_DELAY_MS = 20;
+    private static final int WAIT_MAX_DELAY_MS = 1000;
+    private static final int MAX_TEARDOWN_THREADS = 8;
+    private static final long STATUS_MONITOR_REFRESH_INTERVAL_MS = 100;
+    private static final Duration SHELL_SESSION_GRACE_PERIOD = Duration.ofSeconds(10);
+    private static final Set<ReplicaSetMemberState> NOT_UP_MEMBER_STATES = EnumSet.of(
+        ReplicaSetMemberState.STARTUP,
+        ReplicaSetMemberState.RECOVERING,
+        ReplicaSetMemberState.STARTUP2,
+        ReplicaSetMemberState.UNKNOWN,
+        ReplicaSetMemberState.DOWN,
+        ReplicaSetMemberState.ROLLBACK
+    );
     private final StringToMongoRsStatusConverter statusConverter;
     private final MongoNodeToMongoSocketAddressConverter socketAddressConverter;
     private final ApplicationProperties properties;
@@ -127,7 +191,40 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     private final Map<MongoSocketAddress, ToxiproxyContainer.ContainerProxy> toxyNodeStore;
     private final Map<String, Pair<GenericContainer, MongoSocketAddress>> supplementaryNodeStore;
     private final Map<MongoSocketAddress, Pair<Boolean, GenericContainer>> disconnectedNodeStore;
+    private final Map<String, MongoShellSession> shellSessions;
+    private final Map<String, AdminClient> adminClients;
+    /*
+     * MongoDB nodes by role started by start() and kept running for its next attempt if one fails
+     */
+    private final Map<String, GenericContainer> startedNodes;
     private final Network network;
+    private final String fingerprint;
+    private final ReplicaSetReuse reuse;
+    private final ReplicaSetSnapshot snapshot;
+    private DriverTopologyMonitor topologyMonitor;
+    private volatile MongoRsStatusMonitor statusMonitor;
+    private volatile MongoDbVersion serverVersion;
+    private volatile MongoRsStatus lastMongoRsStatus;
+    private volatile GenericContainer masterNodeHint;
+    private volatile Deadline startDeadline;
+    private volatile boolean startCancelled;
+    private volatile boolean resumingProvisioning;
+    private volatile CompletableFuture<Void> pendingTeardown = CompletableFuture.completedFuture(null);
+    private final Object asyncStartLock = new Object();
+    private volatile CompletableFuture<MongoDbReplicaSet> pendingStart;
+    private volatile CompletableFuture<MongoDbReplicaSet> convergence = CompletableFuture.completedFuture(this);
+    private final List<Runnable> convergenceSteps = new CopyOnWriteArrayList<>();
+    private final Map<GenericContainer, Integer> nodePorts = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Map<GenericContainer, String> nodeAliases = Collections.synchronizedMap(new IdentityHashMap<>());
+    private volatile Boolean hostNetworkEnabled;
+    private final Object denseContainerLock = new Object();
+    private volatile DenseContainer denseContainer;
+    private volatile Boolean denseEnabled;
+    private volatile Boolean directNetworkEnabled;
+    private volatile Boolean selfInitializeEnabled;
+    private volatile String ownContainerId;
+    private volatile String attachedNetworkId;
+    private volatile boolean dockerHostShared;
 
     @Builder
     @SuppressWarnings("unused")
@@ -141,7 +238,31 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final Integer slaveDelayTimeout,
         final Integer slaveDelayNumber,
         final Boolean useHostDockerInternal,
-        final List<String> commandLineOptions
+        final List<String> commandLineOptions,
+        final Boolean parallelProvisioning,
+        final Boolean initiateWithArbiter,
+        final Boolean reuse,
+        final Boolean snapshot,
+        final Boolean selfInitialize,
+        final Boolean deterministicElection,
+        final Boolean driverTopologyMonitor,
+        final Boolean shellSession,
+        final Boolean driverControlPlane,
+        final Boolean statusMonitor,
+        final Boolean parallelTeardown,
+        final Boolean backgroundTeardown,
+        final Boolean startOnBuild,
+        final Boolean returnOnMasterReady,
+        final Boolean hostNetwork,
+        final Boolean dense,
+        final Boolean directNetwork,
+        final Boolean networkPool,
+        final Boolean sharedDockerHost,
+        final Duration startTimeout,
+        final Duration containerStartupTimeout,
+        final Duration electionTimeout,
+        final Duration arbiterTimeout,
+        final Duration reelectionTimeout
     ) {
         val propertyConverter =
             new UserInputToApplicationPropertiesConverter();
@@ -158,15 +279,53 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
                 .slaveDelayNumber(slaveDelayNumber)
                 .useHostDockerInternal(useHostDockerInternal)
                 .commandLineOptions(commandLineOptions)
+                .parallelProvisioning(parallelProvisioning)
+                .initiateWithArbiter(initiateWithArbiter)
+                .reuse(reuse)
+                .snapshot(snapshot)
+                .selfInitialize(selfInitialize)
+                .deterministicElection(deterministicElection)
+                .driverTopologyMonitor(driverTopologyMonitor)
+                .shellSession(shellSession)
+                .driverControlPlane(driverControlPlane)
+                .statusMonitor(statusMonitor)
+                .parallelTeardown(parallelTeardown)
+                .backgroundTeardown(backgroundTeardown)
+                .startOnBuild(startOnBuild)
+                .returnOnMasterReady(returnOnMasterReady)
+                .hostNetwork(hostNetwork)
+                .dense(dense)
+                .directNetwork(directNetwork)
+                .networkPool(networkPool)
+                .sharedDockerHost(sharedDockerHost)
+                .startTimeout(startTimeout)
+                .containerStartupTimeout(containerStartupTimeout)
+                .electionTimeout(electionTimeout)
+                .arbiterTimeout(arbiterTimeout)
+                .reelectionTimeout(reelectionTimeout)
                 .build()
         );
+        this.fingerprint = new ApplicationPropertiesToFingerprintConverter().convert(properties);
+        this.reuse = new ReplicaSetReuse(fingerprint);
+        this.snapshot = new ReplicaSetSnapshot(fingerprint);
         this.statusConverter = new StringToMongoRsStatusConverter();
         this.socketAddressConverter = new MongoNodeToMongoSocketAddressConverter();
         this.workingNodeStore = new ConcurrentSkipListMap<>(COMPARATOR_MAPPED_PORT);
         this.supplementaryNodeStore = new ConcurrentHashMap<>();
         this.disconnectedNodeStore = new ConcurrentHashMap<>();
+        this.shellSessions = new ConcurrentHashMap<>();
+        this.adminClients = new ConcurrentHashMap<>();
+        this.startedNodes = new ConcurrentHashMap<>();
         this.toxyNodeStore = new ConcurrentHashMap<>();
-        this.network = Network.newNetwork();
+        if (isReuseEnabled()) {
+            this.network = this.reuse.newNetwork();
+        } else {
+            // networks are created on first use, so a single node replica set never creates one
+            this.network = getNetworkPool() ? new PooledNetwork(NetworkPool.getInstance()) : Network.newNetwork();
+        }
+        if (getStartOnBuild()) {
+            startAsync();
+        }
     }
 
     /**
@@ -193,15 +352,30 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         this.properties = propertyConverter.convert(
             UserInputProperties.builder().build()
         );
+        this.fingerprint = new ApplicationPropertiesToFingerprintConverter().convert(properties);
+        this.reuse = new ReplicaSetReuse(fingerprint);
+        this.snapshot = new ReplicaSetSnapshot(fingerprint);
         this.statusConverter = statusConverter;
         this.socketAddressConverter = new MongoNodeToMongoSocketAddressConverter();
         this.workingNodeStore = workingNodeStore;
         this.supplementaryNodeStore = supplementaryNodeStore;
         this.disconnectedNodeStore = disconnectedNodeStore;
+        this.shellSessions = new ConcurrentHashMap<>();
+        this.adminClients = new ConcurrentHashMap<>();
+        this.startedNodes = new ConcurrentHashMap<>();
         this.toxyNodeStore = toxyNodeStore;
         this.network = network;
     }
 
+    /**
+     * Only for unit tests.
+     *
+     * @return MongoDB nodes by role kept running for the next attempt of start()
+     */
+    Map<String, GenericContainer> getStartedNodes() {
+        return startedNodes;
+    }
+
     @Override
     public void close() {
         stop();
@@ -210,264 +384,1870 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     public String getReplicaSetUrl() {
         verifyWorkingNodeStoreIsNotEmpty();
 
-        return buildMongoRsUrl(READ_PREFERENCE_PRIMARY);
+        return buildMongoRsUrl(READ_PREFERENCE_PRIMARY, MONGODB_DATABASE_NAME_DEFAULT);
     }
 
     public String getReplicaSetUrl(final String readPreference) {
         verifyWorkingNodeStoreIsNotEmpty();
 
-        return buildMongoRsUrl(readPreference);
+        return buildMongoRsUrl(readPreference, MONGODB_DATABASE_NAME_DEFAULT);
     }
 
-    public MongoRsStatus getMongoRsStatus() {
+    public String getReplicaSetUrl(final String readPreference, final String databaseName) {
         verifyWorkingNodeStoreIsNotEmpty();
+        Objects.requireNonNull(databaseName, "databaseName is not supposed to be null");
 
-        return statusConverter.convert(
-            execMongoDbCommandInContainer(
-                workingNodeStore.entrySet().iterator().next().getValue(),
-                STATUS_COMMAND
-            ).getStdout()
-        );
+        return buildMongoRsUrl(readPreference, databaseName);
     }
 
-    @Override
-    public synchronized void stop() {
-        Stream.concat(
-            disconnectedNodeStore.values().stream().map(Pair::getRight),
-            Stream.concat(
-                supplementaryNodeStore.values().stream().map(Pair::getLeft),
-                workingNodeStore.values().stream()
-            )
-        ).forEach(Startable::stop);
-        disconnectedNodeStore.clear();
-        supplementaryNodeStore.clear();
-        workingNodeStore.clear();
-        toxyNodeStore.clear();
-        network.close();
-    }
+    /**
+     * Drops a database on a master node.
+     *
+     * @param databaseName a database to drop
+     */
+    public void dropDatabase(final String databaseName) {
+        verifyWorkingNodeStoreIsNotEmpty();
+        Objects.requireNonNull(databaseName, "databaseName is not supposed to be null");
 
-    public boolean isEnabled() {
-        return properties.isEnabled();
+        runOnMasterNode(masterNode -> {
+                val adminClient = getAdminClient(masterNode);
+                if (adminClient.isPresent()) {
+                    runAdminCommand(() -> adminClient.get().dropDatabase(databaseName), "dropping a database");
+                    return;
+                }
+                val execResult = execMongoDbCommandInContainer(
+                    masterNode,
+                    String.format("db.getSiblingDB(\"%s\").dropDatabase()", databaseName)
+                );
+                log.debug("Drop a database {} result: {}", databaseName, execResult.getStdout());
+                checkMongoNodeExitCodeAndStatus(execResult, "dropping a database");
+            }
+        );
     }
 
-    public String mongoDockerImageName() {
-        return properties.getMongoDockerImageName();
-    }
+    /**
+     * Gets a replica set status, from memory if statusMonitor is set.
+     *
+     * @return a replica set status
+     */
+    public MongoRsStatus getMongoRsStatus() {
+        verifyWorkingNodeStoreIsNotEmpty();
 
-    public int getReplicaSetNumber() {
-        return properties.getReplicaSetNumber();
+        val monitor = statusMonitor;
+        return Objects.isNull(monitor)
+            ? fetchMongoRsStatus()
+            : monitor.getSnapshot().getStatus();
     }
 
-    public int getAwaitNodeInitAttempts() {
-        return properties.getAwaitNodeInitAttempts();
+    /**
+     * Gets the latest replica set status refreshed in the background.
+     *
+     * @return a versioned replica set status
+     */
+    public MongoRsStatusSnapshot getMongoRsStatusSnapshot() {
+        return getStatusMonitorOrThrow().getSnapshot();
     }
 
-    public String getMongoDockerImageName() {
-        return properties.getMongoDockerImageName();
+    /**
+     * Subscribes to master and member state changes found by a status monitor.
+     *
+     * @param listener a listener called on a monitor thread
+     */
+    public void addTopologyListener(final TopologyListener listener) {
+        getStatusMonitorOrThrow().addListener(listener);
     }
 
-    public boolean getAddArbiter() {
-        return properties.isAddArbiter();
+    public void removeTopologyListener(final TopologyListener listener) {
+        getStatusMonitorOrThrow().removeListener(listener);
     }
 
-    public boolean getAddToxiproxy() {
-        return properties.isAddToxiproxy();
+    private MongoRsStatusMonitor getStatusMonitorOrThrow() {
+        verifyWorkingNodeStoreIsNotEmpty();
+        return Optional.ofNullable(statusMonitor)
+            .orElseThrow(() -> new IllegalStateException(
+                    "There is no status monitor. Please, set statusMonitor to true"
+                )
+            );
     }
 
-    public int getSlaveDelayTimeout() {
-        return properties.getSlaveDelayTimeout();
+    /**
+     * Gets a replica set status from a node bypassing a status monitor,
+     * for instance, to reconfigure a replica set by member indexes.
+     *
+     * @return a current replica set status
+     */
+    private MongoRsStatus fetchMongoRsStatus() {
+        val mongoRsStatus = routeToAnyNode(this::fetchMongoRsStatus, "reading a replica set status");
+        if (Objects.isNull(serverVersion)) {
+            serverVersion = mongoRsStatus.getVersion();
+        }
+        lastMongoRsStatus = mongoRsStatus;
+        Optional.ofNullable(mongoRsStatus.getMembers())
+            .map(members -> filterMembers(members, ReplicaSetMemberState.PRIMARY))
+            .filter(masters -> masters.size() == 1)
+            .flatMap(masters -> findWorkingNode(masters.get(0)))
+            .ifPresent(masterNode -> masterNodeHint = masterNode);
+        return mongoRsStatus;
     }
 
-    public int getSlaveDelayNumber() {
-        return properties.getSlaveDelayNumber();
+    private MongoRsStatus fetchMongoRsStatus(final GenericContainer mongoContainer) {
+        val adminClient = getAdminClient(mongoContainer);
+        if (adminClient.isPresent()) {
+            return adminClient.get().getMongoRsStatus();
+        }
+        val execResult = execMongoDbCommandInContainer(mongoContainer, STATUS_COMMAND);
+        checkMongoNodeExitCode(execResult, "reading a replica set status");
+        return statusConverter.convert(execResult.getStdout());
     }
 
-    public boolean getUseHostDockerInternal() {
-        return properties.isUseHostDockerInternal();
+    /**
+     * Orders working nodes to send a command to: a last known master node first,
+     * then nodes healthy as per the last status read and then the rest as they may have come back.
+     *
+     * @return working nodes in the order to try
+     */
+    private List<GenericContainer> getRoutingCandidates() {
+        verifyWorkingNodeStoreIsNotEmpty();
+        final Set<String> unhealthyHosts = Optional.ofNullable(lastMongoRsStatus)
+            .map(MongoRsStatus::getMembers)
+            .orElse(Collections.emptyList())
+            .stream()
+            .filter(m -> NOT_UP_MEMBER_STATES.contains(m.getState()) || Objects.equals(m.getHealth(), 0.0))
+            .map(m -> m.getIp() + ":" + m.getPort())
+            .collect(Collectors.toSet());
+        final List<GenericContainer> candidates = new ArrayList<>();
+        getMasterNodeHint().ifPresent(candidates::add);
+        workingNodeStore.entrySet().stream()
+            .sorted(Comparator.comparing(
+                e -> unhealthyHosts.contains(e.getKey().getIp() + ":" + e.getKey().getReplSetPort())
+            ))
+            .map(Map.Entry::getValue)
+            .filter(n -> !candidates.contains(n))
+            .forEach(candidates::add);
+        return candidates;
     }
 
-    private String getDockerHostName() {
-        return getUseHostDockerInternal() ? DOCKER_HOST_INTERNAL : DOCKER_HOST_WORKAROUND;
+    /**
+     * Runs a command on routing candidates one by one until it succeeds on one of them.
+     *
+     * @param command            a command to run on a node
+     * @param commandDescription a description of a command
+     * @param <T>                a result of a command
+     * @return a result from the first node a command succeeded on
+     */
+    private <T> T routeToAnyNode(final Function<GenericContainer, T> command, final String commandDescription) {
+        RuntimeException lastException = null;
+        for (GenericContainer node : getRoutingCandidates()) {
+            try {
+                return command.apply(node);
+            } catch (RuntimeException e) {
+                log.debug("{} failed on {}, trying another node", commandDescription, node.getContainerId(), e);
+                lastException = e;
+                if (node == masterNodeHint) {
+                    masterNodeHint = null;
+                }
+            }
+        }
+        throw Objects.requireNonNull(lastException);
     }
 
-    private String[] buildMongoEvalCommand(final String command) {
-        return new String[]{"mongo", "--eval", command};
+    /**
+     * Gets a master node without a round trip if a master node is known.
+     *
+     * @return a master node
+     */
+    private GenericContainer getMasterNode() {
+        return getMasterNodeHint()
+            .orElseGet(() -> routeToAnyNode(this::findMasterElected, "finding a master node"));
     }
 
-    @Override
-    public synchronized void start() {
-        if (properties.isEnabled()) {
-            int attempt = 0;
-            Exception lastException = null;
-            boolean doContinue = true;
-            final int maxAttempts = 3;
-            while (doContinue && attempt < maxAttempts) {
-                log.debug("Provisioning a replica set, attempt: {} out of {}. Please, wait.", attempt + 1, maxAttempts);
-                try {
-                    startInternal();
-                    doContinue = false;
-                } catch (IncorrectUserInputException e) {
-                    throw e;
-                } catch (Exception e) {
-                    stop();
-                    lastException = e;
-                    attempt++;
-                }
-            }
-            if (doContinue) {
-                throw new MongoNodeInitializationException("Retry limit hit with exception", lastException);
-            }
-        } else {
-            log.info("{} is disabled", CLASS_NAME);
+    /**
+     * Runs a command on a master node and, if it fails, finds a master node anew and retries once
+     * as a master node might have stepped down.
+     *
+     * @param command a command to run on a master node
+     */
+    private void runOnMasterNode(final Consumer<GenericContainer> command) {
+        val masterNode = getMasterNode();
+        try {
+            command.accept(masterNode);
+        } catch (RuntimeException e) {
+            log.debug("A command failed on a master node, searching for a master node again", e);
+            masterNodeHint = null;
+            val newMasterNode = routeToAnyNode(this::findMasterElected, "finding a master node");
+            command.accept(newMasterNode);
         }
     }
 
-    public void startInternal() {
-        decideOnDockerHost();
-        final boolean addExtraHost = shouldAddExtraHost();
+    private Optional<GenericContainer> getMasterNodeHint() {
+        return Optional.ofNullable(masterNodeHint)
+            .filter(workingNodeStore::containsValue);
+    }
 
-        ToxiproxyContainer toxiproxyContainer = null;
-        if (getAddToxiproxy()) {
-            toxiproxyContainer = getAndStartToxiproxyContainer();
-            supplementaryNodeStore.put(TOXIPROXY_CONTAINER_NAME, Pair.of(toxiproxyContainer, null));
-        }
-        val replicaSetNumber = properties.getReplicaSetNumber();
+    private Optional<GenericContainer> findWorkingNode(final MongoNode mongoNode) {
+        return workingNodeStore.entrySet().stream()
+            .filter(e -> Objects.equals(e.getKey().getIp(), mongoNode.getIp()) &&
+                Objects.equals(e.getKey().getReplSetPort(), mongoNode.getPort()))
+            .map(Map.Entry::getValue)
+            .findFirst();
+    }
 
-        for (int i = 0; i < replicaSetNumber; i++) {
-            GenericContainer mongoContainer = getAndStartMongoDbContainer(network, addExtraHost);
+    /**
+     * @return a server version memoized on the first status read as it does not change for a replica set
+     */
+    private MongoDbVersion getServerVersion() {
+        val version = serverVersion;
+        return Objects.isNull(version)
+            ? fetchMongoRsStatus().getVersion()
+            : version;
+    }
 
-            val pair = getContainerProxyAndPort(mongoContainer, toxiproxyContainer);
+    void startStatusMonitor() {
+        if (getStatusMonitor()) {
+            val monitor = new MongoRsStatusMonitor(this::fetchMongoRsStatus, STATUS_MONITOR_REFRESH_INTERVAL_MS);
+            monitor.start();
+            statusMonitor = monitor;
+        }
+    }
 
-            val mongoSocketAddress = getMongoSocketAddress(
-                mongoContainer.getContainerIpAddress(),
-                pair.getRight()
-            );
-            workingNodeStore.put(mongoSocketAddress, mongoContainer);
+    private void closeStatusMonitor() {
+        val monitor = statusMonitor;
+        statusMonitor = null;
+        serverVersion = null;
+        if (Objects.nonNull(monitor)) {
+            monitor.close();
+        }
+    }
 
-            if (getAddToxiproxy()) {
-                toxyNodeStore.put(mongoSocketAddress, pair.getLeft());
+    /**
+     * Refreshes a status snapshot after a replica set has been changed or has been waited for
+     * so that the next read does not return a status of up to a refresh interval ago.
+     */
+    private void refreshStatusSnapshot() {
+        val monitor = statusMonitor;
+        if (Objects.nonNull(monitor)) {
+            try {
+                monitor.refresh();
+            } catch (RuntimeException e) {
+                log.debug("Cannot refresh a replica set status", e);
             }
         }
+    }
 
-        final GenericContainer mongoContainer = workingNodeStore.firstEntry().getValue();
-        if (Objects.isNull(mongoContainer)) {
-            throw new IllegalStateException("MongoDb container is not supposed to be null");
+    /**
+     * Prepares the next attempt of start() to continue from where a failed one stopped:
+     * nodes that are still running are kept, the ones that are not get replaced.
+     * <p>A node cannot be replaced once a replica set is initiated with its address, so then,
+     * as well as with reuse, snapshot, selfInitialize or addToxiproxy, the next attempt starts from scratch.
+     *
+     * @return whether the next attempt can continue from where a failed one stopped
+     */
+    boolean resumeAfterFailedAttempt() {
+        if (startCancelled || startedNodes.isEmpty() || isReuseEnabled() ||
+            getSnapshot() || isSelfInitializeEnabled() || getAddToxiproxy() || isDenseEnabled()) {
+            return false;
+        }
+        closeStatusMonitor();
+        closeTopologyMonitor();
+        closeShellSessions();
+        closeAdminClients();
+        final Map<Boolean, List<String>> rolesByRunning = startedNodes.entrySet().stream()
+            .collect(Collectors.partitioningBy(
+                e -> e.getValue().isRunning(),
+                Collectors.mapping(Map.Entry::getKey, Collectors.toList())
+            ));
+        val failedRoles = rolesByRunning.get(false);
+        if (!failedRoles.isEmpty() && isReplicaSetInitiatedOnAny(rolesByRunning.get(true))) {
+            log.debug("Cannot replace {} in an initiated replica set", failedRoles);
+            return false;
         }
+        failedRoles.forEach(role -> startedNodes.remove(role).stop());
+        Optional.ofNullable(supplementaryNodeStore.get(DOCKER_HOST_WORKAROUND))
+            .filter(dockerHost -> !dockerHost.getLeft().isRunning())
+            .ifPresent(dockerHost -> {
+                    dockerHost.getLeft().stop();
+                    supplementaryNodeStore.remove(DOCKER_HOST_WORKAROUND);
+                }
+            );
+        supplementaryNodeStore.remove(MONGO_ARBITER_NODE_NAME);
+        workingNodeStore.clear();
+        disconnectedNodeStore.clear();
+        toxyNodeStore.clear();
+        masterNodeHint = null;
+        lastMongoRsStatus = null;
+        resumingProvisioning = true;
+        log.warn("Retrying provisioning of a replica set keeping running nodes, replacing: {}", failedRoles);
+        return true;
+    }
 
-        val awaitNodeInitAttempts = getAwaitNodeInitAttempts();
+    /**
+     * @param roles roles of running nodes
+     * @return true if any node is a member of an initiated replica set or cannot tell
+     */
+    private boolean isReplicaSetInitiatedOnAny(final List<String> roles) {
+        for (String role : roles) {
+            try {
+                if (isReplicaSetInitiated(startedNodes.get(role))) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                log.debug("Cannot get a replica set status of the {} node", role, e);
+                return true;
+            }
+        }
+        return false;
+    }
 
-        val masterNode = initMasterNode(mongoContainer, awaitNodeInitAttempts);
+    private boolean isReplicaSetInitiated(final GenericContainer mongoContainer) {
+        return Objects.equals(fetchMongoRsStatus(mongoContainer).getStatus(), 1);
+    }
 
-        if (getAddArbiter()) {
-            addArbiterNode(network, toxiproxyContainer, masterNode, awaitNodeInitAttempts, addExtraHost);
+    /**
+     * Starts a MongoDB node for a role unless a node started for it by a failed attempt of start() is still running.
+     *
+     * @param network      a shared network
+     * @param addExtraHost whether to add host.docker.internal to a container
+     * @param role         a unique name of a node in a replica set
+     * @return a running MongoDB node
+     */
+    private GenericContainer startMongoDbNode(
+        final Network network,
+        final boolean addExtraHost,
+        final String role
+    ) {
+        if (isDenseEnabled()) {
+            return startDenseNode(network, addExtraHost, role);
+        }
+        val startedNode = startedNodes.get(role);
+        if (Objects.nonNull(startedNode) && startedNode.isRunning()) {
+            log.debug("Keeping the {} node started by a failed attempt", role);
+            return startedNode;
         }
+        val mongoDbContainer = getAndStartMongoDbContainer(network, addExtraHost, role);
+        startedNodes.put(role, mongoDbContainer);
+        return mongoDbContainer;
+    }
 
-        log.debug(
-            "REPLICA SET STATUS:\n{}",
-            execMongoDbCommandInContainer(mongoContainer, STATUS_COMMAND).getStdout()
-        );
+    /**
+     * Gets a node of a dense container, starting the container with mongod processes of all nodes on first use.
+     *
+     * @param network      a shared network
+     * @param addExtraHost whether to add host.docker.internal to a container
+     * @param role         a unique name of a node in a replica set
+     * @return a running MongoDB node
+     */
+    private GenericContainer startDenseNode(
+        final Network network,
+        final boolean addExtraHost,
+        final String role
+    ) {
+        final DenseContainer container;
+        synchronized (denseContainerLock) {
+            if (Objects.isNull(denseContainer)) {
+                denseContainer = DenseContainer.builder()
+                    .mongoDockerImageName(properties.getMongoDockerImageName())
+                    .roles(getNodeRoles())
+                    .commandLineOptions(properties.getCommandLineOptions())
+                    .hostNetwork(isHostNetworkEnabled())
+                    .network(getAddToxiproxy() ? network : null)
+                    .extraHost(addExtraHost ? DOCKER_HOST_INTERNAL : null)
+                    .startupTimeout(capByStartDeadline(getContainerStartupTimeout()))
+                    .build();
+            }
+            container = denseContainer;
+        }
+        return container.startNode(role);
     }
 
-    private void decideOnDockerHost() {
-        if (!getUseHostDockerInternal() && getReplicaSetNumber() > 1 && LOCALHOST.equals(getHostIpAddress())) {
-            warnAboutTheNeedToModifyHostFile();
-            supplementaryNodeStore.put(
-                DOCKER_HOST_WORKAROUND,
-                Pair.of(getAndRunDockerHostContainer(network, getDockerHostName()), null)
-            );
+    /**
+     * Runs all nodes as mongod processes in a single container to save memory and container startups.
+     * Requires at least 2 nodes and does not support snapshot, selfInitialize and reuse.
+     * Ports are found free in the network namespace of the JVM and published on the same host ports,
+     * so it also requires a local Docker daemon and the JVM not to run in a container.
+     * A container per node is used otherwise.
+     *
+     * @return whether nodes share a container
+     */
+    private boolean isDenseEnabled() {
+        if (!getDense()) {
+            return false;
+        }
+        Boolean enabled = denseEnabled;
+        if (Objects.isNull(enabled)) {
+            enabled = getReplicaSetNumber() > 1 && !getSnapshot() && !isSelfInitializeEnabled() && !isReuseEnabled();
+            if (!enabled) {
+                log.warn("dense requires at least 2 nodes and does not support snapshot, selfInitialize and reuse, " +
+                    "falling back to a container per node");
+            } else if (!isLocalDockerDaemon()) {
+                log.warn("dense requires a local Docker daemon and the JVM running outside a container, " +
+                    "falling back to a container per node");
+                enabled = false;
+            }
+            denseEnabled = enabled;
         }
+        return enabled;
     }
 
-    private boolean shouldAddExtraHost() {
-        boolean addExtraHost = false;
-        if (getUseHostDockerInternal() && getReplicaSetNumber() > 1) {
-            final Pair<String, String> ipAddressAndOS = getHostIpAddressAndOS();
-            final boolean isLinux = !ipAddressAndOS.getRight().toLowerCase(Locale.ENGLISH).contains("docker desktop");
-            if (isLinux && LOCALHOST.equals(ipAddressAndOS.getLeft())) {
-                addExtraHost = true;
+    /**
+     * Stops a replica set. If start() is still running on another thread,
+     * makes its waits fail right away so that it releases the replica set first.
+     */
+    @Override
+    public void stop() {
+        synchronized (asyncStartLock) {
+            if (Objects.nonNull(pendingStart)) {
+                pendingStart.cancel(false);
+                pendingStart = null;
             }
         }
-        return addExtraHost;
+        convergence.cancel(false);
+        cancelStart();
+        stopInternal(getBackgroundTeardown());
     }
 
-    private Pair<ToxiproxyContainer.ContainerProxy, Integer> getContainerProxyAndPort(
-        final GenericContainer mongoContainer,
-        final ToxiproxyContainer toxiproxyContainer
-    ) {
-        ToxiproxyContainer.ContainerProxy containerProxy = null;
-        int port;
-        if (getAddToxiproxy()) {
-            Objects.requireNonNull(toxiproxyContainer, "toxiproxyContainer is not supposed to be null");
-            containerProxy = toxiproxyContainer.getProxy(mongoContainer, MONGO_DB_INTERNAL_PORT);
-            port = containerProxy.getProxyPort();
-            log.debug(
-                "Real port: {}, proxy port: {}",
-                mongoContainer.getMappedPort(MONGO_DB_INTERNAL_PORT),
-                port
-            );
+    private void cancelStart() {
+        if (Objects.isNull(startDeadline)) {
+            return;
+        }
+        log.debug("Cancelling provisioning of a replica set");
+        startCancelled = true;
+        closeShellSessions();
+    }
+
+    /**
+     * @param inBackground whether to return right away and tear containers down on a background thread
+     */
+    private synchronized void stopInternal(final boolean inBackground) {
+        closeStatusMonitor();
+        closeTopologyMonitor();
+        closeShellSessions();
+        closeAdminClients();
+        if (isReuseEnabled()) {
+            log.debug("Keeping containers of a reusable replica set: {}", fingerprint);
+            clearNodeStores();
+            network.close();
+            return;
+        }
+        final List<Startable> containers = Stream.of(
+            disconnectedNodeStore.values().stream().map(Pair::getRight),
+            supplementaryNodeStore.values().stream().map(Pair::getLeft),
+            workingNodeStore.values().stream(),
+            startedNodes.values().stream()
+        ).flatMap(Function.identity())
+            // nodes of a dense container go away with it
+            .filter(container -> !(container instanceof MongoProcessNode))
+            .distinct()
+            .collect(Collectors.toCollection(ArrayList::new));
+        Optional.ofNullable(denseContainer).ifPresent(containers::add);
+        clearNodeStores();
+        detachFromNetwork();
+        releaseSharedDockerHost();
+        if (!getParallelTeardown() && !inBackground) {
+            containers.forEach(Startable::stop);
+            network.close();
+            return;
+        }
+        final Runnable teardown = () -> {
+            stopInParallel(containers);
+            try {
+                network.close();
+            } catch (RuntimeException e) {
+                log.warn("Cannot remove a network", e);
+            }
+        };
+        if (inBackground) {
+            val executorService = ExecutorUtils.newFixedDaemonThreadPool("mongo-replica-set-teardown", 1);
+            pendingTeardown = CompletableFuture.runAsync(teardown, executorService);
+            executorService.shutdown();
         } else {
-            Objects.requireNonNull(mongoContainer, "mongoContainer is not supposed to be null");
-            port = mongoContainer.getMappedPort(MONGO_DB_INTERNAL_PORT);
+            teardown.run();
         }
-        return Pair.of(containerProxy, port);
     }
 
-    @SneakyThrows(value = {IOException.class, InterruptedException.class})
-    Container.ExecResult execMongoDbCommandInContainer(
-        final GenericContainer mongoContainer,
-        final String command
-    ) {
-        return mongoContainer.execInContainer(
-            buildMongoEvalCommand(command)
+    /**
+     * Stops containers at the same time on a bounded thread pool.
+     * Stopping a container kills and force-removes it, so the time goes on Docker round trips
+     * rather than on a graceful shutdown of mongod, and those round trips do not depend on each other.
+     *
+     * @param containers containers to stop
+     */
+    private void stopInParallel(final List<Startable> containers) {
+        if (containers.isEmpty()) {
+            return;
+        }
+        val executorService = ExecutorUtils.newFixedDaemonThreadPool(
+            "mongo-replica-set-teardown-node",
+            Math.min(containers.size(), MAX_TEARDOWN_THREADS)
         );
+        try {
+            CompletableFuture.allOf(
+                containers.stream()
+                    .map(container -> CompletableFuture.runAsync(() -> stopQuietly(container), executorService))
+                    .toArray(CompletableFuture[]::new)
+            ).join();
+        } finally {
+            executorService.shutdownNow();
+        }
     }
 
-    private void warnAboutTheNeedToModifyHostFile() {
-        log.warn(
-            "Please, check that the host file of your OS has 127.0.0.1 dockerhost. " +
-                "If you don't want to modify it, then consider the following:" +
-                "\n1) set replicaSetNumber to 1;" +
-                "\n2) use remote docker daemon;" +
-                "\n3) use local docker host running tests from inside a container with mapping the Docker socket."
-        );
+    private static void stopQuietly(final Startable container) {
+        try {
+            container.stop();
+        } catch (RuntimeException e) {
+            log.warn("Cannot stop a container", e);
+        }
     }
 
-    private String getHostIpAddress() {
-        return Optional.ofNullable(DockerClientFactory.instance())
-            .map(DockerClientFactory::dockerHostIpAddress)
-            .orElseThrow(
-                () -> new IllegalStateException(
-                    "The instance of the DockerClientFactory is not initialized"
-                )
-            );
+    /**
+     * Waits for a background teardown of a previous run as it closes the same network a new run uses.
+     */
+    private void awaitPendingTeardown() {
+        try {
+            pendingTeardown.join();
+        } catch (CompletionException e) {
+            log.warn("A background teardown failed", e);
+        }
     }
 
-    @NonNull
-    private Pair<String, String> getHostIpAddressAndOS() {
+    /**
+     * Creates a driver-based topology monitor on first use if driverTopologyMonitor is set.
+     *
+     * @return a topology monitor or empty to fall back to waiting in the mongo shell
+     */
+    synchronized Optional<DriverTopologyMonitor> getTopologyMonitor() {
+        if (!getDriverTopologyMonitor()) {
+            return Optional.empty();
+        }
+        if (Objects.isNull(topologyMonitor)) {
+            checkDriverOnClasspath("driverTopologyMonitor");
+            topologyMonitor = new DriverTopologyMonitor()
+                .connect(buildMongoRsUrl(READ_PREFERENCE_PRIMARY, MONGODB_DATABASE_NAME_DEFAULT));
+        }
+        return Optional.of(topologyMonitor);
+    }
+
+    private void checkDriverOnClasspath(final String option) {
         try {
-            final DockerClientFactory clientFactory = DockerClientFactory.instance();
-            final DockerClient client = clientFactory.client();
-            final Info dockerInfo = client.infoCmd().exec();
-            final String hostIp = clientFactory.dockerHostIpAddress();
-            Objects.requireNonNull(hostIp, "DockerClient: dockerHostIpAddress is not supposed to be null");
-            final String os = dockerInfo.getOperatingSystem();
-            Objects.requireNonNull(os, "DockerClient: operatingSystem is not supposed to be null");
-            return Pair.of(hostIp, os);
-        } catch (Exception e) {
-            throw new IllegalStateException("Cannot getHostIpAddressAndOS", e);
+            Class.forName("com.mongodb.client.MongoClients");
+        } catch (ClassNotFoundException e) {
+            throw new IncorrectUserInputException(
+                String.format("Please, add org.mongodb:mongodb-driver-sync to the classpath to use %s", option)
+            );
         }
     }
 
-    private GenericContainer initMasterNode(
-        final GenericContainer mongoContainer,
-        final int awaitNodeInitAttempts
-    ) {
-        log.debug("Initializing a {} node replica set...", getReplicaSetNumber());
-        val execResultInitRs = execMongoDbCommandInContainer(
-            mongoContainer,
-            getMongoReplicaSetInitializer()
-        );
-        val stdoutInitRs = execResultInitRs.getStdout();
+    /**
+     * Gets an admin client of a node, creating one on first use, if driverControlPlane is set.
+     *
+     * @param mongoContainer a node to send admin commands to
+     * @return an admin client or empty to fall back to the mongo shell
+     */
+    private Optional<AdminClient> getAdminClient(final GenericContainer mongoContainer) {
+        if (!getDriverControlPlane()) {
+            return Optional.empty();
+        }
+        checkDriverOnClasspath("driverControlPlane");
+        val host = getNodeHost(mongoContainer);
+        final int port = getNodePort(mongoContainer);
+        return Optional.of(
+            adminClients.computeIfAbsent(host + ":" + port, k -> DriverAdminClient.create(host, port))
+        );
+    }
+
+    /**
+     * Runs an admin command via the driver and rethrows a failure as MongoNodeInitializationException
+     * as a failed exit code of the mongo shell is reported.
+     *
+     * @param command            an admin command
+     * @param commandDescription a description of a command
+     */
+    private void runAdminCommand(final Runnable command, final String commandDescription) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            val errorMessage = String.format("Error occurred while %s: %s", commandDescription, e.getMessage());
+            log.error(errorMessage);
+            throw new MongoNodeInitializationException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Gets a deadline for a phase that, while starting, does not go past startTimeout.
+     *
+     * @param timeout a timeout of a phase
+     * @return a deadline
+     */
+    private Deadline newDeadline(final Duration timeout) {
+        return Deadline.after(timeout).min(startDeadline);
+    }
+
+    /**
+     * Caps a timeout of a step that cannot take a deadline, for instance, a container startup,
+     * by what is left of startTimeout.
+     *
+     * @param timeout a timeout of a step
+     * @return a timeout
+     */
+    private Duration capByStartDeadline(final Duration timeout) {
+        return newDeadline(timeout).remaining();
+    }
+
+    private void checkStartNotCancelled(final String waitingMessage) {
+        if (startCancelled && Objects.nonNull(startDeadline)) {
+            throw new MongoNodeInitializationException(
+                String.format("Provisioning was cancelled while %s", waitingMessage)
+            );
+        }
+    }
+
+    /**
+     * Polls a node via the driver until a condition holds with a delay doubling from 20 ms up to a second.
+     * A failed command, for instance, during an election, counts as the condition not holding yet.
+     *
+     * @param adminClient    a node to poll
+     * @param condition      a condition to wait for
+     * @param deadline       a deadline to wait until
+     * @param waitingMessage a description of a condition
+     */
+    private void awaitDriverCondition(
+        final AdminClient adminClient,
+        final Predicate<AdminClient> condition,
+        final Deadline deadline,
+        final String waitingMessage
+    ) {
+        awaitDriverCondition(() -> condition.test(adminClient), adminClient::describeStatus, deadline, waitingMessage);
+    }
+
+    /**
+     * Same as awaitDriverCondition on a single node, but each poll is routed to any node that responds,
+     * so a wait survives a node it started on going down.
+     *
+     * @param condition      a condition to wait for
+     * @param deadline       a deadline to wait until
+     * @param waitingMessage a description of a condition
+     */
+    private void awaitDriverConditionOnAnyNode(
+        final Predicate<AdminClient> condition,
+        final Deadline deadline,
+        final String waitingMessage
+    ) {
+        awaitDriverCondition(
+            () -> routeToAnyNode(
+                node -> condition.test(getAdminClient(node).orElseThrow(IllegalStateException::new)),
+                waitingMessage
+            ),
+            () -> routeToAnyNode(
+                node -> getAdminClient(node).orElseThrow(IllegalStateException::new).describeStatus(),
+                waitingMessage
+            ),
+            deadline,
+            waitingMessage
+        );
+    }
+
+    @SneakyThrows(InterruptedException.class)
+    private void awaitDriverCondition(
+        final BooleanSupplier condition,
+        final Supplier<String> statusDescription,
+        final Deadline deadline,
+        final String waitingMessage
+    ) {
+        long delay = WAIT_INITIAL_DELAY_MS;
+        RuntimeException lastException = null;
+        while (true) {
+            checkStartNotCancelled(waitingMessage);
+            try {
+                if (condition.getAsBoolean()) {
+                    refreshStatusSnapshot();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                lastException = e;
+            }
+            if (deadline.isExpired()) {
+                val errorMessage = String.format(
+                    "Error occurred while %s: %s",
+                    waitingMessage,
+                    statusDescription.get()
+                );
+                log.error(errorMessage);
+                throw new MongoNodeInitializationException(errorMessage, lastException);
+            }
+            TimeUnit.MILLISECONDS.sleep(Math.min(delay, Math.max(1, deadline.remaining().toMillis())));
+            delay = Math.min(delay * 2, WAIT_MAX_DELAY_MS);
+        }
+    }
+
+    /**
+     * Same as mongoNodes but available for a single node replica set as it is used internally.
+     *
+     * @param members     members of a replica set
+     * @param memberState a state to filter by
+     * @return members in a given state
+     */
+    private static List<MongoNode> filterMembers(
+        final List<MongoNode> members,
+        final ReplicaSetMemberState memberState
+    ) {
+        return members.stream()
+            .filter(m -> memberState == m.getState())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits for a condition on any node that responds: via the driver if driverControlPlane is set,
+     * in the mongo shell otherwise. A single deadline is shared by all the nodes tried.
+     *
+     * @param driverCondition a condition to check via the driver
+     * @param shellCondition  a JS loop condition, a loop stops when it is false
+     * @param deadline        a deadline to wait until
+     * @param waitingMessage  a description of a condition
+     */
+    private void awaitOnAnyNode(
+        final Predicate<AdminClient> driverCondition,
+        final String shellCondition,
+        final Deadline deadline,
+        final String waitingMessage
+    ) {
+        if (getDriverControlPlane()) {
+            awaitDriverConditionOnAnyNode(driverCondition, deadline, waitingMessage);
+            return;
+        }
+        routeToAnyNode(
+            node -> {
+                val execResult = waitForCondition(node, shellCondition, deadline, waitingMessage);
+                checkMongoNodeExitCode(execResult, waitingMessage);
+                return execResult;
+            },
+            waitingMessage
+        );
+        refreshStatusSnapshot();
+    }
+
+    private static long countMembers(final MongoRsStatus status, final Predicate<ReplicaSetMemberState> state) {
+        return status.getMembers().stream()
+            .filter(m -> state.test(m.getState()))
+            .count();
+    }
+
+    private void closeAdminClients() {
+        if (adminClients.isEmpty()) {
+            return;
+        }
+        adminClients.values().forEach(AdminClient::close);
+        adminClients.clear();
+    }
+
+    private void closeShellSessions() {
+        shellSessions.values().forEach(MongoShellSession::close);
+        shellSessions.clear();
+    }
+
+    private synchronized void closeTopologyMonitor() {
+        if (Objects.nonNull(topologyMonitor)) {
+            topologyMonitor.close();
+            topologyMonitor = null;
+        }
+    }
+
+    /**
+     * Throws if a topology monitor timed out.
+     *
+     * @param conditionHolds a result of waiting
+     * @param monitor        a topology monitor
+     * @param waitingMessage a description of a condition
+     */
+    private void checkTopologyCondition(
+        final boolean conditionHolds,
+        final DriverTopologyMonitor monitor,
+        final String waitingMessage
+    ) {
+        if (!conditionHolds) {
+            val errorMessage = String.format(
+                "Error occurred while %s: %s",
+                waitingMessage,
+                monitor.getShortDescription()
+            );
+            log.error(errorMessage);
+            throw new MongoNodeInitializationException(errorMessage);
+        }
+        refreshStatusSnapshot();
+    }
+
+    private void clearNodeStores() {
+        startedNodes.clear();
+        nodePorts.clear();
+        nodeAliases.clear();
+        denseContainer = null;
+        masterNodeHint = null;
+        lastMongoRsStatus = null;
+        disconnectedNodeStore.clear();
+        supplementaryNodeStore.clear();
+        workingNodeStore.clear();
+        toxyNodeStore.clear();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String mongoDockerImageName() {
+        return properties.getMongoDockerImageName();
+    }
+
+    public int getReplicaSetNumber() {
+        return properties.getReplicaSetNumber();
+    }
+
+    public int getAwaitNodeInitAttempts() {
+        return properties.getAwaitNodeInitAttempts();
+    }
+
+    public String getMongoDockerImageName() {
+        return properties.getMongoDockerImageName();
+    }
+
+    public boolean getAddArbiter() {
+        return properties.isAddArbiter();
+    }
+
+    public boolean getAddToxiproxy() {
+        return properties.isAddToxiproxy();
+    }
+
+    public int getSlaveDelayTimeout() {
+        return properties.getSlaveDelayTimeout();
+    }
+
+    public int getSlaveDelayNumber() {
+        return properties.getSlaveDelayNumber();
+    }
+
+    public boolean getUseHostDockerInternal() {
+        return properties.isUseHostDockerInternal();
+    }
+
+    public boolean getParallelProvisioning() {
+        return properties.isParallelProvisioning();
+    }
+
+    public boolean getInitiateWithArbiter() {
+        return properties.isInitiateWithArbiter();
+    }
+
+    public boolean getReuse() {
+        return properties.isReuse();
+    }
+
+    public boolean getSnapshot() {
+        return properties.isSnapshot();
+    }
+
+    public boolean getSelfInitialize() {
+        return properties.isSelfInitialize();
+    }
+
+    public boolean getDeterministicElection() {
+        return properties.isDeterministicElection();
+    }
+
+    public boolean getDriverTopologyMonitor() {
+        return properties.isDriverTopologyMonitor();
+    }
+
+    public boolean getShellSession() {
+        return properties.isShellSession();
+    }
+
+    public boolean getDriverControlPlane() {
+        return properties.isDriverControlPlane();
+    }
+
+    public boolean getStatusMonitor() {
+        return properties.isStatusMonitor();
+    }
+
+    public boolean getParallelTeardown() {
+        return properties.isParallelTeardown();
+    }
+
+    public boolean getBackgroundTeardown() {
+        return properties.isBackgroundTeardown();
+    }
+
+    public boolean getStartOnBuild() {
+        return properties.isStartOnBuild();
+    }
+
+    public boolean getReturnOnMasterReady() {
+        return properties.isReturnOnMasterReady();
+    }
+
+    public boolean getHostNetwork() {
+        return properties.isHostNetwork();
+    }
+
+    public boolean getDense() {
+        return properties.isDense();
+    }
+
+    public boolean getDirectNetwork() {
+        return properties.isDirectNetwork();
+    }
+
+    public boolean getNetworkPool() {
+        return properties.isNetworkPool();
+    }
+
+    public boolean getSharedDockerHost() {
+        return properties.isSharedDockerHost();
+    }
+
+    public Duration getStartTimeout() {
+        return properties.getStartTimeout();
+    }
+
+    public Duration getContainerStartupTimeout() {
+        return properties.getContainerStartupTimeout();
+    }
+
+    public Duration getElectionTimeout() {
+        return properties.getElectionTimeout();
+    }
+
+    public Duration getArbiterTimeout() {
+        return properties.getArbiterTimeout();
+    }
+
+    public Duration getReelectionTimeout() {
+        return properties.getReelectionTimeout();
+    }
+
+    /**
+     * Gets a stable hash of the properties defining a replica set topology.
+     *
+     * @return a fingerprint of a replica set
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Reuse requires both the reuse property and
+     * testcontainers.reuse.enable=true in ~/.testcontainers.properties.
+     *
+     * @return whether or not containers survive stop() to be reused by the next start()
+     */
+    private boolean isReuseEnabled() {
+        return getReuse() && TestcontainersConfiguration.getInstance().environmentSupportsReuse();
+    }
+
+    private String getDockerHostName() {
+        return getUseHostDockerInternal() ? DOCKER_HOST_INTERNAL : DOCKER_HOST_WORKAROUND;
+    }
+
+    private String[] buildMongoEvalCommand(final GenericContainer mongoContainer, final String command) {
+        return Stream.of(
+            Stream.of("mongo"),
+            getMongoShellOptions(mongoContainer).stream(),
+            Stream.of("--eval", command)
+        ).flatMap(Function.identity())
+            .toArray(String[]::new);
+    }
+
+    /**
+     * @param mongoContainer a node to connect to
+     * @return options of the mongo shell to connect to a node from inside its container
+     */
+    private List<String> getMongoShellOptions(final GenericContainer mongoContainer) {
+        return mongoContainer instanceof MongoProcessNode || nodePorts.containsKey(mongoContainer)
+            ? Arrays.asList("--port", String.valueOf(getNodePort(mongoContainer)))
+            : Collections.emptyList();
+    }
+
+    /**
+     * @param mongoContainer a node
+     * @return a port a node is reachable on from the JVM
+     */
+    private int getNodePort(final GenericContainer mongoContainer) {
+        if (mongoContainer instanceof MongoProcessNode) {
+            return ((MongoProcessNode) mongoContainer).getPort();
+        }
+        // nodes on the host network or a network shared with the JVM listen on a port of their own
+        return Optional.ofNullable(nodePorts.get(mongoContainer))
+            .orElseGet(() -> mongoContainer.getMappedPort(MONGO_DB_INTERNAL_PORT));
+    }
+
+    /**
+     * @param mongoContainer a node
+     * @return a host a node is reachable on from the JVM
+     */
+    private String getNodeHost(final GenericContainer mongoContainer) {
+        return Optional.ofNullable(nodeAliases.get(mongoContainer))
+            .orElseGet(mongoContainer::getContainerIpAddress);
+    }
+
+    /**
+     * When the JVM itself runs in a Docker container, attaches that container to a replica set network,
+     * so that clients reach nodes by their network aliases instead of via mapped ports,
+     * the docker-host container and a userland proxy.
+     * Does not support addToxiproxy, snapshot, selfInitialize, reuse, hostNetwork and dense,
+     * mapped ports are used otherwise.
+     *
+     * @return whether the JVM reaches nodes directly on a replica set network
+     */
+    boolean isDirectNetworkEnabled() {
+        if (!getDirectNetwork()) {
+            return false;
+        }
+        Boolean enabled = directNetworkEnabled;
+        if (Objects.isNull(enabled)) {
+            enabled = decideOnDirectNetwork();
+            directNetworkEnabled = enabled;
+        }
+        return enabled;
+    }
+
+    private boolean decideOnDirectNetwork() {
+        if (getAddToxiproxy() || getSnapshot() || isSelfInitializeEnabled() || isReuseEnabled() ||
+            getHostNetwork() || getDense()) {
+            log.warn("directNetwork does not support addToxiproxy, snapshot, selfInitialize, reuse, " +
+                "hostNetwork and dense, falling back to mapped ports");
+            return false;
+        }
+        if (!DockerClientConfigUtils.IN_A_CONTAINER) {
+            log.warn("directNetwork requires the JVM to run in a Docker container, falling back to mapped ports");
+            return false;
+        }
+        try {
+            val hostName = InetAddress.getLocalHost().getHostName();
+            ownContainerId = DockerClientFactory.instance().client()
+                .inspectContainerCmd(hostName)
+                .exec()
+                .getId();
+            log.debug("The JVM runs in the container {}", ownContainerId);
+            return true;
+        } catch (Exception e) {
+            log.warn("Cannot find a container the JVM runs in by its host name, falling back to mapped ports", e);
+            return false;
+        }
+    }
+
+    /**
+     * Connects a container the JVM runs in to a replica set network unless it is connected already.
+     */
+    private void attachToNetwork() {
+        val networkId = network.getId();
+        if (networkId.equals(attachedNetworkId)) {
+            return;
+        }
+        DockerClientFactory.instance().client().connectToNetworkCmd()
+            .withContainerId(ownContainerId)
+            .withNetworkId(networkId)
+            .exec();
+        attachedNetworkId = networkId;
+    }
+
+    /**
+     * Lets a shared docker-host container go before a network is removed.
+     */
+    private void releaseSharedDockerHost() {
+        if (dockerHostShared) {
+            dockerHostShared = false;
+            getDockerEnvironment().detachDockerHost(network);
+        }
+    }
+
+    /**
+     * Disconnects a container the JVM runs in from a replica set network as a network with
+     * a connected container cannot be removed.
+     */
+    private void detachFromNetwork() {
+        val networkId = attachedNetworkId;
+        attachedNetworkId = null;
+        if (Objects.isNull(networkId)) {
+            return;
+        }
+        try {
+            DockerClientFactory.instance().client().disconnectFromNetworkCmd()
+                .withContainerId(ownContainerId)
+                .withNetworkId(networkId)
+                .withForce(true)
+                .exec();
+        } catch (RuntimeException e) {
+            log.warn("Cannot disconnect the container {} from a network", ownContainerId, e);
+        }
+    }
+
+    /**
+     * Preallocated host ports are found free in the network namespace of the JVM, so selfInitialize
+     * requires a local Docker daemon and the JVM not to run in a container,
+     * a replica set is initiated via docker exec otherwise.
+     *
+     * @return whether the first node initiates a replica set on boot
+     */
+    private boolean isSelfInitializeEnabled() {
+        if (!getSelfInitialize()) {
+            return false;
+        }
+        Boolean enabled = selfInitializeEnabled;
+        if (Objects.isNull(enabled)) {
+            enabled = isLocalDockerDaemon();
+            if (!enabled) {
+                log.warn("selfInitialize requires a local Docker daemon and the JVM running outside a container, " +
+                    "falling back to initiating a replica set via docker exec");
+            }
+            selfInitializeEnabled = enabled;
+        }
+        return enabled;
+    }
+
+    /**
+     * @return whether a port free for the JVM is free on a Docker host as well
+     */
+    private boolean isLocalDockerDaemon() {
+        return LOCALHOST.equals(getHostIpAddress()) && !DockerClientConfigUtils.IN_A_CONTAINER;
+    }
+
+    /**
+     * Host networking lets every mongod listen on its own port of the host so that members reach each other
+     * over the loopback interface instead of via mapped ports and the docker-host forwarder.
+     * It requires a local Docker daemon on Linux and does not support addToxiproxy, snapshot and reuse,
+     * a bridge network is used otherwise.
+     *
+     * @return whether MongoDB nodes run on the host network
+     */
+    boolean isHostNetworkEnabled() {
+        if (!getHostNetwork()) {
+            return false;
+        }
+        Boolean enabled = hostNetworkEnabled;
+        if (Objects.isNull(enabled)) {
+            enabled = decideOnHostNetwork();
+            hostNetworkEnabled = enabled;
+        }
+        return enabled;
+    }
+
+    private boolean decideOnHostNetwork() {
+        if (getAddToxiproxy() || getSnapshot() || isReuseEnabled()) {
+            log.warn("hostNetwork does not support addToxiproxy, snapshot and reuse, falling back to a bridge network");
+            return false;
+        }
+        val dockerEnvironment = getDockerEnvironment();
+        if (!LOCALHOST.equals(dockerEnvironment.getHostIpAddress()) || !dockerEnvironment.isLinux()) {
+            log.warn("hostNetwork requires a local Docker daemon on Linux, falling back to a bridge network");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Provisions a replica set in up to 3 attempts, all of them within startTimeout.
+     * Waits for a replica set being provisioned by startAsync() instead of provisioning another one.
+     */
+    @Override
+    public void start() {
+        val pending = pendingStart;
+        if (Objects.nonNull(pending)) {
+            awaitStart(pending);
+            return;
+        }
+        provision();
+    }
+
+    /**
+     * Provisions a replica set on a daemon thread, for instance, to overlap it with starting an application context.
+     * Until it completes, start(), getReplicaSetUrl() and other methods requiring working nodes wait for it.
+     * A call made while provisioning is in progress or done returns the same future,
+     * a call after a failure starts over.
+     *
+     * @return a future completed with this replica set once it is provisioned
+     */
+    public CompletableFuture<MongoDbReplicaSet> startAsync() {
+        synchronized (asyncStartLock) {
+            val pending = pendingStart;
+            if (Objects.nonNull(pending) && !pending.isCompletedExceptionally()) {
+                return pending;
+            }
+            val executorService = ExecutorUtils.newFixedDaemonThreadPool("mongo-replica-set-start", 1);
+            final CompletableFuture<MongoDbReplicaSet> future = CompletableFuture.supplyAsync(
+                () -> {
+                    provision();
+                    return this;
+                },
+                executorService
+            );
+            executorService.shutdown();
+            pendingStart = future;
+            return future;
+        }
+    }
+
+    private synchronized void provision() {
+        if (properties.isEnabled()) {
+            int attempt = 0;
+            Exception lastException = null;
+            boolean doContinue = true;
+            final int maxAttempts = 3;
+            awaitPendingTeardown();
+            startCancelled = false;
+            startDeadline = Deadline.after(getStartTimeout());
+            try {
+                while (doContinue && attempt < maxAttempts && !startCancelled && !startDeadline.isExpired()) {
+                    log.debug("Provisioning a replica set, attempt: {} out of {}. Please, wait.", attempt + 1, maxAttempts);
+                    try {
+                        startInternal();
+                        startedNodes.clear();
+                        doContinue = false;
+                        startConvergence();
+                    } catch (IncorrectUserInputException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        if (isReuseEnabled()) {
+                            reuse.removeContainers();
+                        }
+                        // the last attempt always starts from scratch
+                        if (attempt + 2 >= maxAttempts || !resumeAfterFailedAttempt()) {
+                            stopInternal(false);
+                        }
+                        lastException = e;
+                        attempt++;
+                    }
+                }
+            } finally {
+                startDeadline = null;
+                resumingProvisioning = false;
+            }
+            if (doContinue) {
+                final String message;
+                if (startCancelled) {
+                    message = "Provisioning was cancelled by stop()";
+                } else if (attempt < maxAttempts) {
+                    message = String.format("Start timeout of %s hit with exception", getStartTimeout());
+                } else {
+                    message = "Retry limit hit with exception";
+                }
+                throw new MongoNodeInitializationException(message, lastException);
+            }
+        } else {
+            log.info("{} is disabled", CLASS_NAME);
+        }
+    }
+
+    public void startInternal() {
+        convergenceSteps.clear();
+        final GenericContainer mongoContainer;
+        if (getSnapshot() && startFromSnapshot()) {
+            mongoContainer = getFirstWorkingNode();
+        } else {
+            if (isSelfInitializeEnabled()) {
+                mongoContainer = provisionSelfInitializing();
+            } else {
+                mongoContainer = getParallelProvisioning()
+                    ? provisionInParallel()
+                    : provisionSequentially();
+            }
+            if (getSnapshot()) {
+                takeSnapshot();
+            }
+        }
+
+        if (!isReturnOnMasterReadyEnabled()) {
+            logStatus(mongoContainer);
+        }
+        startStatusMonitor();
+    }
+
+    private void logStatus(final GenericContainer mongoContainer) {
+        log.debug(
+            "REPLICA SET STATUS:\n{}",
+            getAdminClient(mongoContainer)
+                .map(AdminClient::describeStatus)
+                .orElseGet(() -> execMongoDbCommandInContainer(mongoContainer, STATUS_COMMAND).getStdout())
+        );
+    }
+
+    /**
+     * @return whether start() returns once a master node accepts writes, leaving the rest to awaitFullyConverged()
+     */
+    private boolean isReturnOnMasterReadyEnabled() {
+        return getReturnOnMasterReady() && !getSnapshot();
+    }
+
+    /**
+     * Runs a step a master node does not depend on right away or, if returnOnMasterReady is set,
+     * leaves it to a convergence phase that runs after start() returns.
+     *
+     * @param step a provisioning step
+     */
+    private void runOrDefer(final Runnable step) {
+        if (isReturnOnMasterReadyEnabled()) {
+            convergenceSteps.add(step);
+        } else {
+            step.run();
+        }
+    }
+
+    /**
+     * Runs deferred steps and waits for all members to be up on a daemon thread
+     * within what is left of startTimeout. The replica set monitor is held meanwhile,
+     * so that node manipulations and stop() wait for convergence or, in case of stop(), cancel it.
+     */
+    private void startConvergence() {
+        if (!isReturnOnMasterReadyEnabled()) {
+            convergence = CompletableFuture.completedFuture(this);
+            return;
+        }
+        final List<Runnable> steps = new ArrayList<>(convergenceSteps);
+        convergenceSteps.clear();
+        final Deadline deadline = startDeadline;
+        val executorService = ExecutorUtils.newFixedDaemonThreadPool("mongo-replica-set-convergence", 1);
+        convergence = CompletableFuture.supplyAsync(
+            () -> {
+                synchronized (this) {
+                    startDeadline = deadline;
+                    try {
+                        if (workingNodeStore.isEmpty()) {
+                            throw new MongoNodeInitializationException("A replica set was stopped before converging");
+                        }
+                        steps.forEach(Runnable::run);
+                        if (getReplicaSetNumber() > 1) {
+                            awaitAllMembersUp();
+                        }
+                        logStatus(getFirstWorkingNode());
+                        return this;
+                    } catch (RuntimeException e) {
+                        log.error("A replica set has not converged", e);
+                        throw e;
+                    } finally {
+                        startDeadline = null;
+                    }
+                }
+            },
+            executorService
+        );
+        executorService.shutdown();
+    }
+
+    /**
+     * Gets a future of a replica set having converged: an arbiter joined and
+     * every member is PRIMARY, SECONDARY or ARBITER.
+     * <p>Without returnOnMasterReady, start() does all of that itself, so a future is already completed.
+     * A failed convergence is not retried, a future completes exceptionally instead.
+     *
+     * @return a future completed with this replica set once it has converged
+     */
+    public CompletableFuture<MongoDbReplicaSet> awaitFullyConverged() {
+        return convergence;
+    }
+
+    private GenericContainer provisionSequentially() {
+        final Set<String> reusableRoles = findReusableContainerRoles();
+        decideOnDockerHost();
+        final boolean addExtraHost = shouldAddExtraHost();
+
+        ToxiproxyContainer toxiproxyContainer = null;
+        if (getAddToxiproxy()) {
+            toxiproxyContainer = getAndStartToxiproxyContainer();
+            supplementaryNodeStore.put(TOXIPROXY_CONTAINER_NAME, Pair.of(toxiproxyContainer, null));
+        }
+        val replicaSetNumber = properties.getReplicaSetNumber();
+
+        for (int i = 0; i < replicaSetNumber; i++) {
+            registerWorkingNode(
+                startMongoDbNode(network, addExtraHost, MONGO_NODE_NAME_PREFIX + i),
+                toxiproxyContainer
+            );
+        }
+        if (getAddArbiter() && (getInitiateWithArbiter() || !reusableRoles.isEmpty())) {
+            registerArbiterNode(
+                startMongoDbNode(network, addExtraHost, MONGO_ARBITER_NODE_NAME),
+                toxiproxyContainer
+            );
+        }
+
+        final GenericContainer mongoContainer = getFirstWorkingNode();
+        if (reattachToReusedReplicaSet(reusableRoles)) {
+            return mongoContainer;
+        }
+
+        val masterNode = initMasterNode(mongoContainer, newDeadline(getElectionTimeout()));
+
+        if (getAddArbiter()) {
+            final ToxiproxyContainer toxiproxy = toxiproxyContainer;
+            runOrDefer(() -> {
+                if (getInitiateWithArbiter()) {
+                    waitForArbiterNode(masterNode, newDeadline(getArbiterTimeout()));
+                } else {
+                    addArbiterNode(network, toxiproxy, masterNode, addExtraHost);
+                }
+            });
+        }
+        return mongoContainer;
+    }
+
+    /**
+     * Runs independent provisioning steps at the same time:
+     * docker-host, Toxiproxy, all MongoDB containers including an arbiter one.
+     * Initializing a replica set waits for all of them, joining an arbiter waits for an initialized replica set
+     * unless it is a part of rs.initiate (see initiateWithArbiter).
+     *
+     * @return the first working node
+     */
+    private GenericContainer provisionInParallel() {
+        final boolean addExtraHost = shouldAddExtraHost();
+        val replicaSetNumber = getReplicaSetNumber();
+        final Map<String, GenericContainer> startedContainers = new ConcurrentHashMap<>();
+        final AtomicReference<ToxiproxyContainer> toxiproxyContainer = new AtomicReference<>();
+        final AtomicReference<GenericContainer> masterNode = new AtomicReference<>();
+        final AtomicBoolean reattached = new AtomicBoolean();
+        final List<String> containerSteps = new ArrayList<>();
+        final Set<String> reusableRoles = findReusableContainerRoles();
+
+        val graph = new ProvisioningGraph()
+            .addStep(NETWORK_STEP, () -> {
+                if ((replicaSetNumber > 1 || getAddToxiproxy()) && !isHostNetworkEnabled()) {
+                    network.getId();
+                }
+            })
+            .addStep(DOCKER_HOST_WORKAROUND, this::decideOnDockerHost, NETWORK_STEP);
+        if (getAddToxiproxy()) {
+            graph.addStep(TOXIPROXY_CONTAINER_NAME, () -> {
+                toxiproxyContainer.set(getAndStartToxiproxyContainer());
+                supplementaryNodeStore.put(TOXIPROXY_CONTAINER_NAME, Pair.of(toxiproxyContainer.get(), null));
+            }, NETWORK_STEP);
+            containerSteps.add(TOXIPROXY_CONTAINER_NAME);
+        }
+        val mongoSteps = IntStream.range(0, replicaSetNumber + (getAddArbiter() ? 1 : 0))
+            .mapToObj(i -> i == replicaSetNumber ? MONGO_ARBITER_NODE_NAME : MONGO_NODE_NAME_PREFIX + i)
+            .collect(Collectors.toList());
+        mongoSteps.forEach(step -> graph.addStep(
+            step,
+            () -> startedContainers.put(step, startMongoDbNode(network, addExtraHost, step)),
+            NETWORK_STEP
+        ));
+        containerSteps.addAll(mongoSteps);
+
+        graph.addStep(REGISTER_NODES_STEP, () -> mongoSteps.forEach(step -> {
+                if (MONGO_ARBITER_NODE_NAME.equals(step)) {
+                    registerArbiterNode(startedContainers.remove(step), toxiproxyContainer.get());
+                } else {
+                    registerWorkingNode(startedContainers.remove(step), toxiproxyContainer.get());
+                }
+            }), containerSteps.toArray(new String[0])
+        ).addStep(
+            INIT_REPLICA_SET_STEP,
+            () -> {
+                if (reattachToReusedReplicaSet(reusableRoles)) {
+                    reattached.set(true);
+                } else {
+                    masterNode.set(initMasterNode(getFirstWorkingNode(), newDeadline(getElectionTimeout())));
+                }
+            },
+            REGISTER_NODES_STEP, DOCKER_HOST_WORKAROUND
+        );
+        if (getAddArbiter()) {
+            graph.addStep(
+                JOIN_ARBITER_STEP,
+                () -> {
+                    if (reattached.get()) {
+                        return;
+                    }
+                    runOrDefer(() -> {
+                        if (getInitiateWithArbiter()) {
+                            waitForArbiterNode(masterNode.get(), newDeadline(getArbiterTimeout()));
+                        } else {
+                            joinArbiterNode(masterNode.get(), newDeadline(getArbiterTimeout()));
+                        }
+                    });
+                },
+                INIT_REPLICA_SET_STEP
+            );
+        }
+
+        val executorService = ExecutorUtils.newFixedDaemonThreadPool(
+            "mongo-replica-set-provisioning",
+            mongoSteps.size() + 2
+        );
+        // nodes started but not registered yet are kept for the next attempt or stopped by stop() via startedNodes
+        try {
+            graph.execute(executorService);
+        } finally {
+            executorService.shutdownNow();
+        }
+        return getFirstWorkingNode();
+    }
+
+    /**
+     * Publishes every node on a preallocated host port so that a replica set config is known before start.
+     * The node with the lowest port gets a generated bootstrap script that initiates a replica set,
+     * waits for a master and an arbiter node (if any) and prints a single readiness line
+     * the JVM waits for instead of running rs.initiate and wait loops via docker exec.
+     * <p>Ports found free may be taken by another process before containers are started,
+     * so provisioning is retried with other ports a few times.
+     *
+     * @return the first working node
+     */
+    private GenericContainer provisionSelfInitializing() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryProvisionSelfInitializing();
+            } catch (RuntimeException e) {
+                if (attempt >= PORT_CONFLICT_ATTEMPTS || !PortUtils.isPortConflict(e) || !workingNodeStore.isEmpty()) {
+                    throw e;
+                }
+                log.warn("A port found free was taken before a node started, retrying with other ports", e);
+            }
+        }
+    }
+
+    private GenericContainer tryProvisionSelfInitializing() {
+        decideOnDockerHost();
+        final boolean addExtraHost = shouldAddExtraHost();
+        final String hostIpAddress = getHostIpAddress();
+        final Map<String, MongoSocketAddress> addresses = new LinkedHashMap<>();
+        getNodeRoles().forEach(
+            role -> addresses.put(role, getMongoSocketAddress(hostIpAddress, PortUtils.findFreePort()))
+        );
+        final Optional<MongoSocketAddress> arbiterAddress =
+            Optional.ofNullable(addresses.get(MONGO_ARBITER_NODE_NAME));
+        final List<MongoSocketAddress> workingNodeAddresses = addresses.entrySet().stream()
+            .filter(e -> !MONGO_ARBITER_NODE_NAME.equals(e.getKey()))
+            .map(Map.Entry::getValue)
+            .sorted(COMPARATOR_MAPPED_PORT)
+            .collect(Collectors.toList());
+        val bootstrapAddress = workingNodeAddresses.get(0);
+        val bootstrap = newReplicaSetBootstrap(workingNodeAddresses, arbiterAddress);
+
+        final Map<String, GenericContainer> containers = new LinkedHashMap<>();
+        addresses.forEach((role, address) -> {
+                final GenericContainer mongoContainer = createMongoDbContainer(
+                    network,
+                    addExtraHost,
+                    role,
+                    properties.getMongoDockerImageName(),
+                    address.getMappedPort()
+                );
+                if (bootstrapAddress.equals(address)) {
+                    bootstrap.applyTo(
+                        mongoContainer,
+                        String.join(" ", getMongoShellOptions(mongoContainer)),
+                        capByStartDeadline(
+                            getContainerStartupTimeout()
+                                .plus(getElectionTimeout())
+                                .plus(getAddArbiter() ? getArbiterTimeout() : Duration.ZERO)
+                        )
+                    );
+                }
+                containers.put(role, mongoContainer);
+            }
+        );
+        startAll(containers.values());
+
+        containers.forEach((role, mongoContainer) -> {
+                if (MONGO_ARBITER_NODE_NAME.equals(role)) {
+                    registerArbiterNode(mongoContainer, null);
+                } else {
+                    registerWorkingNode(mongoContainer, null);
+                }
+            }
+        );
+        final GenericContainer<?> bootstrapNode = extractGenericContainer(bootstrapAddress, workingNodeStore);
+        verifyVersion(new VersionConverter().convert(bootstrap.verify(bootstrapNode)));
+        return getFirstWorkingNode();
+    }
+
+    /**
+     * Starts containers one by one or at the same time if parallelProvisioning is set.
+     * Stops the ones started if any of them fails.
+     *
+     * @param containers containers to start
+     */
+    private void startAll(final Collection<GenericContainer> containers) {
+        if (!getParallelProvisioning()) {
+            try {
+                containers.forEach(GenericContainer::start);
+            } catch (Exception e) {
+                containers.forEach(Startable::stop);
+                throw e;
+            }
+            return;
+        }
+        val executorService = ExecutorUtils.newFixedDaemonThreadPool(
+            "mongo-replica-set-provisioning",
+            containers.size()
+        );
+        try {
+            CompletableFuture.allOf(
+                containers.stream()
+                    .map(c -> CompletableFuture.runAsync(c::start, executorService))
+                    .toArray(CompletableFuture[]::new)
+            ).join();
+        } catch (CompletionException e) {
+            containers.forEach(Startable::stop);
+            throw new MongoNodeInitializationException("Cannot start MongoDB containers", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates a script retrying rs.initiate until all members are reachable and
+     * waiting for a master and an arbiter node (if any) up to electionTimeout and arbiterTimeout.
+     *
+     * @param workingNodeAddresses addresses of working nodes sorted by a mapped port
+     * @param arbiterAddress       an arbiter node address, if any
+     * @return a bootstrap script
+     */
+    private ReplicaSetBootstrap newReplicaSetBootstrap(
+        final List<MongoSocketAddress> workingNodeAddresses,
+        final Optional<MongoSocketAddress> arbiterAddress
+    ) {
+        val electionTimeoutMs = getElectionTimeout().toMillis();
+        val readyTimeoutMs = electionTimeoutMs + (arbiterAddress.isPresent() ? getArbiterTimeout().toMillis() : 0);
+        return new ReplicaSetBootstrap(
+            buildReplicaSetInitiateCommand(workingNodeAddresses, arbiterAddress),
+            getElectionTimeout(),
+            getDeterministicElection() && getReplicaSetNumber() > 1 ? buildStepUpCommand(electionTimeoutMs) : "",
+            buildMongoWaitCommand(
+                buildWaitStopCondition(ReplicaSetBootstrap.buildReadyCondition(arbiterAddress.isPresent())),
+                readyTimeoutMs,
+                WAITING_MSG + " a master node"
+            )
+        );
+    }
+
+    private GenericContainer getFirstWorkingNode() {
+        final GenericContainer mongoContainer = workingNodeStore.firstEntry().getValue();
+        if (Objects.isNull(mongoContainer)) {
+            throw new IllegalStateException("MongoDb container is not supposed to be null");
+        }
+        return mongoContainer;
+    }
+
+    private void registerWorkingNode(
+        final GenericContainer mongoContainer,
+        final ToxiproxyContainer toxiproxyContainer
+    ) {
+        val pair = getContainerProxyAndPort(mongoContainer, toxiproxyContainer);
+
+        val mongoSocketAddress = getMongoSocketAddress(
+            getNodeHost(mongoContainer),
+            pair.getRight()
+        );
+        workingNodeStore.put(mongoSocketAddress, mongoContainer);
+
+        if (getAddToxiproxy()) {
+            toxyNodeStore.put(mongoSocketAddress, pair.getLeft());
+        }
+    }
+
+    void decideOnDockerHost() {
+        if (isDirectNetworkEnabled()) {
+            attachToNetwork();
+            return;
+        }
+        if (isHostNetworkEnabled() || (isDenseEnabled() && !getAddToxiproxy())) {
+            return;
+        }
+        if (getUseHostDockerInternal() || getReplicaSetNumber() == 1 || !LOCALHOST.equals(getHostIpAddress())) {
+            return;
+        }
+        if (getSharedDockerHost() && !isReuseEnabled()) {
+            if (!dockerHostShared) {
+                warnAboutTheNeedToModifyHostFile();
+            }
+            // starts a shared container again if it has died, for instance, before the next attempt of start()
+            getDockerEnvironment().attachDockerHost(DOCKER_HOST_CONTAINER_NAME, network, getDockerHostName());
+            dockerHostShared = true;
+        } else if (!supplementaryNodeStore.containsKey(DOCKER_HOST_WORKAROUND)) {
+            warnAboutTheNeedToModifyHostFile();
+            supplementaryNodeStore.put(
+                DOCKER_HOST_WORKAROUND,
+                Pair.of(getAndRunDockerHostContainer(network, getDockerHostName()), null)
+            );
+        }
+    }
+
+    private boolean shouldAddExtraHost() {
+        boolean addExtraHost = false;
+        if (getUseHostDockerInternal() && getReplicaSetNumber() > 1 &&
+            !isHostNetworkEnabled() && !isDirectNetworkEnabled()) {
+            val dockerEnvironment = getDockerEnvironment();
+            if (dockerEnvironment.isLinux() && LOCALHOST.equals(dockerEnvironment.getHostIpAddress())) {
+                addExtraHost = true;
+            }
+        }
+        return addExtraHost;
+    }
+
+    private Pair<ToxiproxyContainer.ContainerProxy, Integer> getContainerProxyAndPort(
+        final GenericContainer mongoContainer,
+        final ToxiproxyContainer toxiproxyContainer
+    ) {
+        ToxiproxyContainer.ContainerProxy containerProxy = null;
+        int port;
+        if (getAddToxiproxy()) {
+            Objects.requireNonNull(toxiproxyContainer, "toxiproxyContainer is not supposed to be null");
+            containerProxy = toxiproxyContainer.getProxy(
+                mongoContainer,
+                mongoContainer instanceof MongoProcessNode
+                    ? ((MongoProcessNode) mongoContainer).getPort()
+                    : MONGO_DB_INTERNAL_PORT
+            );
+            port = containerProxy.getProxyPort();
+            log.debug(
+                "Real port: {}, proxy port: {}",
+                getNodePort(mongoContainer),
+                port
+            );
+        } else {
+            Objects.requireNonNull(mongoContainer, "mongoContainer is not supposed to be null");
+            port = getNodePort(mongoContainer);
+        }
+        return Pair.of(containerProxy, port);
+    }
+
+    @SneakyThrows(value = {IOException.class, InterruptedException.class})
+    MongoCommandResult execMongoDbCommandInContainer(
+        final GenericContainer mongoContainer,
+        final String command
+    ) {
+        checkStartNotCancelled("running a command");
+        if (getShellSession()) {
+            final Optional<MongoCommandResult> execResult = execInShellSession(mongoContainer, command);
+            if (execResult.isPresent()) {
+                return execResult.get();
+            }
+            checkStartNotCancelled("running a command");
+        }
+        val execResult = mongoContainer.execInContainer(
+            buildMongoEvalCommand(mongoContainer, command)
+        );
+        return MongoCommandResult.of(execResult.getExitCode(), execResult.getStdout(), execResult.getStderr());
+    }
+
+    /**
+     * Runs a command in a long-lived mongo shell of a node, opening one on first use.
+     * Stdout starts with a server version line as mongo --eval does so that it is parsed the same way.
+     * <p>Waits for a result for what is left of startTimeout plus SHELL_SESSION_GRACE_PERIOD
+     * so that a wait loop bounded by the same deadline reports its own timeout first.
+     *
+     * @param mongoContainer a node to run a command on
+     * @param command        JS to evaluate
+     * @return an exec result or empty if a session failed before a command was sent
+     * and a command has to run via mongo --eval
+     * @throws MongoNodeInitializationException if a session failed after a command was sent,
+     *                                          as running a command again, for instance, rs.reconfig, is not safe
+     */
+    private Optional<MongoCommandResult> execInShellSession(
+        final GenericContainer mongoContainer,
+        final String command
+    ) {
+        final String containerId = mongoContainer.getContainerId();
+        final List<String> shellOptions = getMongoShellOptions(mongoContainer);
+        final String sessionKey = containerId + String.join(" ", shellOptions);
+        final MongoShellSession session;
+        try {
+            Optional.ofNullable(shellSessions.get(sessionKey))
+                .filter(MongoShellSession::isClosed)
+                .ifPresent(closedSession -> shellSessions.remove(sessionKey, closedSession));
+            session = shellSessions.computeIfAbsent(
+                sessionKey,
+                key -> MongoShellSession.open(containerId, shellOptions)
+            );
+        } catch (Exception e) {
+            log.debug("Cannot open a mongo shell session, falling back to mongo --eval", e);
+            return Optional.empty();
+        }
+        try {
+            val result = session.execute(
+                command,
+                newDeadline(getStartTimeout()).remaining().plus(SHELL_SESSION_GRACE_PERIOD)
+            );
+            return Optional.of(
+                MongoCommandResult.of(
+                    result.getLeft(),
+                    String.format(
+                        "%s %s%n%s",
+                        StringToMongoRsStatusConverter.MONGO_VERSION_MARKER,
+                        session.getServerVersion(),
+                        result.getRight()
+                    ),
+                    ""
+                )
+            );
+        } catch (MongoShellSessionException e) {
+            shellSessions.remove(sessionKey, session);
+            session.close();
+            if (!e.isCommandSent()) {
+                log.debug("A mongo shell session failed, falling back to mongo --eval", e);
+                return Optional.empty();
+            }
+            val errorMessage = String.format(
+                "A mongo shell session of container %s failed while running a command: %s",
+                containerId,
+                e.getMessage()
+            );
+            log.error(errorMessage);
+            throw new MongoNodeInitializationException(errorMessage, e);
+        }
+    }
+
+    private void warnAboutTheNeedToModifyHostFile() {
+        log.warn(
+            "Please, check that the host file of your OS has 127.0.0.1 dockerhost. " +
+                "If you don't want to modify it, then consider the following:" +
+                "\n1) set replicaSetNumber to 1;" +
+                "\n2) use remote docker daemon;" +
+                "\n3) use local docker host running tests from inside a container with mapping the Docker socket."
+        );
+    }
+
+    private String getHostIpAddress() {
+        return getDockerEnvironment().getHostIpAddress();
+    }
+
+    /**
+     * @return a Docker environment inspected once per JVM
+     */
+    @NonNull
+    DockerEnvironment getDockerEnvironment() {
+        try {
+            return DockerEnvironment.getInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot inspect a Docker environment", e);
+        }
+    }
+
+    GenericContainer initMasterNode(
+        final GenericContainer mongoContainer,
+        final Deadline deadline
+    ) {
+        if (resumingProvisioning && isReplicaSetInitiated(mongoContainer)) {
+            log.debug("A replica set has been initiated by a failed attempt, awaiting a master node");
+            return checkAndGetMasterNode(mongoContainer, deadline);
+        }
+        log.debug("Initializing a {} node replica set...", getReplicaSetNumber());
+        val adminClient = getAdminClient(mongoContainer);
+        if (adminClient.isPresent()) {
+            val replicaSetConfig = buildReplicaSetConfig(workingNodeStore.keySet(), getArbiterMemberAddress());
+            log.debug("replicaSetConfig: {}", replicaSetConfig);
+            runAdminCommand(
+                () -> {
+                    verifyVersion(adminClient.get().getMongoRsStatus().getVersion());
+                    adminClient.get().initiate(replicaSetConfig);
+                },
+                "initializing a master node"
+            );
+            return checkAndGetMasterNode(mongoContainer, deadline);
+        }
+        val execResultInitRs = execMongoDbCommandInContainer(
+            mongoContainer,
+            getMongoReplicaSetInitializer()
+        );
+        val stdoutInitRs = execResultInitRs.getStdout();
         log.debug("initMasterNode => execResultInitRs: {}", stdoutInitRs);
         checkMongoNodeExitCodeAndStatus(
             execResultInitRs,
@@ -475,21 +2255,119 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         );
         verifyVersion(stdoutInitRs);
 
-        return checkAndGetMasterNode(mongoContainer, awaitNodeInitAttempts);
+        return checkAndGetMasterNode(mongoContainer, deadline);
     }
 
     private GenericContainer checkAndGetMasterNode(
         final GenericContainer mongoContainer,
-        final int awaitNodeInitAttempts
+        final Deadline deadline
+    ) {
+        if (getDriverControlPlane()) {
+            return checkAndGetMasterNodeViaDriver(mongoContainer, deadline);
+        }
+        if (getReplicaSetNumber() == 1) {
+            return checkAndGetMasterNodeInSingleNodeReplicaSet(mongoContainer, deadline);
+        }
+        return getDeterministicElection()
+            ? stepUpFirstMember(deadline)
+            : checkAndGetMasterNodeInMultiNodeReplicaSet(mongoContainer, deadline);
+    }
+
+    /**
+     * Same as checkAndGetMasterNode but polls nodes via the driver instead of running wait loops in the mongo shell.
+     *
+     * @param mongoContainer a node a replica set was initiated on
+     * @param deadline       a deadline to wait for a master node until
+     * @return the master node
+     */
+    private GenericContainer checkAndGetMasterNodeViaDriver(
+        final GenericContainer mongoContainer,
+        final Deadline deadline
     ) {
-        return getReplicaSetNumber() == 1
-            ? checkAndGetMasterNodeInSingleNodeReplicaSet(mongoContainer, awaitNodeInitAttempts)
-            : checkAndGetMasterNodeInMultiNodeReplicaSet(mongoContainer, awaitNodeInitAttempts);
+        final GenericContainer masterNode;
+        if (getReplicaSetNumber() == 1) {
+            masterNode = mongoContainer;
+        } else if (getDeterministicElection()) {
+            masterNode = getFirstWorkingNode();
+            val adminClient = getAdminClient(masterNode).orElseThrow(IllegalStateException::new);
+            awaitDriverCondition(
+                adminClient,
+                c -> c.isMaster() || c.isSecondary(),
+                deadline,
+                WAITING_MSG + " the first member to be a secondary one"
+            );
+            try {
+                if (adminClient.isSecondary()) {
+                    adminClient.stepUp();
+                }
+            } catch (RuntimeException e) {
+                log.debug("replSetStepUp failed, waiting for a higher priority to make a node a master one", e);
+            }
+        } else {
+            masterNode = findMasterElected(mongoContainer, deadline);
+        }
+        awaitDriverCondition(
+            getAdminClient(masterNode).orElseThrow(IllegalStateException::new),
+            AdminClient::isMaster,
+            deadline,
+            "verifying that a node is a master one"
+        );
+        masterNodeHint = masterNode;
+        return masterNode;
+    }
+
+    /**
+     * Makes the member with _id 0 a master node instead of searching for a random one elected.
+     * Keeps it as a known master node so that commands run after startup do not search for one either.
+     *
+     * @param deadline a deadline to wait for a member to be a secondary and then a master one until
+     * @return the master node
+     */
+    private GenericContainer stepUpFirstMember(final Deadline deadline) {
+        val masterNode = getFirstWorkingNode();
+        log.debug("Stepping up the first member to be a master one, up to {}", deadline.remaining());
+        val execResultStepUp = waitForCondition(
+            masterNode,
+            deadline,
+            timeoutMs -> buildStepUpCommand(timeoutMs) +
+                buildMongoWaitCommand(
+                    "!db.runCommand( { isMaster: 1 } ).ismaster",
+                    timeoutMs,
+                    WAITING_MSG + " the first member to be a master one"
+                )
+        );
+        log.debug(execResultStepUp.getStdout());
+        checkMongoNodeExitCodeAfterWaiting(
+            masterNode,
+            execResultStepUp,
+            "master",
+            getElectionTimeout()
+        );
+        masterNodeHint = masterNode;
+        return masterNode;
+    }
+
+    /**
+     * Waits for a node to be a secondary and asks it to run an election right away
+     * instead of waiting for an election timeout.
+     * A failed replSetStepUp is only printed as a higher priority makes the node a master one anyway.
+     *
+     * @param timeoutMs milliseconds to wait for a node to be a secondary
+     * @return JS to run on the member with _id 0
+     */
+    private String buildStepUpCommand(final long timeoutMs) {
+        return buildMongoWaitCommand(
+            "!(rs.status().ok === 1 && [1, 2].indexOf(rs.status().myState) !== -1)",
+            timeoutMs,
+            WAITING_MSG + " the first member to be a secondary one"
+        ) + "if (rs.status().myState === 2) {printjson(db.adminCommand({replSetStepUp: 1}));} ";
     }
 
     void verifyVersion(String stdoutInitRs) {
-        val inputVersion = statusConverter.convert(stdoutInitRs).getVersion();
+        verifyVersion(statusConverter.convert(stdoutInitRs).getVersion());
+    }
 
+    private void verifyVersion(final MongoDbVersion inputVersion) {
         if (checkVersionPart(
             inputVersion.getMajor(),
             FIRST_SUPPORTED_MONGODB_VERSION.getMajor()
@@ -532,13 +2410,13 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     private GenericContainer checkAndGetMasterNodeInMultiNodeReplicaSet(
         final GenericContainer mongoContainer,
-        final int awaitNodeInitAttempts
+        final Deadline deadline
     ) {
-        log.debug("Searching for a master node in a replica set, up to {} attempts", awaitNodeInitAttempts);
+        log.debug("Searching for a master node in a replica set, up to {}", deadline.remaining());
         val execResultWaitForAnyMaster = waitForCondition(
             mongoContainer,
             buildWaitStopCondition("rs.status().members.filter(o => o.state === 1).length === 1"),
-            awaitNodeInitAttempts,
+            deadline,
             "Searching for a master node"
         );
         log.debug(execResultWaitForAnyMaster.getStdout());
@@ -546,23 +2424,23 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             mongoContainer,
             execResultWaitForAnyMaster,
             "master candidate",
-            awaitNodeInitAttempts
+            getElectionTimeout()
         );
 
-        val masterNode = findMasterElected(mongoContainer);
+        val masterNode = findMasterElected(mongoContainer, deadline);
 
-        log.debug("Verifying that a node is a master one, up to {} attempts", awaitNodeInitAttempts);
+        log.debug("Verifying that a node is a master one, up to {}", deadline.remaining());
         val execResultWaitForMaster = waitForCondition(
             masterNode,
             "db.runCommand( { isMaster: 1 } ).ismaster==false",
-            awaitNodeInitAttempts, "verifying that a node is a master one"
+            deadline, "verifying that a node is a master one"
         );
 
         checkMongoNodeExitCodeAfterWaiting(
             masterNode,
             execResultWaitForMaster,
             "master",
-            awaitNodeInitAttempts
+            getElectionTimeout()
         );
         return masterNode;
     }
@@ -570,20 +2448,28 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     private GenericContainer findMasterElected(
         final GenericContainer mongoContainer
     ) {
-        log.debug("Waiting for a single master node up to {} attempts", getAwaitNodeInitAttempts());
-        val execResultMasterAddress = execMongoDbCommandInContainer(
+        return findMasterElected(mongoContainer, newDeadline(getElectionTimeout()));
+    }
+
+    private GenericContainer findMasterElected(
+        final GenericContainer mongoContainer,
+        final Deadline deadline
+    ) {
+        log.debug("Waiting for a single master node up to {}", deadline.remaining());
+        val adminClient = getAdminClient(mongoContainer);
+        if (adminClient.isPresent()) {
+            return findMasterElected(adminClient.get(), deadline);
+        }
+        val execResultMasterAddress = waitForCondition(
             mongoContainer,
-            String.format(
-                "var attempt = 0; " +
-                    "while (attempt <= %d) { " +
-                    "print('%s a single master node up to ' + attempt); sleep(1000); attempt++;" +
-                    "if (%s rs.status().members.filter(o => o.state === 1).length === 1) " +
-                    "{ rs.status().members.find(o => o.state === 1).name; break; }}; " +
-                    "if(attempt > %d) {quit(1)};",
-                getAwaitNodeInitAttempts(),
-                WAITING_MSG,
-                RS_STATUS_MEMBERS_DEFINED_CONDITION,
-                getAwaitNodeInitAttempts()
+            deadline,
+            timeoutMs -> String.format(
+                "%s print(rs.status().members.find(o => o.state === 1).name);",
+                buildMongoWaitCommand(
+                    buildWaitStopCondition("rs.status().members.filter(o => o.state === 1).length === 1"),
+                    timeoutMs,
+                    WAITING_MSG + " a single master node"
+                )
             )
         );
         checkMongoNodeExitCode(execResultMasterAddress, "finding a master node");
@@ -607,7 +2493,36 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
                 );
         log.debug("Found the master elected: {}", mongoSocketAddress);
 
-        return extractGenericContainer(mongoSocketAddress, workingNodeStore);
+        val masterNode = extractGenericContainer(mongoSocketAddress, workingNodeStore);
+        masterNodeHint = masterNode;
+        return masterNode;
+    }
+
+    private GenericContainer findMasterElected(final AdminClient adminClient, final Deadline deadline) {
+        final AtomicReference<MongoRsStatus> status = new AtomicReference<>();
+        awaitDriverCondition(
+            adminClient,
+            c -> {
+                status.set(c.getMongoRsStatus());
+                return countMembers(status.get(), s -> s == ReplicaSetMemberState.PRIMARY) == 1;
+            },
+            deadline,
+            WAITING_MSG + " a single master node"
+        );
+        val master = status.get().getMembers().stream()
+            .filter(m -> m.getState() == ReplicaSetMemberState.PRIMARY)
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+        val mongoSocketAddress = MongoSocketAddress.builder()
+            .ip(master.getIp())
+            .replSetPort(master.getPort())
+            .mappedPort(master.getPort())
+            .build();
+        log.debug("Found the master elected: {}", mongoSocketAddress);
+
+        val masterNode = extractGenericContainer(mongoSocketAddress, workingNodeStore);
+        masterNodeHint = masterNode;
+        return masterNode;
     }
 
     /**
@@ -663,13 +2578,13 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     private GenericContainer checkAndGetMasterNodeInSingleNodeReplicaSet(
         final GenericContainer mongoContainer,
-        final int awaitNodeInitAttempts
+        final Deadline deadline
     ) {
-        log.debug("Awaiting a master node, up to {} attempts", awaitNodeInitAttempts);
+        log.debug("Awaiting a master node, up to {}", deadline.remaining());
         val execResultWaitForMaster = waitForCondition(
             mongoContainer,
             "db.runCommand( { isMaster: 1 } ).ismaster==false",
-            awaitNodeInitAttempts, WAITING_MSG + " a node to be a master one"
+            deadline, WAITING_MSG + " a node to be a master one"
         );
         log.debug(execResultWaitForMaster.getStdout());
 
@@ -677,16 +2592,37 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             mongoContainer,
             execResultWaitForMaster,
             "master",
-            awaitNodeInitAttempts
+            getElectionTimeout()
         );
 
         return mongoContainer;
     }
 
-    private MongoSocketAddress getMongoSocketAddress(
+    MongoSocketAddress getMongoSocketAddress(
         final String containerIpAddress,
         final int port
     ) {
+        if (isHostNetworkEnabled()) {
+            return MongoSocketAddress.builder()
+                .ip(LOOPBACK_IP)
+                .replSetPort(port)
+                .mappedPort(port)
+                .build();
+        }
+        if (isDirectNetworkEnabled()) {
+            return MongoSocketAddress.builder()
+                .ip(containerIpAddress)
+                .replSetPort(port)
+                .mappedPort(port)
+                .build();
+        }
+        if (isDenseEnabled() && !getAddToxiproxy()) {
+            return MongoSocketAddress.builder()
+                .ip(LOCALHOST.equals(containerIpAddress) ? LOOPBACK_IP : containerIpAddress)
+                .replSetPort(port)
+                .mappedPort(port)
+                .build();
+        }
         if (LOCALHOST.equals(containerIpAddress)) {
             return (getReplicaSetNumber() == 1)
                 ? MongoSocketAddress.builder()
@@ -715,21 +2651,67 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final Network network,
         final ToxiproxyContainer toxiproxyContainer,
         final GenericContainer masterNode,
-        final int awaitNodeInitAttempts,
         boolean addExtraHost
     ) {
-        log.debug("Awaiting an arbiter node to be available, up to {} attempts", properties.getAwaitNodeInitAttempts());
+        log.debug("Awaiting an arbiter node to be available, up to {}", getArbiterTimeout());
+
+        val mongoContainerArbiter = startMongoDbNode(network, addExtraHost, MONGO_ARBITER_NODE_NAME);
+        registerArbiterNode(mongoContainerArbiter, toxiproxyContainer);
+        joinArbiterNode(masterNode, newDeadline(getArbiterTimeout()));
+    }
 
-        val mongoContainerArbiter = getAndStartMongoDbContainer(network, addExtraHost);
+    private void registerArbiterNode(
+        final GenericContainer mongoContainerArbiter,
+        final ToxiproxyContainer toxiproxyContainer
+    ) {
         val pair = getContainerProxyAndPort(mongoContainerArbiter, toxiproxyContainer);
         val mongoSocketAddress = getMongoSocketAddress(
-            mongoContainerArbiter.getContainerIpAddress(),
+            getNodeHost(mongoContainerArbiter),
             pair.getRight()
         );
         supplementaryNodeStore.put(MONGO_ARBITER_NODE_NAME, Pair.of(mongoContainerArbiter, mongoSocketAddress));
         if (getAddToxiproxy()) {
             toxyNodeStore.put(mongoSocketAddress, pair.getLeft());
         }
+    }
+
+    /**
+     * Adds a started and registered arbiter node to a replica set.
+     *
+     * @param masterNode a master node to run rs.addArb on
+     * @param deadline   a deadline to wait for an arbiter node to be up until
+     */
+    private void joinArbiterNode(
+        final GenericContainer masterNode,
+        final Deadline deadline
+    ) {
+        val mongoSocketAddress = supplementaryNodeStore.get(MONGO_ARBITER_NODE_NAME).getRight();
+        if (resumingProvisioning && fetchMongoRsStatus(masterNode).getMembers().stream().anyMatch(
+            m -> Objects.equals(m.getIp(), mongoSocketAddress.getIp()) &&
+                Objects.equals(m.getPort(), mongoSocketAddress.getReplSetPort())
+        )) {
+            log.debug("An arbiter node has been added by a failed attempt");
+            waitForArbiterNode(masterNode, deadline);
+            return;
+        }
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            runAdminCommand(
+                () -> {
+                    if (getServerVersion().getMajor() >= 5) {
+                        adminClient.get().setDefaultWriteConcernW1();
+                    }
+                    adminClient.get().addMember(
+                        mongoSocketAddress.getIp() + ":" + mongoSocketAddress.getReplSetPort(),
+                        true,
+                        RECONFIG_MAX_TIME_MS
+                    );
+                },
+                "initializing an arbiter node"
+            );
+            waitForArbiterNode(masterNode, deadline);
+            return;
+        }
         val execResultAddArbiter = execMongoDbCommandInContainer(
             masterNode,
             String.format(
@@ -745,31 +2727,48 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             "initializing an arbiter node"
         );
 
+        waitForArbiterNode(masterNode, deadline);
+    }
+
+    private void waitForArbiterNode(
+        final GenericContainer masterNode,
+        final Deadline deadline
+    ) {
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            awaitDriverCondition(
+                adminClient.get(),
+                c -> countMembers(c.getMongoRsStatus(), s -> s == ReplicaSetMemberState.ARBITER) > 0,
+                deadline,
+                "awaiting an arbiter node to be up"
+            );
+            return;
+        }
         val execResultWaitArbiter = waitForCondition(
             masterNode,
             buildWaitStopCondition("rs.status().members.find(o => o.state === 7) !== undefined"),
-            awaitNodeInitAttempts,
+            deadline,
             "awaiting an arbiter node to be up"
         );
         log.debug("Wait for an arbiter node result: {}", execResultWaitArbiter.getStdout());
         checkMongoNodeExitCodeAfterWaiting(
             masterNode, execResultWaitArbiter,
             "arbiter",
-            awaitNodeInitAttempts
+            getArbiterTimeout()
         );
     }
 
     void checkMongoNodeExitCodeAfterWaiting(
         final GenericContainer mongoContainer,
-        final Container.ExecResult execResultWaitForMaster,
+        final MongoCommandResult execResultWaitForMaster,
         final String nodeName,
-        final int awaitNodeInitAttempts
+        final Duration timeout
     ) {
         if (execResultWaitForMaster.getExitCode() != CONTAINER_EXIT_CODE_OK) {
             val errorMessage = String.format(
-                "The %s node was not initialized in a set timeout: %d attempts. Replica set status: %s",
+                "The %s node was not initialized in a set timeout: %s. Replica set status: %s",
                 nodeName,
-                awaitNodeInitAttempts,
+                timeout,
                 execMongoDbCommandInContainer(mongoContainer, STATUS_COMMAND).getStdout()
             );
 
@@ -780,7 +2779,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     @SneakyThrows
     void checkMongoNodeExitCode(
-        final Container.ExecResult execResult,
+        final MongoCommandResult execResult,
         final String commandDescription
     ) {
         Objects.requireNonNull(execResult);
@@ -799,7 +2798,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     @SneakyThrows
     void checkMongoNodeExitCodeAndStatus(
-        final Container.ExecResult execResult,
+        final MongoCommandResult execResult,
         final String commandDescription
     ) {
         Objects.requireNonNull(execResult);
@@ -816,46 +2815,119 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         }
     }
 
-    private Container.ExecResult waitForCondition(
+    private MongoCommandResult waitForCondition(
         final GenericContainer mongoContainer,
         final String condition,
-        final int awaitNodeInitAttempts,
+        final Deadline deadline,
         final String waitingMessage
     ) {
-        return execMongoDbCommandInContainer(
+        return waitForCondition(
             mongoContainer,
-            buildMongoWaitCommand(
+            deadline,
+            timeoutMs -> buildMongoWaitCommand(
                 condition,
-                awaitNodeInitAttempts,
+                timeoutMs,
                 waitingMessage
             )
         );
     }
 
+    /**
+     * Runs a wait loop built for the time left until a deadline.
+     *
+     * @param mongoContainer a node to run a wait loop on
+     * @param deadline       a deadline to wait until
+     * @param waitCommand    builds a wait loop for given milliseconds
+     * @return an exec result of a wait loop
+     */
+    private MongoCommandResult waitForCondition(
+        final GenericContainer mongoContainer,
+        final Deadline deadline,
+        final LongFunction<String> waitCommand
+    ) {
+        return execMongoDbCommandInContainer(
+            mongoContainer,
+            waitCommand.apply(deadline.remaining().toMillis())
+        );
+    }
+
+    /**
+     * Generates a JS loop checking a condition right away and then on every topology change of a node.
+     * <p>MongoDB 4.4 and up report a topologyVersion, so a loop blocks in an awaitable isMaster
+     * until a node's topology changes or a current delay passes.
+     * Older versions sleep for a current delay. The delay doubles from 20 ms up to a second
+     * as some conditions (for instance, a member being down) do not change a node's topology.
+     *
+     * @param condition      a loop condition, the loop stops when it is false
+     * @param timeoutMs      milliseconds to wait for
+     * @param waitingMessage a message to print while waiting
+     * @return a wait loop exiting with 1 on timeout
+     */
     private String buildMongoWaitCommand(
         final String condition,
-        final int attempts,
+        final long timeoutMs,
         final String waitingMessage
     ) {
         return String.format(
-            "var attempt = 0; " +
-                "while" +
-                "(%s) " +
-                "{ " +
-                "if (attempt > %d) {quit(1);} " +
-                "print('%s ' + attempt); sleep(1000); attempt++; " +
-                " }",
-            condition, attempts, waitingMessage
+            "function awaitTopologyChange(delay) { " +
+                "var hello = db.adminCommand({isMaster: 1}); " +
+                "if (hello.topologyVersion === undefined) {sleep(delay);} " +
+                "else {db.adminCommand({isMaster: 1, topologyVersion: hello.topologyVersion, maxAwaitTimeMS: delay});} " +
+                "} " +
+                "var attempt = 0; var delay = %d; var deadline = Date.now() + %d; " +
+                "while (%s) { " +
+                "if (Date.now() > deadline) {quit(1);} " +
+                "print('%s ' + attempt); attempt++; " +
+                "var currentDelay = delay; delay = Math.min(delay * 2, %d); awaitTopologyChange(currentDelay); " +
+                "} ",
+            WAIT_INITIAL_DELAY_MS,
+            timeoutMs,
+            condition,
+            waitingMessage,
+            WAIT_MAX_DELAY_MS
         );
     }
 
     private String getMongoReplicaSetInitializer() {
-        val addresses = workingNodeStore.keySet().toArray(new MongoSocketAddress[0]);
+        return "cfg = " + buildReplicaSetInitiateCommand(
+            workingNodeStore.keySet(),
+            getArbiterMemberAddress()
+        ) + buildJsIfStatement("cfg.ok===1", "cfg");
+    }
+
+    /**
+     * Builds rs.initiate with working nodes in the order of their mapped ports.
+     *
+     * @param workingNodeAddresses addresses of working nodes sorted by a mapped port
+     * @param arbiterAddress       an arbiter node to declare in rs.initiate, if any
+     * @return rs.initiate command
+     */
+    private String buildReplicaSetInitiateCommand(
+        final Collection<MongoSocketAddress> workingNodeAddresses,
+        final Optional<MongoSocketAddress> arbiterAddress
+    ) {
+        val replicaSetInitializer = "rs.initiate(" + buildReplicaSetConfig(workingNodeAddresses, arbiterAddress) + ");";
+        log.debug("replicaSetInitializer: {}", replicaSetInitializer);
+        return replicaSetInitializer;
+    }
+
+    /**
+     * Builds a replica set config as JSON with working nodes in the order of their mapped ports.
+     *
+     * @param workingNodeAddresses addresses of working nodes sorted by a mapped port
+     * @param arbiterAddress       an arbiter node to declare, if any
+     * @return a replica set config
+     */
+    private String buildReplicaSetConfig(
+        final Collection<MongoSocketAddress> workingNodeAddresses,
+        final Optional<MongoSocketAddress> arbiterAddress
+    ) {
+        val addresses = workingNodeAddresses.toArray(new MongoSocketAddress[0]);
         val length = addresses.length;
         val slaveDelayTimeout = getSlaveDelayTimeout();
         val workingNodeNumber = getReplicaSetNumber() + (getAddArbiter() ? 1 : 0) - getSlaveDelayNumber();
 
-        String replicaSetInitializer = IntStream.range(0, length)
+        final List<String> members = IntStream.range(0, length)
             .mapToObj(i -> {
                     val address = addresses[i];
                     if (slaveDelayTimeout > 0 && i > workingNodeNumber - 1) {
@@ -863,6 +2935,11 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
                             "        {\"_id\": %d, \"host\": \"%s:%d\", \"slaveDelay\":%d, \"priority\": 0, \"hidden\": true}",
                             i, address.getIp(), address.getReplSetPort(), slaveDelayTimeout
                         );
+                    } else if (i == 0 && getDeterministicElection()) {
+                        return String.format(
+                            "        {\"_id\": %d, \"host\": \"%s:%d\", \"priority\": %d}",
+                            i, address.getIp(), address.getReplSetPort(), FIRST_MEMBER_PRIORITY
+                        );
                     } else {
                         return String.format(
                             "        {\"_id\": %d, \"host\": \"%s:%d\"}",
@@ -871,19 +2948,37 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
                     }
 
                 }
-            ).collect(Collectors.joining(
+            ).collect(Collectors.toCollection(ArrayList::new));
+        arbiterAddress.map(address -> String.format(
+            "        {\"_id\": %d, \"host\": \"%s:%d\", \"arbiterOnly\": true}",
+            length, address.getIp(), address.getReplSetPort()
+        )).ifPresent(members::add);
+        return members.stream()
+            .collect(Collectors.joining(
                 ",\n",
-                "rs.initiate({\n" +
+                "{\n" +
                     "    \"_id\": \"docker-rs\",\n" +
                     "    \"members\": [\n",
-                "\n    ]\n});"
+                "\n    ]\n}"
                 )
             );
-        log.debug("replicaSetInitializer: {}", replicaSetInitializer);
-        return "cfg = " + replicaSetInitializer + buildJsIfStatement("cfg.ok===1", "cfg");
     }
 
-    private String buildMongoRsUrl(final String readPreference) {
+    /**
+     * Declares an arbiter node right in rs.initiate so that a replica set
+     * converges in a single initiate/election cycle without rs.addArb.
+     *
+     * @return an arbiter address if initiateWithArbiter is set and an arbiter node is registered
+     */
+    private Optional<MongoSocketAddress> getArbiterMemberAddress() {
+        if (!(getAddArbiter() && getInitiateWithArbiter())) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(supplementaryNodeStore.get(MONGO_ARBITER_NODE_NAME))
+            .map(Pair::getRight);
+    }
+
+    private String buildMongoRsUrl(final String readPreference, final String databaseName) {
         return workingNodeStore.keySet().stream()
             .map(a -> String.format(
                 "%s:%d",
@@ -894,7 +2989,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
                     ",",
                     "mongodb://",
                     String.format("/%s%s&readPreference=%s",
-                        MONGODB_DATABASE_NAME_DEFAULT,
+                        databaseName,
                         getReplicaSetNumber() == 1 ? "" : "?replicaSet=docker-rs",
                         readPreference
                     )
@@ -930,6 +3025,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             .waitingFor(
                 Wait.forLogMessage(".*Forwarding ports.*", 1)
             );
+        withReuseIfEnabled(dockerHostContainer, DOCKER_HOST_WORKAROUND, dockerHostName);
         dockerHostContainer.start();
         return dockerHostContainer;
     }
@@ -938,31 +3034,121 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
      * Creates ans starts a Docker container representing a MongoDB node to participate in a replica set.
      * <p>Needs to be closed at the end.
      *
-     * @param network a shared network
+     * @param network      a shared network
+     * @param addExtraHost whether to add host.docker.internal to a container
+     * @param role         a unique name of a node in a replica set
+     * @return a Docker container representing a MongoDB node
+     */
+    private @NonNull GenericContainer getAndStartMongoDbContainer(
+        final Network network,
+        final boolean addExtraHost,
+        final String role
+    ) {
+        return getAndStartMongoDbContainer(
+            network,
+            addExtraHost,
+            role,
+            properties.getMongoDockerImageName(),
+            null
+        );
+    }
+
+    /**
+     * Creates ans starts a Docker container representing a MongoDB node to participate in a replica set.
+     * <p>Needs to be closed at the end.
+     *
+     * @param network      a shared network
+     * @param addExtraHost whether to add host.docker.internal to a container
+     * @param role         a unique name of a node in a replica set
+     * @param imageName    a MongoDB or snapshot image name
+     * @param hostPort     a fixed host port to publish a node on or null for a random one
      * @return a Docker container representing a MongoDB node
      */
-    @SuppressWarnings("java:S2095")
     private @NonNull GenericContainer getAndStartMongoDbContainer(
         final Network network,
-        final boolean addExtraHost
+        final boolean addExtraHost,
+        final String role,
+        final String imageName,
+        final Integer hostPort
+    ) {
+        final GenericContainer mongoDbContainer = createMongoDbContainer(
+            network,
+            addExtraHost,
+            role,
+            imageName,
+            hostPort
+        );
+        mongoDbContainer.start();
+        return mongoDbContainer;
+    }
+
+    /**
+     * Creates a Docker container representing a MongoDB node without starting it.
+     *
+     * @param network      a shared network
+     * @param addExtraHost whether to add host.docker.internal to a container
+     * @param role         a unique name of a node in a replica set
+     * @param imageName    a MongoDB or snapshot image name
+     * @param hostPort     a fixed host port to publish a node on or null for a random one
+     * @return a Docker container representing a MongoDB node
+     */
+    @SuppressWarnings("java:S2095")
+    @NonNull GenericContainer createMongoDbContainer(
+        final Network network,
+        final boolean addExtraHost,
+        final String role,
+        final String imageName,
+        final Integer hostPort
     ) {
-        final String[] commands = Stream.concat(
-            Stream.of("--bind_ip", "0.0.0.0", "--replSet", "docker-rs"),
+        final boolean hostNetwork = isHostNetworkEnabled();
+        final boolean directNetwork = isDirectNetworkEnabled();
+        final Integer port;
+        if (hostNetwork) {
+            port = Optional.ofNullable(hostPort).orElseGet(PortUtils::findFreePort);
+        } else if (directNetwork) {
+            // distinct ports keep nodes apart in a working node store ordered by port
+            port = MONGO_DB_INTERNAL_PORT + getNodeRoles().indexOf(role);
+        } else {
+            port = null;
+        }
+        final String[] commands = Stream.of(
+            Stream.of("--bind_ip", hostNetwork ? LOOPBACK_IP : "0.0.0.0", "--replSet", "docker-rs"),
+            Objects.isNull(port) ? Stream.<String>empty() : Stream.of("--port", String.valueOf(port)),
             properties.getCommandLineOptions().stream()
-        ).toArray(String[]::new);
-        final GenericContainer mongoDbContainer = new GenericContainer<>(
-            properties.getMongoDockerImageName()
-        ).withNetwork(getReplicaSetNumber() == 1 ? null : network)
-            .withExposedPorts(MONGO_DB_INTERNAL_PORT)
+        ).flatMap(Function.identity())
+            .toArray(String[]::new);
+        final GenericContainer<?> mongoDbContainer = new GenericContainer<>(imageName)
             .withCommand(commands)
-            .waitingFor(
-                Wait.forListeningPort()
-            ).withStartupTimeout(Duration.ofSeconds(60))
+            .withStartupTimeout(capByStartDeadline(getContainerStartupTimeout()))
             .withStartupAttempts(3);
+        if (hostNetwork) {
+            mongoDbContainer.withNetworkMode("host")
+                .waitingFor(Wait.forLogMessage("(?is).*waiting for connections.*", 1));
+            nodePorts.put(mongoDbContainer, port);
+        } else if (directNetwork) {
+            val alias = role + "-" + Base58.randomString(6).toLowerCase(Locale.ENGLISH);
+            mongoDbContainer.withNetwork(network)
+                .withNetworkAliases(alias)
+                .waitingFor(Wait.forLogMessage("(?is).*waiting for connections.*", 1));
+            nodePorts.put(mongoDbContainer, port);
+            nodeAliases.put(mongoDbContainer, alias);
+        } else {
+            mongoDbContainer.withNetwork(getReplicaSetNumber() == 1 ? null : network)
+                .withExposedPorts(MONGO_DB_INTERNAL_PORT)
+                .waitingFor(Wait.forListeningPort());
+        }
         if (addExtraHost) {
             mongoDbContainer.withExtraHost(DOCKER_HOST_INTERNAL, "host-gateway");
         }
-        mongoDbContainer.start();
+        if (getSnapshot()) {
+            snapshot.withDbPath(mongoDbContainer);
+        }
+        if (Objects.nonNull(hostPort) && !hostNetwork) {
+            mongoDbContainer.setPortBindings(
+                Collections.singletonList(hostPort + ":" + MONGO_DB_INTERNAL_PORT)
+            );
+        }
+        withReuseIfEnabled(mongoDbContainer, role, role + "-" + fingerprint);
         return mongoDbContainer;
     }
 
@@ -970,12 +3156,150 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     private @NonNull ToxiproxyContainer getAndStartToxiproxyContainer() {
         final ToxiproxyContainer toxiproxy = new ToxiproxyContainer(SHOPIFY_TOXIPROXY_IMAGE)
             .withNetwork(network)
-            .withStartupTimeout(Duration.ofSeconds(60))
+            .withStartupTimeout(capByStartDeadline(getContainerStartupTimeout()))
             .withStartupAttempts(3);
+        withReuseIfEnabled(toxiproxy, TOXIPROXY_CONTAINER_NAME, TOXIPROXY_CONTAINER_NAME + "-" + fingerprint);
         toxiproxy.start();
+        if (isReuseEnabled()) {
+            reuse.deleteToxiproxyProxies(toxiproxy);
+        }
         return toxiproxy;
     }
 
+    /**
+     * Names of MongoDB nodes of a replica set,
+     * working nodes are named in the order of a working node store.
+     *
+     * @return node roles
+     */
+    private List<String> getNodeRoles() {
+        final List<String> roles = IntStream.range(0, getReplicaSetNumber())
+            .mapToObj(i -> MONGO_NODE_NAME_PREFIX + i)
+            .collect(Collectors.toCollection(ArrayList::new));
+        if (getAddArbiter()) {
+            roles.add(MONGO_ARBITER_NODE_NAME);
+        }
+        return roles;
+    }
+
+    /**
+     * Starts MongoDB nodes from snapshot images on the same host ports they had been published on,
+     * so that a stored replica set config stays valid and neither rs.initiate nor rs.addArb is needed.
+     *
+     * @return true if a replica set started from a snapshot, false if it needs provisioning
+     */
+    private boolean startFromSnapshot() {
+        final List<String> roles = getNodeRoles();
+        final Optional<List<Integer>> snapshotHostPorts = snapshot.findHostPorts(roles);
+        if (!snapshotHostPorts.isPresent()) {
+            return false;
+        }
+        final List<Integer> hostPorts = snapshotHostPorts.get();
+        try {
+            decideOnDockerHost();
+            final boolean addExtraHost = shouldAddExtraHost();
+            for (int i = 0; i < roles.size(); i++) {
+                val role = roles.get(i);
+                final GenericContainer mongoContainer = getAndStartMongoDbContainer(
+                    network,
+                    addExtraHost,
+                    role,
+                    snapshot.getImageName(role),
+                    hostPorts.get(i)
+                );
+                if (MONGO_ARBITER_NODE_NAME.equals(role)) {
+                    registerArbiterNode(mongoContainer, null);
+                } else {
+                    registerWorkingNode(mongoContainer, null);
+                }
+            }
+            val masterNode = checkAndGetMasterNode(getFirstWorkingNode(), newDeadline(getElectionTimeout()));
+            if (getAddArbiter()) {
+                waitForArbiterNode(masterNode, newDeadline(getArbiterTimeout()));
+            }
+            log.debug("Started a replica set from a snapshot with fingerprint: {}", fingerprint);
+            return true;
+        } catch (Exception e) {
+            log.warn("Cannot start a replica set from a snapshot, provisioning it from scratch", e);
+            stopInternal(false);
+            return false;
+        }
+    }
+
+    /**
+     * Commits each MongoDB node into an image named by its role.
+     */
+    private void takeSnapshot() {
+        final List<Map.Entry<MongoSocketAddress, GenericContainer>> workingNodes =
+            new ArrayList<>(workingNodeStore.entrySet());
+        final Map<String, Pair<GenericContainer, MongoSocketAddress>> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < workingNodes.size(); i++) {
+            val entry = workingNodes.get(i);
+            nodes.put(MONGO_NODE_NAME_PREFIX + i, Pair.of(entry.getValue(), entry.getKey()));
+        }
+        Optional.ofNullable(supplementaryNodeStore.get(MONGO_ARBITER_NODE_NAME))
+            .ifPresent(arbiter -> nodes.put(MONGO_ARBITER_NODE_NAME, arbiter));
+        snapshot.take(
+            nodes,
+            mongoContainer -> checkMongoNodeExitCode(
+                execMongoDbCommandInContainer(mongoContainer, "db.adminCommand({fsync: 1})"),
+                "flushing data before a snapshot"
+            )
+        );
+    }
+
+    /**
+     * Makes a container reusable across JVMs if reuse is enabled.
+     *
+     * @param container a container to modify
+     * @param role      a unique name of a container in a replica set
+     * @param alias     a network alias
+     */
+    private void withReuseIfEnabled(
+        final GenericContainer<?> container,
+        final String role,
+        final String alias
+    ) {
+        if (isReuseEnabled()) {
+            reuse.withReuse(container, role, alias);
+        }
+    }
+
+    /**
+     * Finds running containers of a replica set with the same fingerprint left by a previous run.
+     *
+     * @return roles of reusable containers or an empty set if reuse is disabled
+     */
+    private Set<String> findReusableContainerRoles() {
+        if (!isReuseEnabled()) {
+            return Collections.emptySet();
+        }
+        return reuse.findContainerRoles();
+    }
+
+    /**
+     * Checks whether registered nodes form a healthy replica set left by a previous run.
+     *
+     * @param reusableRoles roles of containers that had been running before provisioning
+     * @return true if a replica set can be used as is, false if it needs initializing
+     * @throws MongoNodeInitializationException if a reused replica set is unhealthy
+     */
+    boolean reattachToReusedReplicaSet(final Set<String> reusableRoles) {
+        if (reusableRoles.isEmpty()) {
+            return false;
+        }
+        final Set<String> expectedHosts = Stream.concat(
+            workingNodeStore.keySet().stream(),
+            Optional.ofNullable(supplementaryNodeStore.get(MONGO_ARBITER_NODE_NAME))
+                .map(Pair::getRight)
+                .map(Stream::of)
+                .orElseGet(Stream::empty)
+        ).map(a -> a.getIp() + ":" + a.getReplSetPort())
+            .collect(Collectors.toSet());
+        reuse.verifyHealthy(expectedHosts, fetchMongoRsStatus());
+        return true;
+    }
+
     /**
      * Stops a Mongo node (a Docker container).
      * Does not allow to start or connect a node back.
@@ -1017,9 +3341,13 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         val isWorkingNode = pair.getLeft();
         val genericContainer = pair.getRight();
 
-        DockerClientFactory.instance().client()
-            .killContainerCmd(genericContainer.getContainerId())
-            .exec();
+        if (genericContainer instanceof MongoProcessNode) {
+            ((MongoProcessNode) genericContainer).kill();
+        } else {
+            DockerClientFactory.instance().client()
+                .killContainerCmd(genericContainer.getContainerId())
+                .exec();
+        }
 
         removeNodeFromInternalStore(isWorkingNode, mongoSocketAddress);
         if (getAddToxiproxy()) {
@@ -1037,6 +3365,16 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final MongoNode mongoNode
     ) {
         validateFaultToleranceTestSupportAvailability();
+        if (isHostNetworkEnabled()) {
+            throw new IllegalStateException(
+                "Nodes on the host network cannot be disconnected. Please, consider turning hostNetwork off"
+            );
+        }
+        if (isDenseEnabled() && !getAddToxiproxy()) {
+            throw new IllegalStateException(
+                "Nodes sharing a container can be disconnected only via Toxiproxy. Please, consider addToxiproxy"
+            );
+        }
 
         val mongoSocketAddress = socketAddressConverter.convert(mongoNode);
         val pair = extractWorkingOrArbiterGenericContainer(mongoSocketAddress);
@@ -1137,11 +3475,11 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         reconfigureReplSetRemoveDownAndUnknownNodes();
 
         waitForMaster();
-        val masterNode = findMasterElected(workingNodeStore.values().iterator().next());
+        val masterNode = getMasterNode();
 
         val newMongoSocketAddress = getMongoSocketAddress(
             mongoNode.getIp(),
-            disconnectedNode.getMappedPort(MONGO_DB_INTERNAL_PORT)
+            getNodePort(disconnectedNode)
         );
 
         addNodeToReplSetConfig(isWorkingNode, masterNode, newMongoSocketAddress);
@@ -1252,7 +3590,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             restartGenericContainer(disconnectedNode);
 
             waitForMaster();
-            val masterNode = findMasterElected(workingNodeStore.values().iterator().next());
+            val masterNode = getMasterNode();
 
             if (remove) {
                 if (force) {
@@ -1264,7 +3602,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
             val newMongoSocketAddress = getMongoSocketAddress(
                 mongoNode.getIp(),
-                disconnectedNode.getMappedPort(MONGO_DB_INTERNAL_PORT)
+                getNodePort(disconnectedNode)
             );
 
             addNodeToReplSetConfig(isWorkingNode, masterNode, newMongoSocketAddress);
@@ -1278,7 +3616,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final GenericContainer masterNode,
         final MongoSocketAddress mongoSocketAddress
     ) {
-        if (getMongoRsStatus().getVersion().getMajor() >= 5 && getAddArbiter()) {
+        if (getServerVersion().getMajor() >= 5 && getAddArbiter()) {
             reconfigureReplSetForPSA(mongoSocketAddress, isWorkingNode);
         } else {
             if (Boolean.TRUE.equals(isWorkingNode)) {
@@ -1290,15 +3628,27 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     }
 
     private void reconfigureReplSetForPSA(final MongoSocketAddress mongoSocketAddress, Boolean isWorkingNode) {
-        val replicaSetReConfig = getConfigForPSA(mongoSocketAddress, isWorkingNode);
-        log.debug("Reconfiguring for PSA a node : {}", replicaSetReConfig);
-        val execResult = execMongoDbCommandInContainer(
-            workingNodeStore.values().iterator().next(),
-            replicaSetReConfig
-        );
-        log.debug(execResult.getStdout());
+        runOnMasterNode(masterNode -> {
+                val adminClient = getAdminClient(masterNode);
+                if (adminClient.isPresent()) {
+                    runAdminCommand(
+                        () -> adminClient.get().addMemberForPSA(
+                            mongoSocketAddress.getIp() + ":" + mongoSocketAddress.getMappedPort(),
+                            !isWorkingNode,
+                            RECONFIG_MAX_TIME_MS
+                        ),
+                        RECONFIG_RS_MSG
+                    );
+                    return;
+                }
+                val replicaSetReConfig = getConfigForPSA(mongoSocketAddress, isWorkingNode);
+                log.debug("Reconfiguring for PSA a node : {}", replicaSetReConfig);
+                val execResult = execMongoDbCommandInContainer(masterNode, replicaSetReConfig);
+                log.debug(execResult.getStdout());
 
-        checkMongoNodeExitCode(execResult, RECONFIG_RS_MSG);
+                checkMongoNodeExitCode(execResult, RECONFIG_RS_MSG);
+            }
+        );
     }
 
     private String getConfigForPSA(final MongoSocketAddress mongoSocketAddress, Boolean isWorkingNode) {
@@ -1318,16 +3668,30 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
      * Removes all nodes in Down and Unknown state.
      */
     public void reconfigureReplSetRemoveDownAndUnknownNodes() {
-        val members = getMongoRsStatus().getMembers();
-        val replicaSetReConfig = getReplicaSetReConfigRemoveDownAndUnknownNodes(members);
-        log.debug("Reconfiguring a node replica set as per: {}", replicaSetReConfig);
-        val execResult = execMongoDbCommandInContainer(
-            workingNodeStore.values().iterator().next(),
-            replicaSetReConfig
+        val members = fetchMongoRsStatus().getMembers();
+        routeToAnyNode(node -> {
+                val adminClient = getAdminClient(node);
+                if (adminClient.isPresent()) {
+                    val hostsToRemove = members.stream()
+                        .filter(m -> m.getState() == ReplicaSetMemberState.DOWN || m.getState() == ReplicaSetMemberState.UNKNOWN)
+                        .map(m -> m.getIp() + ":" + m.getPort())
+                        .collect(Collectors.toSet());
+                    runAdminCommand(
+                        () -> adminClient.get().removeMembers(hostsToRemove::contains, true, RECONFIG_MAX_TIME_MS),
+                        RECONFIG_RS_MSG
+                    );
+                    return null;
+                }
+                val replicaSetReConfig = getReplicaSetReConfigRemoveDownAndUnknownNodes(members);
+                log.debug("Reconfiguring a node replica set as per: {}", replicaSetReConfig);
+                val execResult = execMongoDbCommandInContainer(node, replicaSetReConfig);
+                log.debug(execResult.getStdout());
+
+                checkMongoNodeExitCode(execResult, RECONFIG_RS_MSG);
+                return null;
+            },
+            RECONFIG_RS_MSG
         );
-        log.debug(execResult.getStdout());
-
-        checkMongoNodeExitCode(execResult, RECONFIG_RS_MSG);
     }
 
     /**
@@ -1342,20 +3706,30 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         } catch (TimeoutException e) {
             throw new MongoNodeInitializationException("Timeout exceeded for reconfigureReplSetToDefaults", e);
         }
+        refreshStatusSnapshot();
     }
 
     private void reconfigureReplSetToDefaultsInternal() {
 
         verifyWorkingNodeStoreIsNotEmpty();
-        val replicaSetReConfig = getReplicaSetReConfigUnsetSlaveDelay();
-        log.debug("Reconfiguring a replica set as per: {}", replicaSetReConfig);
-        val execResult = execMongoDbCommandInContainer(
-            findMasterElected(workingNodeStore.values().iterator().next()),
-            replicaSetReConfig
-        );
-        log.debug(execResult.getStdout());
+        runOnMasterNode(masterNode -> {
+                val adminClient = getAdminClient(masterNode);
+                if (adminClient.isPresent()) {
+                    val workingNodeNumber = getReplicaSetNumber() + (getAddArbiter() ? 1 : 0) - getSlaveDelayNumber();
+                    runAdminCommand(
+                        () -> adminClient.get().resetMembers(workingNodeNumber, RECONFIG_MAX_TIME_MS),
+                        RECONFIG_RS_MSG
+                    );
+                    return;
+                }
+                val replicaSetReConfig = getReplicaSetReConfigUnsetSlaveDelay();
+                log.debug("Reconfiguring a replica set as per: {}", replicaSetReConfig);
+                val execResult = execMongoDbCommandInContainer(masterNode, replicaSetReConfig);
+                log.debug(execResult.getStdout());
 
-        checkMongoNodeExitCodeAndStatus(execResult, RECONFIG_RS_MSG);
+                checkMongoNodeExitCodeAndStatus(execResult, RECONFIG_RS_MSG);
+            }
+        );
     }
 
     @Generated
@@ -1371,17 +3745,29 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     @Generated
     private void operateOnConnections(List<MongoNode> members, int drop) {
         verifyWorkingNodeStoreIsNotEmpty();
-        val replicaSetReConfig = getDropConnectionsCommand(members, drop);
-        log.debug("Dropping connections: {}", replicaSetReConfig);
-        val execResult = execMongoDbCommandInContainer(
-            workingNodeStore.values().iterator().next(),
-            replicaSetReConfig
-        );
-        log.debug(execResult.getStdout());
-
-        checkMongoNodeExitCodeAndStatus(
-            execResult,
-            "Dropping connections"
+        routeToAnyNode(node -> {
+                val adminClient = getAdminClient(node);
+                if (adminClient.isPresent()) {
+                    runAdminCommand(
+                        () -> adminClient.get().dropConnections(
+                            drop,
+                            members.stream().map(m -> m.getIp() + ":" + m.getPort()).collect(Collectors.toList())
+                        ),
+                        "Dropping connections"
+                    );
+                    return null;
+                }
+                val replicaSetReConfig = getDropConnectionsCommand(members, drop);
+                log.debug("Dropping connections: {}", replicaSetReConfig);
+                val execResult = execMongoDbCommandInContainer(node, replicaSetReConfig);
+                log.debug(execResult.getStdout());
+
+                checkMongoNodeExitCodeAndStatus(
+                    execResult,
+                    "Dropping connections"
+                );
+                return null;
+            }, "Dropping connections"
         );
     }
 
@@ -1412,7 +3798,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     private String getReplicaSetReConfigUnsetSlaveDelay() {
         val workingNodeNumber = getReplicaSetNumber() + (getAddArbiter() ? 1 : 0) - getSlaveDelayNumber();
-        return IntStream.rangeClosed(workingNodeNumber + 1, getMongoRsStatus().getMembers().size())
+        return IntStream.rangeClosed(workingNodeNumber + 1, fetchMongoRsStatus().getMembers().size())
             .mapToObj(
                 i -> String.format(
                     "cfg.members[%d].slaveDelay=0;cfg.members[%d].priority=1;cfg.members[%d].hidden=false",
@@ -1442,7 +3828,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     }
 
     private String getReplicaSetReConfigRemoveNode(final MongoSocketAddress mongoSocketAddress) {
-        final List<MongoNode> members = getMongoRsStatus().getMembers();
+        final List<MongoNode> members = fetchMongoRsStatus().getMembers();
         return IntStream.range(0, members.size())
             .filter(i -> {
                 final MongoNode mongoNode = members.get(i);
@@ -1461,8 +3847,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
      * https://jira.mongodb.org/browse/SERVER-58964?focusedCommentId=3977410&page=com.atlassian.jira.plugin.system.issuetabpanels%3Acomment-tabpanel
      */
     private String getDefaultConcernsCommand() {
-        val mongoRsStatus = getMongoRsStatus();
-        return mongoRsStatus.getVersion().getMajor() >= 5 && getAddArbiter()
+        return getServerVersion().getMajor() >= 5 && getAddArbiter()
             ? "db.adminCommand({\"setDefaultRWConcern\" : 1, \"defaultWriteConcern\" : { \"w\" : 1 }});"
             : "";
     }
@@ -1481,6 +3866,18 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final GenericContainer masterNode,
         final MongoSocketAddress newMongoSocketAddress
     ) {
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            runAdminCommand(
+                () -> adminClient.get().addMember(
+                    newMongoSocketAddress.getIp() + ":" + newMongoSocketAddress.getMappedPort(),
+                    false,
+                    RECONFIG_MAX_TIME_MS
+                ),
+                "Adding a node"
+            );
+            return;
+        }
         val execResultAddNode = execMongoDbCommandInContainer(
             masterNode,
             String.format(
@@ -1500,6 +3897,18 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final GenericContainer masterNode,
         final MongoSocketAddress newMongoSocketAddress
     ) {
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            runAdminCommand(
+                () -> adminClient.get().addMember(
+                    newMongoSocketAddress.getIp() + ":" + newMongoSocketAddress.getMappedPort(),
+                    true,
+                    RECONFIG_MAX_TIME_MS
+                ),
+                "Adding a node"
+            );
+            return;
+        }
         val execResultAddNode = execMongoDbCommandInContainer(
             masterNode,
             String.format(
@@ -1525,26 +3934,33 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         validateFaultToleranceTestSupportAvailability();
         verifyWorkingNodeStoreIsNotEmpty();
 
-        removeNodeFromReplSetConfig(
-            socketAddressConverter.convert(mongoNodeToRemove),
-            findMasterElected(workingNodeStore.values().iterator().next())
-        );
+        val mongoSocketAddressToRemove = socketAddressConverter.convert(mongoNodeToRemove);
+        runOnMasterNode(masterNode -> removeNodeFromReplSetConfig(mongoSocketAddressToRemove, masterNode));
+        refreshStatusSnapshot();
     }
 
     public void removeNodeFromReplSetConfigWithForce(final MongoNode mongoNodeToRemove) {
         validateFaultToleranceTestSupportAvailability();
         verifyWorkingNodeStoreIsNotEmpty();
 
-        removeNodeFromReplSetConfigWithForce(
-            socketAddressConverter.convert(mongoNodeToRemove),
-            findMasterElected(workingNodeStore.values().iterator().next())
-        );
+        val mongoSocketAddressToRemove = socketAddressConverter.convert(mongoNodeToRemove);
+        runOnMasterNode(masterNode -> removeNodeFromReplSetConfigWithForce(mongoSocketAddressToRemove, masterNode));
+        refreshStatusSnapshot();
     }
 
     private void removeNodeFromReplSetConfigWithForce(
         final MongoSocketAddress mongoSocketAddressToRemove,
         final GenericContainer masterNode
     ) {
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            val hostToRemove = mongoSocketAddressToRemove.getIp() + ":" + mongoSocketAddressToRemove.getMappedPort();
+            runAdminCommand(
+                () -> adminClient.get().removeMembers(hostToRemove::equals, true, RECONFIG_MAX_TIME_MS),
+                RECONFIG_RS_MSG
+            );
+            return;
+        }
         val replicaSetReConfig = getReplicaSetReConfigRemoveNode(mongoSocketAddressToRemove);
         log.debug("Reconfiguring a node replica set as per: {}", replicaSetReConfig);
         val execResult = execMongoDbCommandInContainer(
@@ -1560,6 +3976,15 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         final MongoSocketAddress mongoSocketAddressToRemove,
         final GenericContainer masterNode
     ) {
+        val adminClient = getAdminClient(masterNode);
+        if (adminClient.isPresent()) {
+            val hostToRemove = mongoSocketAddressToRemove.getIp() + ":" + mongoSocketAddressToRemove.getMappedPort();
+            runAdminCommand(
+                () -> adminClient.get().removeMembers(hostToRemove::equals, false, RECONFIG_MAX_TIME_MS),
+                "Removing a node"
+            );
+            return;
+        }
         val execResultRemoveNode = execMongoDbCommandInContainer(
             masterNode,
             String.format(
@@ -1603,6 +4028,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     ) {
         validateFaultToleranceTestSupportAvailability();
         verifyWorkingNodeStoreIsNotEmpty();
+        masterNodeHint = null;
 
         val prevMasterName = String.format(
             "%s:%s",
@@ -1614,17 +4040,36 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             WAITING_MSG,
             prevMasterName
         );
-        val execResultMasterReelection = waitForCondition(
-            workingNodeStore.values().iterator().next(),
+        val monitor = getTopologyMonitor();
+        if (monitor.isPresent()) {
+            checkTopologyCondition(
+                monitor.get().awaitMasterOtherThan(
+                    previousMasterMongoNode.getIp(),
+                    previousMasterMongoNode.getPort(),
+                    newDeadline(getReelectionTimeout()).remaining()
+                ),
+                monitor.get(),
+                reelectionMessage
+            );
+            return;
+        }
+        awaitOnAnyNode(
+            c -> {
+                val status = c.getMongoRsStatus();
+                return countMembers(status, s -> s == ReplicaSetMemberState.PRIMARY) == 1 &&
+                    status.getMembers().stream().noneMatch(
+                        m -> m.getState() == ReplicaSetMemberState.PRIMARY &&
+                            prevMasterName.equals(m.getIp() + ":" + m.getPort())
+                    );
+            },
             String.format(
                 buildWaitStopCondition("rs.status().members.filter(o => o.state === 1).length === 1 && " +
                     "rs.status().members.find(o => o.state === 1 && o.name === '%s') === undefined"),
                 prevMasterName
             ),
-            getAwaitNodeInitAttempts() * 2,
+            newDeadline(getReelectionTimeout()),
             reelectionMessage
         );
-        checkMongoNodeExitCode(execResultMasterReelection, reelectionMessage);
     }
 
     /**
@@ -1634,13 +4079,21 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         verifyWorkingNodeStoreIsNotEmpty();
 
         val message = WAITING_MSG + " a master node to be present in a cluster";
-        val execResult = waitForCondition(
-            workingNodeStore.values().iterator().next(),
+        val monitor = getTopologyMonitor();
+        if (monitor.isPresent()) {
+            checkTopologyCondition(
+                monitor.get().awaitMaster(newDeadline(getElectionTimeout()).remaining()),
+                monitor.get(),
+                message
+            );
+            return;
+        }
+        awaitOnAnyNode(
+            c -> countMembers(c.getMongoRsStatus(), s -> s == ReplicaSetMemberState.PRIMARY) == 1,
             buildWaitStopCondition("rs.status().members.filter(o => o.state === 1).length === 1"),
-            getAwaitNodeInitAttempts(),
+            newDeadline(getElectionTimeout()),
             message
         );
-        checkMongoNodeExitCode(execResult, message);
     }
 
     /**
@@ -1649,17 +4102,28 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
     public void waitForAllMongoNodesUp() {
         validateFaultToleranceTestSupportAvailability();
         verifyWorkingNodeStoreIsNotEmpty();
+        awaitAllMembersUp();
+    }
 
+    private void awaitAllMembersUp() {
         val waitingMessage = WAITING_MSG + " all nodes are up and running";
-        val execResultWaitForNodesUp = waitForCondition(
-            workingNodeStore.values().iterator().next(),
+        val monitor = getTopologyMonitor();
+        if (monitor.isPresent()) {
+            checkTopologyCondition(
+                monitor.get().awaitAllNodesUp(newDeadline(getElectionTimeout()).remaining()),
+                monitor.get(),
+                waitingMessage
+            );
+            return;
+        }
+        awaitOnAnyNode(
+            c -> countMembers(c.getMongoRsStatus(), NOT_UP_MEMBER_STATES::contains) == 0,
             buildWaitStopCondition("rs.status().members.filter(" +
                 "o => o.state === 0 || o.state === 3 || o.state === 5 || o.state === 6 || o.state === 8 || o.state === 9" +
                 ").length === 0"),
-            getAwaitNodeInitAttempts(),
+            newDeadline(getElectionTimeout()),
             waitingMessage
         );
-        checkMongoNodeExitCode(execResultWaitForNodesUp, waitingMessage);
     }
 
     /**
@@ -1672,19 +4136,52 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         verifyWorkingNodeStoreIsNotEmpty();
 
         val waitingMessage = String.format("%s %d node(s) is(are) down", WAITING_MSG, nodeNumber);
-        val execResultWaitForNodesUp = waitForCondition(
-            workingNodeStore.values().iterator().next(),
+        val monitor = getTopologyMonitor();
+        if (monitor.isPresent()) {
+            checkTopologyCondition(
+                monitor.get().awaitNodesDown(nodeNumber, newDeadline(getElectionTimeout()).remaining()),
+                monitor.get(),
+                waitingMessage
+            );
+            return;
+        }
+        awaitOnAnyNode(
+            c -> countMembers(c.getMongoRsStatus(), s -> s == ReplicaSetMemberState.DOWN) == nodeNumber,
             String.format(
                 buildWaitStopCondition("rs.status().members.filter(o => o.state === 8).length === %d"),
                 nodeNumber
             ),
-            getAwaitNodeInitAttempts(),
+            newDeadline(getElectionTimeout()),
             waitingMessage
         );
-        checkMongoNodeExitCode(execResultWaitForNodesUp, waitingMessage);
+    }
+
+    /**
+     * Waits for startAsync() to finish unless it is a provisioning thread itself holding the monitor.
+     *
+     * @param pending a future returned by startAsync()
+     */
+    private void awaitStart(final CompletableFuture<MongoDbReplicaSet> pending) {
+        if (Thread.holdsLock(this)) {
+            return;
+        }
+        try {
+            pending.join();
+        } catch (CancellationException e) {
+            throw new MongoNodeInitializationException("Provisioning was cancelled by stop()", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new MongoNodeInitializationException("Cannot provision a replica set", e.getCause());
+        }
     }
 
     private void verifyWorkingNodeStoreIsNotEmpty() {
+        val pending = pendingStart;
+        if (Objects.nonNull(pending)) {
+            awaitStart(pending);
+        }
         if (workingNodeStore.isEmpty()) {
             throw new IllegalStateException(
                 "There is no any working Mongo DB node. Please, consider starting one."
@@ -1772,6 +4269,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
     /**
      * Loads rollback files generated on a former master to a DEAD_LETTER_DB_NAME.
+     * Waits for a rollback directory up to electionTimeout.
      *
      * @param mongoNode          a former master node.
      * @param collectionFullName db.collectionName, for example test.foo.
@@ -1789,18 +4287,18 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
         val path = "/data/db/rollback/" + collectionFullName;
         val mongoSocketAddress = socketAddressConverter.convert(mongoNode);
         final GenericContainer genericContainer = extractGenericContainer(mongoSocketAddress, workingNodeStore);
+        val deadline = newDeadline(getElectionTimeout());
         val waitForRollbackFile = genericContainer.execInContainer(
             "sh", "-c",
             String.format(
-                "COUNTER=1; " +
-                    "while [ $COUNTER != %d ] && [ ! -d %s ]; " +
-                    "do sleep 1; " +
-                    "COUNTER=$((COUNTER+1)); " +
-                    "echo waiting for a rollback directory: $COUNTER up to %d; " +
-                    "done",
-                getAwaitNodeInitAttempts(),
+                "END=$(($(date +%%s) + %d)); " +
+                    "while [ ! -d %s ] && [ $(date +%%s) -lt $END ]; " +
+                    "do sleep 0.1; " +
+                    "done; " +
+                    "[ -d %s ]",
+                TimeUnit.MILLISECONDS.toSeconds(deadline.remaining().toMillis() + 999),
                 path,
-                getAwaitNodeInitAttempts()
+                path
             )
         );
         log.debug(
@@ -1808,10 +4306,7 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
             waitForRollbackFile.getStdout(),
             waitForRollbackFile.getStderr()
         );
-        final boolean waitFiled = waitForRollbackFile.getStdout().contains(
-            String.format("%d up to", getAwaitNodeInitAttempts() - 1)
-        );
-        if (waitForRollbackFile.getExitCode() != CONTAINER_EXIT_CODE_OK || waitFiled) {
+        if (waitForRollbackFile.getExitCode() != CONTAINER_EXIT_CODE_OK) {
             log.debug("Cannot find any rollback file");
             return false;
         } else {
@@ -1833,4 +4328,33 @@ public class MongoDbReplicaSet implements Startable, AutoCloseable {
 
         return true;
     }
+
+    public static class MongoDbReplicaSetBuilder {
+        /**
+         * Gets a fingerprint of a replica set this builder would build without building one.
+         * Only the properties ApplicationPropertiesToFingerprintConverter hashes matter,
+         * along with a property file they can come from.
+         *
+         * @return a fingerprint of a replica set
+         */
+        String getFingerprint() {
+            return new ApplicationPropertiesToFingerprintConverter().convert(
+                new UserInputToApplicationPropertiesConverter().convert(
+                    UserInputProperties.builder()
+                        .propertyFileName(propertyFileName)
+                        .mongoDockerImageName(mongoDockerImageName)
+                        .replicaSetNumber(replicaSetNumber)
+                        .addArbiter(addArbiter)
+                        .initiateWithArbiter(initiateWithArbiter)
+                        .deterministicElection(deterministicElection)
+                        .addToxiproxy(addToxiproxy)
+                        .slaveDelayTimeout(slaveDelayTimeout)
+                        .slaveDelayNumber(slaveDelayNumber)
+                        .useHostDockerInternal(useHostDockerInternal)
+                        .commandLineOptions(commandLineOptions)
+                        .build()
+                )
+            );
+        }
+    }
 }
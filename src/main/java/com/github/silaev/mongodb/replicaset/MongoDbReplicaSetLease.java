@@ -0,0 +1,41 @@
+package com.github.silaev.mongodb.replicaset;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A replica set leased from {@link MongoDbReplicaSetPool} along with a database
+ * that is unique to this lease and gets dropped on close.
+ *
+ * @author Konstantin Silaev
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class MongoDbReplicaSetLease implements AutoCloseable {
+    private final MongoDbReplicaSetPool pool;
+    @Getter
+    private final MongoDbReplicaSet replicaSet;
+    @Getter
+    private final String databaseName;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public String getReplicaSetUrl() {
+        return replicaSet.getReplicaSetUrl(MongoDbReplicaSet.READ_PREFERENCE_PRIMARY, databaseName);
+    }
+
+    public String getReplicaSetUrl(final String readPreference) {
+        return replicaSet.getReplicaSetUrl(readPreference, databaseName);
+    }
+
+    /**
+     * Returns a replica set to a pool, can be called more than once.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pool.release(this);
+        }
+    }
+}
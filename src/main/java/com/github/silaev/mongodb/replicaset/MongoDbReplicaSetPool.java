@@ -0,0 +1,276 @@
+package com.github.silaev.mongodb.replicaset;
+
+import com.github.silaev.mongodb.replicaset.exception.IncorrectUserInputException;
+import com.github.silaev.mongodb.replicaset.util.ExecutorUtils;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps started replica sets per topology (see {@link MongoDbReplicaSet#getFingerprint()})
+ * and leases them out with a unique database name each.
+ * <p>Idle replica sets are started in the background so that a lease normally
+ * does not wait for provisioning. A returned lease has its database dropped asynchronously
+ * before a replica set becomes available again.
+ * <p>Meant to be a JVM-wide singleton, for instance, a static field in a base test class.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class MongoDbReplicaSetPool implements AutoCloseable {
+    public static final int SIZE_DEFAULT = 1;
+    private static final String DATABASE_NAME_PREFIX = "test_";
+
+    private final int size;
+    private final Executor warmUpExecutor;
+    private final Executor cleanupExecutor;
+    private final List<ExecutorService> ownExecutors;
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final Set<MongoDbReplicaSet> leased = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * @param size the number of idle replica sets to keep per topology
+     */
+    @Builder
+    @SuppressWarnings("unused")
+    private MongoDbReplicaSetPool(final Integer size) {
+        this(
+            Optional.ofNullable(size).orElse(SIZE_DEFAULT),
+            ExecutorUtils.newFixedDaemonThreadPool(
+                "mongo-replica-set-pool-warm-up",
+                Optional.ofNullable(size).orElse(SIZE_DEFAULT)
+            ),
+            ExecutorUtils.newFixedDaemonThreadPool("mongo-replica-set-pool-cleanup", 1)
+        );
+    }
+
+    private MongoDbReplicaSetPool(
+        final int size,
+        final ExecutorService warmUpExecutor,
+        final ExecutorService cleanupExecutor
+    ) {
+        this(size, (Executor) warmUpExecutor, cleanupExecutor);
+        this.ownExecutors.add(warmUpExecutor);
+        this.ownExecutors.add(cleanupExecutor);
+    }
+
+    /**
+     * Only for unit tests.
+     */
+    MongoDbReplicaSetPool(
+        final int size,
+        final Executor warmUpExecutor,
+        final Executor cleanupExecutor
+    ) {
+        if (size < 1) {
+            throw new IncorrectUserInputException(
+                String.format("Please, set a pool size greater than 0, actual: %d", size)
+            );
+        }
+        this.size = size;
+        this.warmUpExecutor = Objects.requireNonNull(warmUpExecutor, "warmUpExecutor is not supposed to be null");
+        this.cleanupExecutor = Objects.requireNonNull(cleanupExecutor, "cleanupExecutor is not supposed to be null");
+        this.ownExecutors = new ArrayList<>();
+    }
+
+    /**
+     * Starts replica sets of a topology in the background without leasing any.
+     *
+     * @param builder a replica set builder defining a topology
+     */
+    public void warmUp(final MongoDbReplicaSet.MongoDbReplicaSetBuilder builder) {
+        Objects.requireNonNull(builder, "builder is not supposed to be null");
+        warmUp(builder.getFingerprint(), builder::build);
+    }
+
+    void warmUp(final String fingerprint, final Supplier<MongoDbReplicaSet> factory) {
+        refill(getSlot(fingerprint, factory));
+    }
+
+    /**
+     * Leases a started replica set of a topology.
+     * If there is no idle one, a replica set is built and started in the caller thread.
+     *
+     * @param builder a replica set builder defining a topology
+     * @return a lease to close after use
+     */
+    public MongoDbReplicaSetLease lease(final MongoDbReplicaSet.MongoDbReplicaSetBuilder builder) {
+        Objects.requireNonNull(builder, "builder is not supposed to be null");
+        return lease(builder.getFingerprint(), builder::build);
+    }
+
+    MongoDbReplicaSetLease lease(final String fingerprint, final Supplier<MongoDbReplicaSet> factory) {
+        verifyNotClosed();
+        val slot = getSlot(fingerprint, factory);
+        val replicaSet = Optional.ofNullable(slot.idle.poll())
+            .orElseGet(() -> {
+                    log.debug("No idle replica set with fingerprint {}, starting one", slot.fingerprint);
+                    val newReplicaSet = factory.get();
+                    newReplicaSet.start();
+                    return newReplicaSet;
+                }
+            );
+        leased.add(replicaSet);
+        refill(slot);
+        return new MongoDbReplicaSetLease(
+            this,
+            replicaSet,
+            DATABASE_NAME_PREFIX + UUID.randomUUID().toString().replace("-", "")
+        );
+    }
+
+    /**
+     * Drops a leased database asynchronously and makes a replica set available again.
+     * A replica set failing to drop a database is stopped, so is one returned after a pool is closed.
+     *
+     * @param lease a lease to return
+     */
+    void release(final MongoDbReplicaSetLease lease) {
+        val replicaSet = lease.getReplicaSet();
+        if (closed) {
+            stopLeasedAfterClose(replicaSet);
+            return;
+        }
+        val slot = slots.get(replicaSet.getFingerprint());
+        try {
+            cleanupExecutor.execute(() -> {
+                    try {
+                        replicaSet.dropDatabase(lease.getDatabaseName());
+                    } catch (Exception e) {
+                        log.warn("Cannot drop a database {}, stopping a replica set", lease.getDatabaseName(), e);
+                        stopQuietly(replicaSet);
+                        leased.remove(replicaSet);
+                        refill(slot);
+                        return;
+                    }
+                    leased.remove(replicaSet);
+                    if (closed || slot.idle.size() >= size) {
+                        stopQuietly(replicaSet);
+                    } else {
+                        slot.idle.offer(replicaSet);
+                    }
+                }
+            );
+        } catch (RejectedExecutionException e) {
+            stopLeasedAfterClose(replicaSet);
+        }
+    }
+
+    /**
+     * Stops a replica set returned after close() unless close() has already stopped it.
+     *
+     * @param replicaSet a leased replica set
+     */
+    private void stopLeasedAfterClose(final MongoDbReplicaSet replicaSet) {
+        if (leased.remove(replicaSet)) {
+            stopQuietly(replicaSet);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Stops idle and leased replica sets.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ownExecutors.forEach(ExecutorService::shutdownNow);
+        slots.values().forEach(slot -> {
+                MongoDbReplicaSet replicaSet;
+                while ((replicaSet = slot.idle.poll()) != null) {
+                    stopQuietly(replicaSet);
+                }
+            }
+        );
+        leased.forEach(this::stopQuietly);
+        leased.clear();
+    }
+
+    private Slot getSlot(
+        final String fingerprint,
+        final Supplier<MongoDbReplicaSet> factory
+    ) {
+        return slots.computeIfAbsent(
+            fingerprint,
+            key -> new Slot(key, factory)
+        );
+    }
+
+    /**
+     * Starts as many replica sets in the background as needed to keep a slot full.
+     *
+     * @param slot a topology slot
+     */
+    private void refill(final Slot slot) {
+        while (!closed && slot.idle.size() + slot.warmingUp.get() < size) {
+            slot.warmingUp.incrementAndGet();
+            try {
+                warmUpExecutor.execute(() -> warmUpOne(slot));
+            } catch (RejectedExecutionException e) {
+                slot.warmingUp.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void warmUpOne(final Slot slot) {
+        try {
+            val replicaSet = slot.factory.get();
+            replicaSet.start();
+            if (closed) {
+                stopQuietly(replicaSet);
+            } else {
+                slot.idle.offer(replicaSet);
+            }
+        } catch (Exception e) {
+            log.warn("Cannot warm up a replica set with fingerprint {}", slot.fingerprint, e);
+        } finally {
+            slot.warmingUp.decrementAndGet();
+        }
+    }
+
+    private void verifyNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("MongoDbReplicaSetPool is closed");
+        }
+    }
+
+    private void stopQuietly(final MongoDbReplicaSet replicaSet) {
+        try {
+            replicaSet.stop();
+        } catch (Exception e) {
+            log.warn("Cannot stop a replica set with fingerprint {}", replicaSet.getFingerprint(), e);
+        }
+    }
+
+    private static final class Slot {
+        private final String fingerprint;
+        private final Supplier<MongoDbReplicaSet> factory;
+        private final ConcurrentLinkedQueue<MongoDbReplicaSet> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger warmingUp = new AtomicInteger();
+
+        private Slot(final String fingerprint, final Supplier<MongoDbReplicaSet> factory) {
+            this.fingerprint = fingerprint;
+            this.factory = factory;
+        }
+    }
+}
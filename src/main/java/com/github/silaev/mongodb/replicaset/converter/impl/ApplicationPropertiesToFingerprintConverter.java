@@ -0,0 +1,47 @@
+package com.github.silaev.mongodb.replicaset.converter.impl;
+
+import com.github.silaev.mongodb.replicaset.converter.Converter;
+import com.github.silaev.mongodb.replicaset.model.ApplicationProperties;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Converts ApplicationProperties to a stable hash of the properties defining a replica set topology
+ * so that the same topology gets the same fingerprint across JVMs.
+ *
+ * @author Konstantin Silaev
+ */
+public class ApplicationPropertiesToFingerprintConverter implements Converter<ApplicationProperties, String> {
+    private static final int FINGERPRINT_LENGTH = 16;
+
+    @SneakyThrows(NoSuchAlgorithmException.class)
+    @Override
+    public String convert(final ApplicationProperties source) {
+        Objects.requireNonNull(source, "properties are not supposed to be null");
+        val canonicalForm = String.join(
+            "\n",
+            "mongoDockerImageName=" + source.getMongoDockerImageName(),
+            "replicaSetNumber=" + source.getReplicaSetNumber(),
+            "addArbiter=" + source.isAddArbiter(),
+            "initiateWithArbiter=" + source.isInitiateWithArbiter(),
+            "deterministicElection=" + source.isDeterministicElection(),
+            "addToxiproxy=" + source.isAddToxiproxy(),
+            "slaveDelayTimeout=" + source.getSlaveDelayTimeout(),
+            "slaveDelayNumber=" + source.getSlaveDelayNumber(),
+            "useHostDockerInternal=" + source.isUseHostDockerInternal(),
+            "commandLineOptions=" + String.join(" ", source.getCommandLineOptions())
+        );
+        val digest = MessageDigest.getInstance("SHA-256")
+            .digest(canonicalForm.getBytes(StandardCharsets.UTF_8));
+        val sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.substring(0, FINGERPRINT_LENGTH);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.silaev.mongodb.replicaset.converter.impl;
+
+import com.github.silaev.mongodb.replicaset.converter.Converter;
+import com.github.silaev.mongodb.replicaset.core.DriverAdminClient;
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import com.github.silaev.mongodb.replicaset.util.StringUtils;
+import lombok.AllArgsConstructor;
+import lombok.val;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Converts a replSetGetStatus reply with a version field to an instance of MongoRsStatus.
+ *
+ * @author Konstantin Silaev
+ */
+@AllArgsConstructor
+public class DocumentToMongoRsStatusConverter implements Converter<Document, MongoRsStatus> {
+    private final VersionConverter versionConverter;
+
+    public DocumentToMongoRsStatusConverter() {
+        this.versionConverter = new VersionConverter();
+    }
+
+    @Override
+    public MongoRsStatus convert(final Document source) {
+        Objects.requireNonNull(source, "source is not supposed to be null");
+        val ok = Optional.ofNullable(source.get("ok", Number.class)).map(Number::intValue).orElse(0);
+        return MongoRsStatus.of(
+            ok,
+            versionConverter.convert(source.getString(DriverAdminClient.VERSION_FIELD)),
+            getImmutableMembers(source)
+        );
+    }
+
+    private List<MongoNode> getImmutableMembers(final Document source) {
+        return Optional.ofNullable(source.getList("members", Document.class))
+            .map(members -> members.stream()
+                .map(this::mongoNodeMapping)
+                .sorted(Comparator.comparing(MongoNode::getPort))
+                .collect(
+                    Collectors.collectingAndThen(
+                        Collectors.toList(),
+                        Collections::unmodifiableList
+                    )
+                )
+            ).orElseGet(Collections::emptyList);
+    }
+
+    private MongoNode mongoNodeMapping(final Document member) {
+        val address = StringUtils.getArrayByDelimiter(member.getString("name"));
+        return MongoNode.of(
+            address[0],
+            Integer.parseInt(address[1]),
+            Optional.ofNullable(member.get("health", Number.class)).map(Number::doubleValue).orElse(null),
+            ReplicaSetMemberState.getByValue(member.get("state", Number.class).intValue())
+        );
+    }
+}
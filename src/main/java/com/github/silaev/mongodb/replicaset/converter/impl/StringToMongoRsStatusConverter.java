@@ -2,30 +2,24 @@ package com.github.silaev.mongodb.replicaset.converter.impl;
 
 import com.github.silaev.mongodb.replicaset.MongoDbReplicaSet;
 import com.github.silaev.mongodb.replicaset.converter.Converter;
-import com.github.silaev.mongodb.replicaset.converter.YmlConverter;
 import com.github.silaev.mongodb.replicaset.model.MongoNode;
-import com.github.silaev.mongodb.replicaset.model.MongoNodeMutable;
 import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
-import com.github.silaev.mongodb.replicaset.model.MongoRsStatusMutable;
 import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
-import com.github.silaev.mongodb.replicaset.util.StringUtils;
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Converts a string to an instance of MongoRsStatus.
+ * <p>Reads JSON printed by the mongo shell in a single pass, be it JSON.stringify output or printjson output
+ * with shell types such as NumberLong(2) or Timestamp(1, 2), and picks only the fields MongoRsStatus needs,
+ * skipping the rest.
  *
  * @author Konstantin Silaev
  */
@@ -33,110 +27,359 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StringToMongoRsStatusConverter implements Converter<String, MongoRsStatus> {
 
-    private static final String MONGO_VERSION_MARKER = "MongoDB server version:";
-    private static final String OK = "\"ok\" : ";
-    private static final Pattern OK_PATTERN = Pattern.compile("(?i).*" + OK);
+    public static final String MONGO_VERSION_MARKER = "MongoDB server version:";
 
-    private final YmlConverter yamlConverter;
     private final VersionConverter versionConverter;
 
     public StringToMongoRsStatusConverter() {
-        this.yamlConverter = new YmlConverterImpl();
         this.versionConverter = new VersionConverter();
     }
 
-    @SneakyThrows
     @Override
-    public MongoRsStatus convert(String source) {
-        val io = new ByteArrayInputStream(
-            extractJsonPayloadFromMongoDBShell(source).getBytes(StandardCharsets.UTF_8)
-        );
-        MongoRsStatusMutable mongoRsStatusMutable;
+    public MongoRsStatus convert(final String source) {
+        Objects.requireNonNull(source, "source is not supposed to be null");
+        val versionStart = source.indexOf(MONGO_VERSION_MARKER);
+        final String version;
+        final int payloadStart;
+        if (versionStart < 0) {
+            version = null;
+            payloadStart = 0;
+        } else {
+            payloadStart = lineEnd(source, versionStart);
+            version = source.substring(versionStart + MONGO_VERSION_MARKER.length(), payloadStart).trim();
+        }
+
+        val reader = new StatusReader(removeLineBreaks(source, payloadStart));
         try {
-            mongoRsStatusMutable = yamlConverter.unmarshal(MongoRsStatusMutable.class, io);
-        } catch (Exception e) {
-            log.error("Cannot convert to yaml format: \n{}", source);
+            reader.read();
+        } catch (RuntimeException e) {
+            log.error("Cannot convert a replica set status: \n{}", source);
             throw e;
         }
-        if (Objects.isNull(mongoRsStatusMutable)) {
-            return MongoRsStatus.of(
-                0,
-                null,
-                Collections.emptyList()
-            );
-        } else {
-            return MongoRsStatus.of(
-                mongoRsStatusMutable.getStatus(),
-                versionConverter.convert(mongoRsStatusMutable.getVersion()),
-                getImmutableMembers(mongoRsStatusMutable)
-            );
+        if (!reader.hasPayload) {
+            return MongoRsStatus.of(0, null, Collections.emptyList());
         }
+        reader.members.sort(Comparator.comparing(MongoNode::getPort));
+        return MongoRsStatus.of(
+            reader.ok,
+            Objects.isNull(version) ? null : versionConverter.convert(version),
+            Collections.unmodifiableList(reader.members)
+        );
     }
 
-    private List<MongoNode> getImmutableMembers(final MongoRsStatusMutable mongoRsStatusMutable) {
-        return Optional.ofNullable(mongoRsStatusMutable.getMembers())
-            .map(m -> mongoRsStatusMutable.getMembers().stream()
-                .map(this::mongoNodeMapping)
-                .sorted(Comparator.comparing(MongoNode::getPort))
-                .collect(
-                    Collectors.collectingAndThen(
-                        Collectors.toList(),
-                        Collections::unmodifiableList
-                    )
-                )
-            ).orElseGet(Collections::emptyList);
+    /**
+     * Gets the lines printed after a server version line except for waiting messages.
+     *
+     * @param mongoDbReply stdout of the mongo shell
+     * @return a printed payload with lines trimmed and joined
+     */
+    public String extractRawPayloadFromMongoDBShell(final String mongoDbReply) {
+        val versionStart = mongoDbReply.indexOf(MONGO_VERSION_MARKER);
+        int lineStart = versionStart < 0 ? 0 : lineEnd(mongoDbReply, versionStart);
+        val sb = new StringBuilder();
+        while (lineStart < mongoDbReply.length()) {
+            val lineEnd = lineEnd(mongoDbReply, lineStart);
+            if (!mongoDbReply.startsWith(MongoDbReplicaSet.WAITING_MSG, lineStart)) {
+                sb.append(mongoDbReply, lineStart, lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return sb.toString().replace("\t", "").trim();
     }
 
-    private MongoNode mongoNodeMapping(final MongoNodeMutable node) {
-        val address = StringUtils.getArrayByDelimiter(node.getName());
-        return MongoNode.of(
-            address[0],
-            Integer.parseInt(address[1]),
-            node.getHealth(),
-            ReplicaSetMemberState.getByValue(node.getState())
-        );
+    /**
+     * Docker splits stdout into frames that may break a line anywhere, even in the middle of a key,
+     * so line breaks are removed as the mongo shell never prints them inside JSON.
+     *
+     * @param s    stdout
+     * @param from an index to start from
+     * @return a payload without line breaks
+     */
+    private static String removeLineBreaks(final String s, final int from) {
+        val sb = new StringBuilder(s.length() - from);
+        for (int i = from; i < s.length(); i++) {
+            val c = s.charAt(i);
+            if (c != '\n' && c != '\r') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
     }
 
-    public String extractRawPayloadFromMongoDBShell(final String mongoDbReply) {
-        return extractRawPayloadFromMongoDBShell(mongoDbReply, false);
+    private static int lineEnd(final String s, final int from) {
+        val end = s.indexOf('\n', from);
+        return end < 0 ? s.length() : end;
     }
 
-    private String extractJsonPayloadFromMongoDBShell(final String mongoDbReply) {
-        return extractRawPayloadFromMongoDBShell(mongoDbReply, true);
-    }
+    /**
+     * A cursor over shell output reading top-level documents one after another.
+     * As the SnakeYAML-based converter did, ok is taken from the last document having it.
+     */
+    private static final class StatusReader {
+        private final String s;
+        private final int length;
+        private int pos;
+        private int keyEnd;
+        private boolean hasPayload;
+        private int ok;
+        private List<MongoNode> members = new ArrayList<>();
 
-    private String extractRawPayloadFromMongoDBShell(final String mongoDbReply, final boolean formatJson) {
-        String version = null;
-        val lines = mongoDbReply.replace("\t", "").split("\n");
-        int idx = 0;
-        val length = lines.length;
-        while (idx < length) {
-            String currentLine = lines[idx];
-            if (!currentLine.isEmpty() && currentLine.contains(MONGO_VERSION_MARKER)) {
-                version = currentLine.substring(currentLine.indexOf(':') + 1).trim();
-                idx++;
-                break;
+        private StatusReader(final String s) {
+            this.s = s;
+            this.length = s.length();
+        }
+
+        private void read() {
+            while (true) {
+                pos = s.indexOf('{', pos);
+                if (pos < 0) {
+                    return;
+                }
+                hasPayload = true;
+                readTopLevelDocument();
             }
-            idx++;
         }
 
-        val sb = new StringBuilder();
-        for (int i = idx; i < length; i++) {
-            final String line = lines[i];
-            if (!line.startsWith(MongoDbReplicaSet.WAITING_MSG)) {
-                sb.append(line.replaceAll("\\s\\s", ""));
+        private void readTopLevelDocument() {
+            expect('{');
+            if (skipWhitespaceAndPeek() == '}') {
+                pos++;
+                return;
+            }
+            while (true) {
+                val keyStart = readKey();
+                expectAfterWhitespace(':');
+                if (keyEquals(keyStart, "ok")) {
+                    ok = (int) readNumber();
+                } else if (keyEquals(keyStart, "members") && skipWhitespaceAndPeek() == '[') {
+                    members = readMembers();
+                } else {
+                    skipValue();
+                }
+                if (!nextEntry('}')) {
+                    return;
+                }
             }
         }
-        if (formatJson) {
-            val matcher = OK_PATTERN.matcher(sb);
-            val endIndexOk = matcher.find() ? matcher.end() : 0;
-            if (endIndexOk > 0) {
-                val status = sb.substring(endIndexOk, endIndexOk + 1);
-                sb.delete(endIndexOk - OK.length(), sb.length());
-                val strExtra = String.format("\"version\" : \"%s\",", version) + String.format("\"status\" : \"%s\"}", status);
-                sb.append(strExtra);
+
+        private List<MongoNode> readMembers() {
+            final List<MongoNode> nodes = new ArrayList<>();
+            expect('[');
+            if (skipWhitespaceAndPeek() == ']') {
+                pos++;
+                return nodes;
             }
+            do {
+                nodes.add(readMember());
+            } while (nextEntry(']'));
+            return nodes;
+        }
+
+        private MongoNode readMember() {
+            expectAfterWhitespace('{');
+            String name = null;
+            Double health = null;
+            int state = ReplicaSetMemberState.NOT_RECOGNIZED.getValue();
+            if (skipWhitespaceAndPeek() == '}') {
+                pos++;
+            } else {
+                do {
+                    val keyStart = readKey();
+                    expectAfterWhitespace(':');
+                    if (keyEquals(keyStart, "name")) {
+                        name = readString();
+                    } else if (keyEquals(keyStart, "health")) {
+                        health = readNumber();
+                    } else if (keyEquals(keyStart, "state")) {
+                        state = (int) readNumber();
+                    } else {
+                        skipValue();
+                    }
+                } while (nextEntry('}'));
+            }
+            if (Objects.isNull(name)) {
+                throw error("a member without a name");
+            }
+            val delimiter = name.lastIndexOf(':');
+            return MongoNode.of(
+                name.substring(0, delimiter),
+                Integer.parseInt(name.substring(delimiter + 1)),
+                health,
+                ReplicaSetMemberState.getByValue(state)
+            );
+        }
+
+        /**
+         * @param close a closing bracket of a current object or array
+         * @return true if there is one more entry, false if a closing bracket was consumed
+         */
+        private boolean nextEntry(final char close) {
+            val c = skipWhitespaceAndPeek();
+            pos++;
+            if (c == ',') {
+                return true;
+            }
+            if (c == close) {
+                return false;
+            }
+            throw error(String.format("',' or '%s'", close));
+        }
+
+        /**
+         * Reads a key, quoted or not, and moves a cursor past it.
+         *
+         * @return a start index of a key without quotes, keyEnd is set to its end
+         */
+        private int readKey() {
+            val c = skipWhitespaceAndPeek();
+            if (c == '"' || c == '\'') {
+                pos++;
+                val start = pos;
+                skipStringBody(c);
+                keyEnd = pos - 1;
+                return start;
+            }
+            val start = pos;
+            skipIdentifier();
+            keyEnd = pos;
+            return start;
+        }
+
+        private boolean keyEquals(final int keyStart, final String key) {
+            return keyEnd - keyStart == key.length() && s.regionMatches(keyStart, key, 0, key.length());
+        }
+
+        private void skipValue() {
+            val c = skipWhitespaceAndPeek();
+            if (c == '{' || c == '[') {
+                skipNested();
+            } else if (c == '"' || c == '\'') {
+                pos++;
+                skipStringBody(c);
+            } else if (Character.isLetter(c)) {
+                skipIdentifier();
+                if (pos < length && s.charAt(pos) == '(') {
+                    skipNested();
+                }
+            } else {
+                while (pos < length && ",}]".indexOf(s.charAt(pos)) < 0 && !Character.isWhitespace(s.charAt(pos))) {
+                    pos++;
+                }
+            }
+        }
+
+        /**
+         * Skips balanced brackets and parentheses with strings inside.
+         */
+        private void skipNested() {
+            int depth = 0;
+            while (pos < length) {
+                val c = s.charAt(pos++);
+                if (c == '"' || c == '\'') {
+                    skipStringBody(c);
+                } else if (c == '{' || c == '[' || c == '(') {
+                    depth++;
+                } else if (c == '}' || c == ']' || c == ')') {
+                    depth--;
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw error("a closing bracket");
+        }
+
+        /**
+         * Skips a string after an opening quote up to and including a closing one.
+         */
+        private void skipStringBody(final char quote) {
+            while (pos < length) {
+                val c = s.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == quote) {
+                    return;
+                }
+            }
+            throw error("a closing quote");
+        }
+
+        private String readString() {
+            val c = skipWhitespaceAndPeek();
+            if (c != '"' && c != '\'') {
+                throw error("a string");
+            }
+            pos++;
+            val start = pos;
+            skipStringBody(c);
+            return s.substring(start, pos - 1);
+        }
+
+        /**
+         * Reads a plain number or a number wrapped by the mongo shell as in NumberLong(2) or NumberLong("2").
+         */
+        private double readNumber() {
+            char c = skipWhitespaceAndPeek();
+            boolean wrapped = false;
+            if (Character.isLetter(c)) {
+                skipIdentifier();
+                expectAfterWhitespace('(');
+                wrapped = true;
+                c = skipWhitespaceAndPeek();
+            }
+            val quoted = c == '"' || c == '\'';
+            if (quoted) {
+                pos++;
+            }
+            val start = pos;
+            while (pos < length && "+-.eE0123456789".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("a number");
+            }
+            val value = Double.parseDouble(s.substring(start, pos));
+            if (quoted) {
+                expect(c);
+            }
+            if (wrapped) {
+                expectAfterWhitespace(')');
+            }
+            return value;
+        }
+
+        private void skipIdentifier() {
+            while (pos < length && (Character.isLetterOrDigit(s.charAt(pos)) || "_$".indexOf(s.charAt(pos)) >= 0)) {
+                pos++;
+            }
+        }
+
+        private char skipWhitespaceAndPeek() {
+            while (pos < length && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= length) {
+                throw error("more input");
+            }
+            return s.charAt(pos);
+        }
+
+        private void expectAfterWhitespace(final char expected) {
+            skipWhitespaceAndPeek();
+            expect(expected);
+        }
+
+        private void expect(final char expected) {
+            if (pos >= length || s.charAt(pos) != expected) {
+                throw error("'" + expected + "'");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(final String expected) {
+            return new IllegalArgumentException(
+                String.format("Cannot parse a replica set status: expected %s at position %d", expected, pos)
+            );
         }
-        return sb.toString();
     }
 }
@@ -14,9 +14,12 @@ import com.github.silaev.mongodb.replicaset.util.StringUtils;
 import lombok.AllArgsConstructor;
 import lombok.val;
 
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Converts MongoReplicaSetInputProperties to ApplicationProperties
@@ -32,6 +35,27 @@ public class UserInputToApplicationPropertiesConverter
     public static final int AWAIT_NODE_INIT_ATTEMPTS = 29;
     public static final String MONGO_DOCKER_IMAGE_DEFAULT = "mongo:4.0.10";
     public static final boolean USE_HOST_DOCKER_INTERNAL_DEFAULT = false;
+    public static final boolean PARALLEL_PROVISIONING_DEFAULT = false;
+    public static final boolean INITIATE_WITH_ARBITER_DEFAULT = false;
+    public static final boolean REUSE_DEFAULT = false;
+    public static final boolean SNAPSHOT_DEFAULT = false;
+    public static final boolean SELF_INITIALIZE_DEFAULT = false;
+    public static final boolean DETERMINISTIC_ELECTION_DEFAULT = false;
+    public static final boolean DRIVER_TOPOLOGY_MONITOR_DEFAULT = false;
+    public static final boolean SHELL_SESSION_DEFAULT = false;
+    public static final boolean DRIVER_CONTROL_PLANE_DEFAULT = false;
+    public static final boolean STATUS_MONITOR_DEFAULT = false;
+    public static final boolean PARALLEL_TEARDOWN_DEFAULT = false;
+    public static final boolean BACKGROUND_TEARDOWN_DEFAULT = false;
+    public static final boolean START_ON_BUILD_DEFAULT = false;
+    public static final boolean RETURN_ON_MASTER_READY_DEFAULT = false;
+    public static final boolean HOST_NETWORK_DEFAULT = false;
+    public static final boolean DENSE_DEFAULT = false;
+    public static final boolean DIRECT_NETWORK_DEFAULT = false;
+    public static final boolean NETWORK_POOL_DEFAULT = false;
+    public static final boolean SHARED_DOCKER_HOST_DEFAULT = false;
+    public static final Duration START_TIMEOUT_DEFAULT = Duration.ofMinutes(5);
+    public static final Duration CONTAINER_STARTUP_TIMEOUT_DEFAULT = Duration.ofSeconds(60);
     private static final Boolean ADD_ARBITER_DEFAULT = Boolean.FALSE;
     private static final boolean ENABLED_DEFAULT = true;
     private static final String YML_FORMAT = "yml";
@@ -94,6 +118,47 @@ public class UserInputToApplicationPropertiesConverter
             );
     }
 
+    /**
+     * Finds the first set: a builder value, a system property, a file property, a default value.
+     *
+     * @param durationInput        a value from a builder
+     * @param propertyName         a property name
+     * @param durationFileProperty an ISO-8601 duration from a property file
+     * @param defaultDuration      a default value
+     * @return a duration
+     */
+    private Duration getDuration(
+        final Duration durationInput,
+        final String propertyName,
+        final String durationFileProperty,
+        final Supplier<Duration> defaultDuration
+    ) {
+        val duration = Optional.ofNullable(durationInput)
+            .orElseGet(
+                () -> Optional.ofNullable(System.getProperty("mongoReplicaSetProperties." + propertyName))
+                    .map(Optional::of)
+                    .orElseGet(() -> Optional.ofNullable(durationFileProperty))
+                    .map(d -> parseDuration(propertyName, d))
+                    .orElseGet(defaultDuration)
+            );
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IncorrectUserInputException(
+                String.format("Please, set %s to a positive duration", propertyName)
+            );
+        }
+        return duration;
+    }
+
+    private static Duration parseDuration(final String propertyName, final String duration) {
+        try {
+            return Duration.parse(duration);
+        } catch (DateTimeParseException e) {
+            throw new IncorrectUserInputException(
+                String.format("Please, set %s as an ISO-8601 duration, for instance, PT30S", propertyName)
+            );
+        }
+    }
+
     private Boolean getEnabled(Boolean fileProperties) {
         return Optional.ofNullable(System.getProperty("mongoReplicaSetProperties.enabled"))
             .map(Boolean::valueOf)
@@ -126,6 +191,74 @@ public class UserInputToApplicationPropertiesConverter
         val slaveDelayTimeout = Optional.ofNullable(inputProperties.getSlaveDelayTimeout()).orElse(0);
         val slaveDelayNumber = Optional.ofNullable(inputProperties.getSlaveDelayNumber()).orElse(0);
         val useHostDockerInternal = getUseHostDockerInternal(inputProperties.getUseHostDockerInternal());
+        val parallelProvisioning = Optional.ofNullable(inputProperties.getParallelProvisioning())
+            .orElse(UserInputToApplicationPropertiesConverter.PARALLEL_PROVISIONING_DEFAULT);
+        val initiateWithArbiter = Optional.ofNullable(inputProperties.getInitiateWithArbiter())
+            .orElse(UserInputToApplicationPropertiesConverter.INITIATE_WITH_ARBITER_DEFAULT);
+        val reuse = Optional.ofNullable(inputProperties.getReuse())
+            .orElse(UserInputToApplicationPropertiesConverter.REUSE_DEFAULT);
+        val snapshot = Optional.ofNullable(inputProperties.getSnapshot())
+            .orElse(UserInputToApplicationPropertiesConverter.SNAPSHOT_DEFAULT);
+        val selfInitialize = Optional.ofNullable(inputProperties.getSelfInitialize())
+            .orElse(UserInputToApplicationPropertiesConverter.SELF_INITIALIZE_DEFAULT);
+        val deterministicElection = Optional.ofNullable(inputProperties.getDeterministicElection())
+            .orElse(UserInputToApplicationPropertiesConverter.DETERMINISTIC_ELECTION_DEFAULT);
+        val driverTopologyMonitor = Optional.ofNullable(inputProperties.getDriverTopologyMonitor())
+            .orElse(UserInputToApplicationPropertiesConverter.DRIVER_TOPOLOGY_MONITOR_DEFAULT);
+        val shellSession = Optional.ofNullable(inputProperties.getShellSession())
+            .orElse(UserInputToApplicationPropertiesConverter.SHELL_SESSION_DEFAULT);
+        val driverControlPlane = Optional.ofNullable(inputProperties.getDriverControlPlane())
+            .orElse(UserInputToApplicationPropertiesConverter.DRIVER_CONTROL_PLANE_DEFAULT);
+        val statusMonitor = Optional.ofNullable(inputProperties.getStatusMonitor())
+            .orElse(UserInputToApplicationPropertiesConverter.STATUS_MONITOR_DEFAULT);
+        val parallelTeardown = Optional.ofNullable(inputProperties.getParallelTeardown())
+            .orElse(UserInputToApplicationPropertiesConverter.PARALLEL_TEARDOWN_DEFAULT);
+        val backgroundTeardown = Optional.ofNullable(inputProperties.getBackgroundTeardown())
+            .orElse(UserInputToApplicationPropertiesConverter.BACKGROUND_TEARDOWN_DEFAULT);
+        val startOnBuild = Optional.ofNullable(inputProperties.getStartOnBuild())
+            .orElse(UserInputToApplicationPropertiesConverter.START_ON_BUILD_DEFAULT);
+        val returnOnMasterReady = Optional.ofNullable(inputProperties.getReturnOnMasterReady())
+            .orElse(UserInputToApplicationPropertiesConverter.RETURN_ON_MASTER_READY_DEFAULT);
+        val hostNetwork = Optional.ofNullable(inputProperties.getHostNetwork())
+            .orElse(UserInputToApplicationPropertiesConverter.HOST_NETWORK_DEFAULT);
+        val dense = Optional.ofNullable(inputProperties.getDense())
+            .orElse(UserInputToApplicationPropertiesConverter.DENSE_DEFAULT);
+        val directNetwork = Optional.ofNullable(inputProperties.getDirectNetwork())
+            .orElse(UserInputToApplicationPropertiesConverter.DIRECT_NETWORK_DEFAULT);
+        val networkPool = Optional.ofNullable(inputProperties.getNetworkPool())
+            .orElse(UserInputToApplicationPropertiesConverter.NETWORK_POOL_DEFAULT);
+        val sharedDockerHost = Optional.ofNullable(inputProperties.getSharedDockerHost())
+            .orElse(UserInputToApplicationPropertiesConverter.SHARED_DOCKER_HOST_DEFAULT);
+        val startTimeout = getDuration(
+            inputProperties.getStartTimeout(),
+            "startTimeout",
+            fileProperties.getStartTimeout(),
+            () -> START_TIMEOUT_DEFAULT
+        );
+        val containerStartupTimeout = getDuration(
+            inputProperties.getContainerStartupTimeout(),
+            "containerStartupTimeout",
+            fileProperties.getContainerStartupTimeout(),
+            () -> CONTAINER_STARTUP_TIMEOUT_DEFAULT
+        );
+        val electionTimeout = getDuration(
+            inputProperties.getElectionTimeout(),
+            "electionTimeout",
+            fileProperties.getElectionTimeout(),
+            () -> Duration.ofSeconds(awaitNodeInitAttempts)
+        );
+        val arbiterTimeout = getDuration(
+            inputProperties.getArbiterTimeout(),
+            "arbiterTimeout",
+            fileProperties.getArbiterTimeout(),
+            () -> Duration.ofSeconds(awaitNodeInitAttempts)
+        );
+        val reelectionTimeout = getDuration(
+            inputProperties.getReelectionTimeout(),
+            "reelectionTimeout",
+            fileProperties.getReelectionTimeout(),
+            () -> Duration.ofSeconds(awaitNodeInitAttempts * 2L)
+        );
 
         return ApplicationProperties.builder()
             .replicaSetNumber(replicaSetNumber)
@@ -140,6 +273,30 @@ public class UserInputToApplicationPropertiesConverter
             .commandLineOptions(
                 Optional.ofNullable(inputProperties.getCommandLineOptions()).orElse(Collections.emptyList())
             )
+            .parallelProvisioning(parallelProvisioning)
+            .initiateWithArbiter(initiateWithArbiter)
+            .reuse(reuse)
+            .snapshot(snapshot)
+            .selfInitialize(selfInitialize)
+            .deterministicElection(deterministicElection)
+            .driverTopologyMonitor(driverTopologyMonitor)
+            .shellSession(shellSession)
+            .driverControlPlane(driverControlPlane)
+            .statusMonitor(statusMonitor)
+            .parallelTeardown(parallelTeardown)
+            .backgroundTeardown(backgroundTeardown)
+            .startOnBuild(startOnBuild)
+            .returnOnMasterReady(returnOnMasterReady)
+            .hostNetwork(hostNetwork)
+            .dense(dense)
+            .directNetwork(directNetwork)
+            .networkPool(networkPool)
+            .sharedDockerHost(sharedDockerHost)
+            .startTimeout(startTimeout)
+            .containerStartupTimeout(containerStartupTimeout)
+            .electionTimeout(electionTimeout)
+            .arbiterTimeout(arbiterTimeout)
+            .reelectionTimeout(reelectionTimeout)
             .build();
     }
 
@@ -164,6 +321,36 @@ public class UserInputToApplicationPropertiesConverter
             );
         }
 
+        if (Boolean.TRUE.equals(inputProperties.getInitiateWithArbiter()) &&
+            !Boolean.TRUE.equals(inputProperties.getAddArbiter())) {
+            throw new IncorrectUserInputException(
+                "Please, set addArbiter to initiate a replica set with an arbiter node"
+            );
+        }
+
+        if (Boolean.TRUE.equals(inputProperties.getSnapshot()) &&
+            Boolean.TRUE.equals(inputProperties.getAddToxiproxy())) {
+            throw new IncorrectUserInputException(
+                "Taking a snapshot of a replica set with Toxiproxy is not supported"
+            );
+        }
+
+        if (Boolean.TRUE.equals(inputProperties.getSnapshot()) &&
+            Boolean.TRUE.equals(inputProperties.getReuse())) {
+            throw new IncorrectUserInputException(
+                "Please, set either reuse or snapshot"
+            );
+        }
+
+        if (Boolean.TRUE.equals(inputProperties.getSelfInitialize()) &&
+            (Boolean.TRUE.equals(inputProperties.getAddToxiproxy()) ||
+                Boolean.TRUE.equals(inputProperties.getReuse()) ||
+                Boolean.TRUE.equals(inputProperties.getSnapshot()))) {
+            throw new IncorrectUserInputException(
+                "Self-initializing a replica set is not supported with addToxiproxy, reuse or snapshot"
+            );
+        }
+
         if (Objects.nonNull(inputProperties.getSlaveDelayTimeout()) && (Objects.nonNull(inputProperties.getReplicaSetNumber())) &&
             inputProperties.getSlaveDelayTimeout() > 0 && inputProperties.getReplicaSetNumber() == 1) {
             throw new IncorrectUserInputException(
@@ -0,0 +1,50 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Sends replica set admin commands to a single node (see driverControlPlane).
+ * <p>Has no driver types in its signatures so that a replica set can refer to it
+ * without org.mongodb:mongodb-driver-sync on the classpath.
+ *
+ * @author Konstantin Silaev
+ */
+public interface AdminClient extends AutoCloseable {
+    boolean isMaster();
+
+    boolean isSecondary();
+
+    /**
+     * @return a replica set status with a server version
+     */
+    MongoRsStatus getMongoRsStatus();
+
+    /**
+     * @return a raw replica set status as JSON or an error message to report in exceptions
+     */
+    String describeStatus();
+
+    void initiate(String configJson);
+
+    void addMember(String host, boolean arbiterOnly, int maxTimeMS);
+
+    void addMemberForPSA(String host, boolean arbiterOnly, int maxTimeMS);
+
+    void removeMembers(Predicate<String> hostsToRemove, boolean force, int maxTimeMS);
+
+    void resetMembers(int fromIndex, int maxTimeMS);
+
+    void setDefaultWriteConcernW1();
+
+    void stepUp();
+
+    void dropConnections(int drop, List<String> hostAndPort);
+
+    void dropDatabase(String databaseName);
+
+    @Override
+    void close();
+}
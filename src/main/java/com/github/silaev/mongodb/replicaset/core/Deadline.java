@@ -0,0 +1,50 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * A point in time measured by a monotonic clock (System.nanoTime)
+ * so that a wall clock adjustment neither shortens nor extends a wait.
+ *
+ * @author Konstantin Silaev
+ */
+public final class Deadline {
+    private final long nanoTime;
+
+    private Deadline(final long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @param timeout a time to wait for
+     * @return a deadline a timeout from now
+     */
+    public static Deadline after(final Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout is not supposed to be null");
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @param other another deadline or null
+     * @return the earlier of two deadlines
+     */
+    public Deadline min(final Deadline other) {
+        if (Objects.isNull(other) || nanoTime - other.nanoTime <= 0) {
+            return this;
+        }
+        return other;
+    }
+
+    /**
+     * @return a time left, zero if a deadline has passed
+     */
+    public Duration remaining() {
+        final long remaining = nanoTime - System.nanoTime();
+        return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+    }
+
+    public boolean isExpired() {
+        return nanoTime - System.nanoTime() <= 0;
+    }
+}
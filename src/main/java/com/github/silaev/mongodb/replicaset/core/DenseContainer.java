@@ -0,0 +1,205 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.util.PortUtils;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.output.OutputFrame;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.lifecycle.Startable;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A single container running mongod processes of all nodes of a replica set on distinct ports and dbpaths
+ * (see dense), each node being a {@link MongoProcessNode}.
+ * <p>Each port is published on the same host port, so that members named host:port
+ * reach each other inside a container and the host reaches them via port mapping.
+ * Ports are found free in the network namespace of the JVM, which is checked by a caller.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class DenseContainer implements Startable {
+    private static final String READY_MSG = "All mongod processes are started";
+    private static final String FAILED_MSG = "A mongod process failed to start";
+    private static final String CACHE_SIZE_GB = "0.25";
+    private static final int PORT_CONFLICT_ATTEMPTS = 3;
+
+    private final String mongoDockerImageName;
+    private final List<String> roles;
+    private final List<String> commandLineOptions;
+    private final boolean hostNetwork;
+    private final Network network;
+    private final String extraHost;
+    private final Duration startupTimeout;
+    private final Map<String, MongoProcessNode> nodes = new ConcurrentHashMap<>();
+    private volatile GenericContainer<?> container;
+
+    /**
+     * @param mongoDockerImageName a MongoDB image
+     * @param roles                unique names of nodes in a replica set
+     * @param commandLineOptions   mongod options set by a user
+     * @param hostNetwork          whether to run in the network namespace of the host
+     * @param network              a shared network used only by Toxiproxy to reach nodes, if any
+     * @param extraHost            a host name to resolve to the docker host, if any
+     * @param startupTimeout       a time to wait for all mongod processes to start
+     */
+    @Builder
+    private DenseContainer(
+        @NonNull final String mongoDockerImageName,
+        @NonNull final List<String> roles,
+        @NonNull final List<String> commandLineOptions,
+        final boolean hostNetwork,
+        final Network network,
+        final String extraHost,
+        @NonNull final Duration startupTimeout
+    ) {
+        this.mongoDockerImageName = mongoDockerImageName;
+        this.roles = roles;
+        this.commandLineOptions = commandLineOptions;
+        this.hostNetwork = hostNetwork;
+        this.network = network;
+        this.extraHost = extraHost;
+        this.startupTimeout = startupTimeout;
+    }
+
+    /**
+     * Gets a node, starting a container on first use and a stopped mongod process of a node.
+     *
+     * @param role a unique name of a node in a replica set
+     * @return a running MongoDB node
+     */
+    public synchronized MongoProcessNode startNode(final String role) {
+        if (nodes.isEmpty()) {
+            start();
+        }
+        val node = Objects.requireNonNull(nodes.get(role), "A dense node is not supposed to be null");
+        if (!node.isRunning()) {
+            node.start();
+        }
+        return node;
+    }
+
+    /**
+     * Starts a container retrying with other ports a few times
+     * if a port found free was taken by another process before a container started.
+     */
+    @Override
+    public synchronized void start() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tryStart();
+                return;
+            } catch (RuntimeException e) {
+                stop();
+                if (attempt >= PORT_CONFLICT_ATTEMPTS || !PortUtils.isPortConflict(e)) {
+                    throw e;
+                }
+                log.warn("A port found free was taken before a dense container started, retrying with other ports", e);
+            }
+        }
+    }
+
+    /**
+     * Stops a container along with all the nodes, possibly while another thread is starting it.
+     */
+    @Override
+    public void stop() {
+        val startedContainer = container;
+        container = null;
+        nodes.clear();
+        if (Objects.nonNull(startedContainer)) {
+            startedContainer.stop();
+        }
+    }
+
+    /**
+     * Unless set via commandLineOptions, the WiredTiger cache of each process is capped
+     * as every process would otherwise size it by the memory of the whole container.
+     */
+    @SuppressWarnings("java:S2095")
+    private void tryStart() {
+        final Map<String, Integer> ports = new LinkedHashMap<>();
+        roles.forEach(role -> ports.put(role, PortUtils.findFreePort()));
+        final List<String> options = Stream.of(
+            Stream.of("--bind_ip", hostNetwork ? "127.0.0.1" : "0.0.0.0", "--replSet", "docker-rs"),
+            commandLineOptions.stream().anyMatch(o -> o.startsWith("--wiredTigerCacheSizeGB"))
+                ? Stream.<String>empty()
+                : Stream.of("--wiredTigerCacheSizeGB", CACHE_SIZE_GB),
+            commandLineOptions.stream()
+        ).flatMap(Function.identity())
+            .collect(Collectors.toList());
+        final Map<String, String> startCommands = new LinkedHashMap<>();
+        ports.forEach((role, port) -> startCommands.put(role, MongoProcessNode.buildStartCommand(port, options)));
+
+        final GenericContainer<?> denseContainer = new GenericContainer<>(mongoDockerImageName)
+            .withCreateContainerCmdModifier(
+                cmd -> cmd.withEntrypoint(
+                    "bash",
+                    "-c",
+                    buildEntrypoint(startCommands.values())
+                )
+            ).waitingFor(
+                Wait.forLogMessage(String.format(".*(%s|%s).*", READY_MSG, FAILED_MSG), 1)
+            ).withStartupTimeout(startupTimeout)
+            .withStartupAttempts(1);
+        if (hostNetwork) {
+            denseContainer.withNetworkMode("host");
+        } else {
+            denseContainer.withNetwork(network)
+                .withExposedPorts(ports.values().toArray(new Integer[0]));
+            denseContainer.setPortBindings(
+                ports.values().stream()
+                    .map(port -> port + ":" + port)
+                    .collect(Collectors.toList())
+            );
+            if (Objects.nonNull(extraHost)) {
+                denseContainer.withExtraHost(extraHost, "host-gateway");
+            }
+        }
+        container = denseContainer;
+        denseContainer.start();
+        val logs = denseContainer.getLogs(OutputFrame.OutputType.STDOUT);
+        if (logs.contains(FAILED_MSG)) {
+            throw new MongoNodeInitializationException(
+                String.format("Error occurred while starting mongod processes: %s", logs)
+            );
+        }
+        ports.forEach(
+            (role, port) -> nodes.put(role, new MongoProcessNode(denseContainer, port, startCommands.get(role)))
+        );
+    }
+
+    /**
+     * Generates an entrypoint starting mongod processes at the same time and keeping a container running.
+     *
+     * @param startCommands shell commands starting mongod processes in the background
+     * @return a shell script
+     */
+    static String buildEntrypoint(final Collection<String> startCommands) {
+        val sb = new StringBuilder("pids=''; ");
+        startCommands.forEach(command -> sb.append("(").append(command).append(") & pids=\"$pids $!\"; "));
+        return sb.append("status=0; for pid in $pids; do wait $pid || status=1; done; ")
+            .append(String.format(
+                "if [ $status -eq 0 ]; then echo '%s'; else echo '%s'; tail -n 20 /data/db/*.log; fi; ",
+                READY_MSG,
+                FAILED_MSG
+            ))
+            .append("exec sleep infinity")
+            .toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.dockerjava.api.model.Capability;
+import com.github.dockerjava.api.model.ContainerNetwork;
+import com.github.dockerjava.api.model.HostConfig;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A process-wide view of a Docker daemon shared by all replica sets of a JVM.
+ * <p>Gets a host IP address and an operating system once instead of per start() and
+ * runs a single docker-host container forwarding traffic to the docker host, attached to every network
+ * that needs it and stopped once the last one lets it go.
+ *
+ * @author Konstantin Silaev
+ * @see <a href="https://github.com/qoomon/docker-host">docker-host on github</a>
+ */
+@Slf4j
+public final class DockerEnvironment {
+    private static volatile DockerEnvironment instance;
+
+    private final String hostIpAddress;
+    private final String operatingSystem;
+    private final Set<String> dockerHostNetworkIds = new HashSet<>();
+    private GenericContainer<?> dockerHostContainer;
+
+    private DockerEnvironment(final String hostIpAddress, final String operatingSystem) {
+        this.hostIpAddress = Objects.requireNonNull(
+            hostIpAddress,
+            "DockerClient: dockerHostIpAddress is not supposed to be null"
+        );
+        this.operatingSystem = Objects.requireNonNull(
+            operatingSystem,
+            "DockerClient: operatingSystem is not supposed to be null"
+        );
+    }
+
+    /**
+     * @return an environment of a Docker daemon Testcontainers uses, inspected on first call
+     */
+    public static DockerEnvironment getInstance() {
+        DockerEnvironment environment = instance;
+        if (Objects.isNull(environment)) {
+            synchronized (DockerEnvironment.class) {
+                environment = instance;
+                if (Objects.isNull(environment)) {
+                    val clientFactory = DockerClientFactory.instance();
+                    environment = new DockerEnvironment(
+                        clientFactory.dockerHostIpAddress(),
+                        clientFactory.client().infoCmd().exec().getOperatingSystem()
+                    );
+                    instance = environment;
+                }
+            }
+        }
+        return environment;
+    }
+
+    public String getHostIpAddress() {
+        return hostIpAddress;
+    }
+
+    public String getOperatingSystem() {
+        return operatingSystem;
+    }
+
+    /**
+     * @return whether a Docker daemon runs on Linux rather than in Docker Desktop
+     */
+    public boolean isLinux() {
+        return !operatingSystem.toLowerCase(Locale.ENGLISH).contains("docker desktop");
+    }
+
+    /**
+     * Makes a docker-host container reachable on a network by an alias,
+     * starting one on first use and connecting it to other networks afterwards.
+     *
+     * @param imageName a docker-host image name
+     * @param network   a network of a replica set
+     * @param alias     a name of the docker host on a network
+     */
+    public synchronized void attachDockerHost(
+        final String imageName,
+        final Network network,
+        final String alias
+    ) {
+        val networkId = network.getId();
+        if (Objects.isNull(dockerHostContainer) || !dockerHostContainer.isRunning()) {
+            dockerHostNetworkIds.clear();
+            dockerHostContainer = startDockerHostContainer(imageName, network, alias);
+        } else if (!dockerHostNetworkIds.contains(networkId)) {
+            DockerClientFactory.instance().client().connectToNetworkCmd()
+                .withContainerId(dockerHostContainer.getContainerId())
+                .withNetworkId(networkId)
+                .withContainerNetwork(new ContainerNetwork().withAliases(alias))
+                .exec();
+        }
+        dockerHostNetworkIds.add(networkId);
+        log.debug("A shared docker-host container serves {} network(s)", dockerHostNetworkIds.size());
+    }
+
+    /**
+     * Disconnects a docker-host container from a network before the network is removed
+     * and stops it if no other network needs it.
+     *
+     * @param network a network of a replica set
+     */
+    public synchronized void detachDockerHost(final Network network) {
+        val networkId = network.getId();
+        if (!dockerHostNetworkIds.remove(networkId) || Objects.isNull(dockerHostContainer)) {
+            return;
+        }
+        if (dockerHostNetworkIds.isEmpty()) {
+            dockerHostContainer.stop();
+            dockerHostContainer = null;
+            return;
+        }
+        try {
+            DockerClientFactory.instance().client().disconnectFromNetworkCmd()
+                .withContainerId(dockerHostContainer.getContainerId())
+                .withNetworkId(networkId)
+                .withForce(true)
+                .exec();
+        } catch (RuntimeException e) {
+            log.warn("Cannot disconnect a docker-host container from a network", e);
+        }
+    }
+
+    @SuppressWarnings("java:S2095")
+    private static GenericContainer<?> startDockerHostContainer(
+        final String imageName,
+        final Network network,
+        final String alias
+    ) {
+        final GenericContainer<?> container = new GenericContainer<>(imageName)
+            .withCreateContainerCmdModifier(
+                it -> it.withHostConfig(
+                    HostConfig.newHostConfig()
+                        .withCapAdd(Capability.NET_ADMIN, Capability.NET_RAW)
+                        .withNetworkMode(network.getId())
+                )
+            ).withNetwork(network)
+            .withNetworkAliases(alias)
+            .waitingFor(
+                Wait.forLogMessage(".*Forwarding ports.*", 1)
+            );
+        container.start();
+        return container;
+    }
+}
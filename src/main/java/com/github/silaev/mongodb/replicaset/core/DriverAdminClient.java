@@ -0,0 +1,299 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.converter.impl.DocumentToMongoRsStatusConverter;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import lombok.val;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Sends replica set admin commands to a single node as BSON over its mapped port
+ * via the MongoDB Java driver instead of running JS in the mongo shell inside a container.
+ * <p>Requires org.mongodb:mongodb-driver-sync on the classpath, so is only to be created via
+ * {@link #create(String, int)} once driverControlPlane is checked.
+ *
+ * @author Konstantin Silaev
+ */
+public class DriverAdminClient implements AdminClient {
+    public static final String VERSION_FIELD = "version";
+    private static final String ADMIN_DB = "admin";
+    private static final long TIMEOUT_MS = 2000;
+    private static final String MEMBERS = "members";
+    private static final String HOST = "host";
+    private static final String VOTES = "votes";
+    private static final String PRIORITY = "priority";
+
+    private final MongoClient mongoClient;
+    private volatile String serverVersion;
+
+    /**
+     * Connects directly to a node so that commands are not routed to a master one.
+     *
+     * @param host a host a node is published on
+     * @param port a mapped port of a node
+     */
+    public DriverAdminClient(final String host, final int port) {
+        Objects.requireNonNull(host, "host is not supposed to be null");
+        this.mongoClient = MongoClients.create(
+            MongoClientSettings.builder()
+                .applyConnectionString(
+                    new ConnectionString(String.format("mongodb://%s:%d/?directConnection=true", host, port))
+                )
+                .applyToClusterSettings(b -> b.serverSelectionTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(b -> b.connectTimeout((int) TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .build()
+        );
+    }
+
+    /**
+     * Creates an admin client, referred to as AdminClient so that a caller does not load driver classes
+     * unless it actually creates one.
+     *
+     * @param host a host a node is published on
+     * @param port a mapped port of a node
+     * @return an admin client
+     */
+    public static AdminClient create(final String host, final int port) {
+        return new DriverAdminClient(host, port);
+    }
+
+    public Document runCommand(final Document command) {
+        return mongoClient.getDatabase(ADMIN_DB).runCommand(command);
+    }
+
+    /**
+     * Gets a server version via buildInfo once and caches it since a node keeps its version
+     * while a client is connected to it.
+     *
+     * @return a version of a server a client is connected to
+     */
+    public String getServerVersion() {
+        String version = serverVersion;
+        if (version == null) {
+            version = runCommand(new Document("buildInfo", 1)).getString(VERSION_FIELD);
+            serverVersion = version;
+        }
+        return version;
+    }
+
+    @Override
+    public boolean isMaster() {
+        return Boolean.TRUE.equals(runCommand(new Document("isMaster", 1)).getBoolean("ismaster"));
+    }
+
+    @Override
+    public boolean isSecondary() {
+        return Boolean.TRUE.equals(runCommand(new Document("isMaster", 1)).getBoolean("secondary"));
+    }
+
+    /**
+     * Gets replSetGetStatus with a server version added as a version field.
+     * A not yet initialized node replies with ok: 0 instead of an exception.
+     * Only the first status read costs an extra buildInfo round trip, see {@link #getServerVersion()}.
+     *
+     * @return a replica set status
+     */
+    public Document getStatus() {
+        Document status;
+        try {
+            status = runCommand(new Document("replSetGetStatus", 1));
+        } catch (MongoCommandException e) {
+            status = Document.parse(e.getResponse().toJson());
+        }
+        return status.append(VERSION_FIELD, getServerVersion());
+    }
+
+    @Override
+    public MongoRsStatus getMongoRsStatus() {
+        return new DocumentToMongoRsStatusConverter().convert(getStatus());
+    }
+
+    @Override
+    public String describeStatus() {
+        try {
+            return getStatus().toJson();
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Initiates a replica set.
+     *
+     * @param configJson a replica set config as JSON
+     */
+    @Override
+    public void initiate(final String configJson) {
+        runCommand(new Document("replSetInitiate", Document.parse(configJson)));
+    }
+
+    /**
+     * Applies a change to a current replica set config and sends it with an incremented version.
+     *
+     * @param change    a change of a config
+     * @param force     whether to force a reconfiguration, for instance, on a secondary node
+     * @param maxTimeMS max time to wait for a reconfiguration
+     */
+    public void reconfig(final UnaryOperator<Document> change, final boolean force, final int maxTimeMS) {
+        val config = runCommand(new Document("replSetGetConfig", 1)).get("config", Document.class);
+        val version = config.get(VERSION_FIELD, Number.class).intValue();
+        val newConfig = change.apply(config);
+        newConfig.put(VERSION_FIELD, version + 1);
+        runCommand(
+            new Document("replSetReconfig", newConfig)
+                .append("force", force)
+                .append("maxTimeMS", maxTimeMS)
+        );
+    }
+
+    /**
+     * Same as rs.add and rs.addArb.
+     *
+     * @param host        host:port of a new member
+     * @param arbiterOnly whether a new member is an arbiter
+     * @param maxTimeMS   max time to wait for a reconfiguration
+     */
+    @Override
+    public void addMember(final String host, final boolean arbiterOnly, final int maxTimeMS) {
+        reconfig(config -> withMember(config, newMember(config, host, arbiterOnly)), false, maxTimeMS);
+    }
+
+    /**
+     * Same as rs.reconfigForPSASet: adds a member without a vote first and then gives it a vote,
+     * as MongoDB 5.0 and up reject adding a voting member to a PSA replica set at once.
+     *
+     * @param host        host:port of a new member
+     * @param arbiterOnly whether a new member is an arbiter
+     * @param maxTimeMS   max time to wait for a reconfiguration
+     */
+    @Override
+    public void addMemberForPSA(final String host, final boolean arbiterOnly, final int maxTimeMS) {
+        reconfig(
+            config -> withMember(
+                config,
+                newMember(config, host, arbiterOnly).append(VOTES, 0).append(PRIORITY, 0)
+            ),
+            false,
+            maxTimeMS
+        );
+        reconfig(
+            config -> {
+                getMembers(config).stream()
+                    .filter(m -> host.equals(m.getString(HOST)))
+                    .forEach(m -> {
+                            m.put(VOTES, 1);
+                            m.put(PRIORITY, arbiterOnly ? 0 : 1);
+                        }
+                    );
+                return config;
+            },
+            false,
+            maxTimeMS
+        );
+    }
+
+    /**
+     * Removes members by host:port.
+     *
+     * @param hostsToRemove a condition on host:port of a member to remove
+     * @param force         whether to force a reconfiguration
+     * @param maxTimeMS     max time to wait for a reconfiguration
+     */
+    @Override
+    public void removeMembers(final Predicate<String> hostsToRemove, final boolean force, final int maxTimeMS) {
+        reconfig(
+            config -> config.append(
+                MEMBERS,
+                getMembers(config).stream()
+                    .filter(m -> !hostsToRemove.test(m.getString(HOST)))
+                    .collect(Collectors.toList())
+            ),
+            force,
+            maxTimeMS
+        );
+    }
+
+    /**
+     * Makes members starting from an index not delayed, not hidden and electable with priority 1.
+     *
+     * @param fromIndex an index of the first member to change
+     * @param maxTimeMS max time to wait for a reconfiguration
+     */
+    @Override
+    public void resetMembers(final int fromIndex, final int maxTimeMS) {
+        reconfig(
+            config -> {
+                val members = getMembers(config);
+                for (int i = fromIndex; i < members.size(); i++) {
+                    members.get(i).append("slaveDelay", 0).append(PRIORITY, 1).append("hidden", false);
+                }
+                return config;
+            },
+            true,
+            maxTimeMS
+        );
+    }
+
+    /**
+     * @see <a href="https://jira.mongodb.org/browse/SERVER-58964">SERVER-58964</a>
+     */
+    @Override
+    public void setDefaultWriteConcernW1() {
+        runCommand(
+            new Document("setDefaultRWConcern", 1)
+                .append("defaultWriteConcern", new Document("w", 1))
+        );
+    }
+
+    @Override
+    public void stepUp() {
+        runCommand(new Document("replSetStepUp", 1));
+    }
+
+    @Override
+    public void dropConnections(final int drop, final List<String> hostAndPort) {
+        runCommand(new Document("dropConnections", drop).append("hostAndPort", hostAndPort));
+    }
+
+    @Override
+    public void dropDatabase(final String databaseName) {
+        mongoClient.getDatabase(databaseName).drop();
+    }
+
+    private static List<Document> getMembers(final Document config) {
+        return config.getList(MEMBERS, Document.class);
+    }
+
+    private static Document withMember(final Document config, final Document member) {
+        final List<Document> members = new ArrayList<>(getMembers(config));
+        members.add(member);
+        return config.append(MEMBERS, members);
+    }
+
+    private static Document newMember(final Document config, final String host, final boolean arbiterOnly) {
+        val id = getMembers(config).stream()
+            .mapToInt(m -> m.get("_id", Number.class).intValue())
+            .max()
+            .orElse(-1) + 1;
+        return new Document("_id", id)
+            .append(HOST, host)
+            .append("arbiterOnly", arbiterOnly);
+    }
+
+    @Override
+    public void close() {
+        mongoClient.close();
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ClusterListener;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Watches a replica set topology via SDAM events of the MongoDB Java driver
+ * so that a wait completes as soon as a condition holds instead of polling rs.status() every second.
+ * <p>Requires org.mongodb:mongodb-driver-sync on the classpath.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class DriverTopologyMonitor implements ClusterListener, AutoCloseable {
+    private static final long HEARTBEAT_FREQUENCY_MS = 100;
+    private static final long MIN_HEARTBEAT_FREQUENCY_MS = 10;
+    private static final Set<ServerType> UP_SERVER_TYPES = EnumSet.of(
+        ServerType.REPLICA_SET_PRIMARY,
+        ServerType.REPLICA_SET_SECONDARY,
+        ServerType.REPLICA_SET_ARBITER
+    );
+
+    private final Object lock = new Object();
+    private ClusterDescription clusterDescription;
+    private MongoClient mongoClient;
+
+    /**
+     * Connects to a replica set. The driver starts monitoring right away without running any operation.
+     *
+     * @param connectionString a replica set url
+     * @return this monitor
+     */
+    public DriverTopologyMonitor connect(final String connectionString) {
+        Objects.requireNonNull(connectionString, "connectionString is not supposed to be null");
+        mongoClient = MongoClients.create(
+            MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .applyToClusterSettings(b -> b.addClusterListener(this))
+                .applyToServerSettings(b -> b.heartbeatFrequency(HEARTBEAT_FREQUENCY_MS, TimeUnit.MILLISECONDS)
+                    .minHeartbeatFrequency(MIN_HEARTBEAT_FREQUENCY_MS, TimeUnit.MILLISECONDS))
+                .build()
+        );
+        return this;
+    }
+
+    @Override
+    public void clusterDescriptionChanged(final ClusterDescriptionChangedEvent event) {
+        synchronized (lock) {
+            clusterDescription = event.getNewDescription();
+            lock.notifyAll();
+        }
+        log.debug("Topology changed: {}", event.getNewDescription().getShortDescription());
+    }
+
+    /**
+     * Waits for a single master node.
+     *
+     * @param timeout max time to wait
+     * @return true if there is a master node, false on timeout
+     */
+    public boolean awaitMaster(final Duration timeout) {
+        return await(d -> countServers(d, ServerType.REPLICA_SET_PRIMARY) == 1, timeout);
+    }
+
+    /**
+     * Waits for a single master node other than a previous one.
+     *
+     * @param previousMasterIp   an ip of a previous master node as in a replica set config
+     * @param previousMasterPort a port of a previous master node as in a replica set config
+     * @param timeout            max time to wait
+     * @return true if another node is a master one, false on timeout
+     */
+    public boolean awaitMasterOtherThan(
+        final String previousMasterIp,
+        final int previousMasterPort,
+        final Duration timeout
+    ) {
+        val previousMaster = new ServerAddress(previousMasterIp, previousMasterPort);
+        return await(
+            d -> countServers(d, ServerType.REPLICA_SET_PRIMARY) == 1 &&
+                d.getServerDescriptions().stream().noneMatch(
+                    s -> s.getType() == ServerType.REPLICA_SET_PRIMARY && previousMaster.equals(s.getAddress())
+                ),
+            timeout
+        );
+    }
+
+    /**
+     * Waits until all the nodes the driver knows about are masters, secondaries or arbiters.
+     * Hidden members are not reported by the driver and are not checked.
+     *
+     * @param timeout max time to wait
+     * @return true if all nodes are up, false on timeout
+     */
+    public boolean awaitAllNodesUp(final Duration timeout) {
+        return await(
+            d -> !d.getServerDescriptions().isEmpty() &&
+                d.getServerDescriptions().stream().allMatch(s -> UP_SERVER_TYPES.contains(s.getType())),
+            timeout
+        );
+    }
+
+    /**
+     * Waits until the number of nodes the driver failed to reach is equal to nodeNumber.
+     * <p>Unlike the DOWN state in rs.status(), which is how the other members see a node,
+     * it is how a node is seen from this JVM: a node counts once a heartbeat of the driver fails.
+     * Nodes the driver has not contacted yet are not counted.
+     *
+     * @param nodeNumber the number of nodes to be down
+     * @param timeout    max time to wait
+     * @return true if nodeNumber nodes are down, false on timeout
+     */
+    public boolean awaitNodesDown(final int nodeNumber, final Duration timeout) {
+        return await(
+            d -> d.getServerDescriptions().stream()
+                .filter(s -> s.getType() == ServerType.UNKNOWN && Objects.nonNull(s.getException()))
+                .count() == nodeNumber,
+            timeout
+        );
+    }
+
+    private static long countServers(final ClusterDescription description, final ServerType serverType) {
+        return description.getServerDescriptions().stream()
+            .filter(s -> s.getType() == serverType)
+            .count();
+    }
+
+    /**
+     * Waits for a topology to satisfy a condition.
+     *
+     * @param condition a condition on the latest cluster description
+     * @param timeout   max time to wait
+     * @return true if the condition holds, false on timeout
+     */
+    boolean await(final Predicate<ClusterDescription> condition, final Duration timeout) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lock) {
+            while (Objects.isNull(clusterDescription) || !condition.test(clusterDescription)) {
+                val remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the latest cluster description to report in an error or "none"
+     */
+    public String getShortDescription() {
+        synchronized (lock) {
+            return Objects.isNull(clusterDescription) ? "none" : clusterDescription.getShortDescription();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (Objects.nonNull(mongoClient)) {
+            mongoClient.close();
+            mongoClient = null;
+        }
+    }
+}
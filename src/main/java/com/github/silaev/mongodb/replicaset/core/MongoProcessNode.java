@@ -0,0 +1,172 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.containers.GenericContainer;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A MongoDB node running as a mongod process on its own port and dbpath inside a container
+ * shared by all the nodes of a replica set (see dense).
+ * <p>Looks like a container to the rest of a replica set: commands are run in a shared container,
+ * whereas start, stop and kill apply to a mongod process of a node only.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class MongoProcessNode extends GenericContainer<MongoProcessNode> {
+    private static final String DB_PATH_PREFIX = "/data/db/";
+
+    private final GenericContainer<?> sharedContainer;
+    private final int port;
+    private final String startCommand;
+    private volatile boolean running = true;
+
+    /**
+     * @param sharedContainer a started container all the nodes of a replica set run in
+     * @param port            a port a node listens on, published on the same port of the host if any
+     * @param startCommand    a shell command starting a node in the background
+     */
+    public MongoProcessNode(
+        final GenericContainer<?> sharedContainer,
+        final int port,
+        final String startCommand
+    ) {
+        super(sharedContainer.getDockerImageName());
+        this.sharedContainer = Objects.requireNonNull(sharedContainer, "sharedContainer is not supposed to be null");
+        this.port = port;
+        this.startCommand = Objects.requireNonNull(startCommand, "startCommand is not supposed to be null");
+    }
+
+    /**
+     * Builds a shell command starting a mongod process in the background that returns once it accepts connections.
+     *
+     * @param port    a port of a node
+     * @param options mongod options other than a port, a dbpath, a logpath and a pidfilepath
+     * @return a shell command
+     */
+    public static String buildStartCommand(final int port, final List<String> options) {
+        val dbPath = DB_PATH_PREFIX + port;
+        val sb = new StringBuilder(
+            String.format(
+                "mkdir -p %1$s && mongod --fork --port %2$d --dbpath %1$s --logpath %1$s.log --pidfilepath %1$s.pid",
+                dbPath,
+                port
+            )
+        );
+        options.forEach(option -> sb.append(' ').append(quote(option)));
+        return sb.toString();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Starts a mongod process of a node back, for instance, after stop().
+     */
+    @Override
+    @SneakyThrows(value = {IOException.class, InterruptedException.class})
+    public void start() {
+        val execResult = sharedContainer.execInContainer("bash", "-c", startCommand);
+        if (execResult.getExitCode() != 0) {
+            throw new IllegalStateException(
+                String.format(
+                    "Cannot start a mongod process on port %d: %s %s",
+                    port,
+                    execResult.getStdout(),
+                    execResult.getStderr()
+                )
+            );
+        }
+        running = true;
+    }
+
+    /**
+     * Shuts down a mongod process of a node and waits for it to exit.
+     * Does nothing if a shared container is not running anymore.
+     */
+    @Override
+    public void stop() {
+        signal(String.format("mongod --shutdown --dbpath %s%d", DB_PATH_PREFIX, port));
+    }
+
+    /**
+     * Kills a mongod process of a node with SIGKILL.
+     */
+    public void kill() {
+        signal(String.format("kill -9 $(cat %s%d.pid)", DB_PATH_PREFIX, port));
+    }
+
+    @SneakyThrows(InterruptedException.class)
+    private void signal(final String command) {
+        running = false;
+        if (!sharedContainer.isRunning()) {
+            return;
+        }
+        try {
+            val execResult = sharedContainer.execInContainer("bash", "-c", command);
+            if (execResult.getExitCode() != 0) {
+                log.debug("{} exited with {}: {}", command, execResult.getExitCode(), execResult.getStderr());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot stop a mongod process on port {}", port, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running && sharedContainer.isRunning();
+    }
+
+    @Override
+    public String getContainerId() {
+        return sharedContainer.getContainerId();
+    }
+
+    @Override
+    public InspectContainerResponse getContainerInfo() {
+        return sharedContainer.getContainerInfo();
+    }
+
+    @Override
+    public String getHost() {
+        return sharedContainer.getHost();
+    }
+
+    @Override
+    public List<String> getNetworkAliases() {
+        return sharedContainer.getNetworkAliases();
+    }
+
+    @Override
+    public ExecResult execInContainer(
+        final Charset outputCharset,
+        final String... command
+    ) throws IOException, InterruptedException {
+        return sharedContainer.execInContainer(outputCharset, command);
+    }
+
+    /**
+     * Nodes sharing a container have the same configuration, so they are told apart by identity.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    private static String quote(final String option) {
+        return "'" + option.replace("'", "'\\''") + "'";
+    }
+}
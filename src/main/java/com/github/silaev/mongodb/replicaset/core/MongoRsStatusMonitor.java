@@ -0,0 +1,205 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatusSnapshot;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Refreshes a replica set status on a background thread and serves it from memory
+ * so that reading a status does not cost a command per call.
+ * <p>Listeners are notified of master and member state changes found between two refreshes.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class MongoRsStatusMonitor implements AutoCloseable {
+    private final Supplier<MongoRsStatus> statusSupplier;
+    private final long refreshIntervalMs;
+    private final List<TopologyListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private final Object notificationLock = new Object();
+    private MongoRsStatusSnapshot snapshot;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param statusSupplier    gets a current status from a replica set
+     * @param refreshIntervalMs a delay between two refreshes
+     */
+    public MongoRsStatusMonitor(final Supplier<MongoRsStatus> statusSupplier, final long refreshIntervalMs) {
+        this.statusSupplier = Objects.requireNonNull(statusSupplier, "statusSupplier is not supposed to be null");
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    /**
+     * Takes the first snapshot and starts refreshing it in the background.
+     */
+    public synchronized void start() {
+        if (Objects.nonNull(executor)) {
+            return;
+        }
+        refresh();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "mongo-rs-status-monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+        executor.scheduleWithFixedDelay(
+            this::refreshQuietly,
+            refreshIntervalMs,
+            refreshIntervalMs,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * @return the latest snapshot, taken right away if there is none yet
+     */
+    public MongoRsStatusSnapshot getSnapshot() {
+        synchronized (lock) {
+            if (Objects.nonNull(snapshot)) {
+                return snapshot;
+            }
+        }
+        return refresh();
+    }
+
+    /**
+     * Gets a status right away, for instance, after a replica set has been reconfigured.
+     *
+     * @return a new snapshot or the latest one if a status has not changed
+     */
+    public MongoRsStatusSnapshot refresh() {
+        return update(statusSupplier.get());
+    }
+
+    public void addListener(final TopologyListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener is not supposed to be null"));
+    }
+
+    public void removeListener(final TopologyListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (Objects.nonNull(executor)) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        listeners.clear();
+        synchronized (lock) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Stores a status as a new snapshot if it differs from the latest one and notifies listeners of changes.
+     * <p>Listeners are notified outside the snapshot lock so that a slow listener does not block getSnapshot().
+     * Updates are serialized by a notification lock to deliver changes in the order of snapshot versions.
+     *
+     * @param status a current status
+     * @return the latest snapshot
+     */
+    MongoRsStatusSnapshot update(final MongoRsStatus status) {
+        synchronized (notificationLock) {
+            final MongoRsStatusSnapshot previous;
+            final MongoRsStatusSnapshot current;
+            synchronized (lock) {
+                previous = snapshot;
+                if (Objects.nonNull(previous) && previous.getStatus().equals(status)) {
+                    return previous;
+                }
+                current = MongoRsStatusSnapshot.of(
+                    Objects.isNull(previous) ? 1 : previous.getVersion() + 1,
+                    status,
+                    Instant.now()
+                );
+                snapshot = current;
+            }
+            if (Objects.nonNull(previous)) {
+                notifyListeners(previous.getStatus(), status);
+            }
+            return current;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.debug("Cannot refresh a replica set status, keeping the latest snapshot", e);
+        }
+    }
+
+    private void notifyListeners(final MongoRsStatus previous, final MongoRsStatus current) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        val previousMembers = getMembersByAddress(previous);
+        val currentMembers = getMembersByAddress(current);
+        val previousMaster = findMaster(previousMembers);
+        val currentMaster = findMaster(currentMembers);
+        if (!Objects.equals(
+            previousMaster.map(MongoRsStatusMonitor::getAddress),
+            currentMaster.map(MongoRsStatusMonitor::getAddress)
+        )) {
+            listeners.forEach(
+                l -> notifyQuietly(() -> l.onMasterChanged(previousMaster.orElse(null), currentMaster.orElse(null)))
+            );
+        }
+        val addresses = new LinkedHashSet<>(previousMembers.keySet());
+        addresses.addAll(currentMembers.keySet());
+        for (String address : addresses) {
+            val previousMember = previousMembers.get(address);
+            val currentMember = currentMembers.get(address);
+            if (Objects.isNull(previousMember) || Objects.isNull(currentMember) ||
+                previousMember.getState() != currentMember.getState()) {
+                listeners.forEach(l -> notifyQuietly(() -> l.onMemberStateChanged(previousMember, currentMember)));
+            }
+        }
+    }
+
+    private static void notifyQuietly(final Runnable notification) {
+        try {
+            notification.run();
+        } catch (RuntimeException e) {
+            log.warn("A topology listener failed", e);
+        }
+    }
+
+    private static Map<String, MongoNode> getMembersByAddress(final MongoRsStatus status) {
+        final Map<String, MongoNode> members = new LinkedHashMap<>();
+        Optional.ofNullable(status.getMembers())
+            .orElse(Collections.emptyList())
+            .forEach(m -> members.put(getAddress(m), m));
+        return members;
+    }
+
+    private static Optional<MongoNode> findMaster(final Map<String, MongoNode> members) {
+        return members.values().stream()
+            .filter(m -> m.getState() == ReplicaSetMemberState.PRIMARY)
+            .findFirst();
+    }
+
+    private static String getAddress(final MongoNode node) {
+        return node.getIp() + ":" + node.getPort();
+    }
+}
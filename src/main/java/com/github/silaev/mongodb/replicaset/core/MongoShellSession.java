@@ -0,0 +1,302 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.silaev.mongodb.replicaset.exception.MongoShellSessionException;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.DockerClientFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a single mongo shell running in a container and sends commands to its stdin
+ * instead of starting a new docker exec and a new shell per command.
+ * <p>Each command is sent as one line evaluated by eval and followed by an end marker carrying
+ * its exit code, so several commands can be written at once and read back in order.
+ * quit(code) is redefined to end a command instead of the shell.
+ * <p>A failure is reported as MongoShellSessionException telling whether a command reached a shell.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class MongoShellSession implements AutoCloseable {
+    static final String END_MARKER = "<<<mongo-rs-session-end";
+    private static final Pattern END_PATTERN = Pattern.compile(
+        Pattern.quote(END_MARKER) + " (\\d+) (-?\\d+)>>>\\r?\\n?"
+    );
+    private static final String SETUP_COMMAND =
+        "quit = function (code) {throw {mongoRsSessionExitCode: code === undefined ? 0 : code};}; " +
+            "print(db.version());";
+    private static final Duration SETUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final OutputStream stdin;
+    private final AutoCloseable execStream;
+    private final StringBuilder stdout = new StringBuilder();
+    private final Object lock = new Object();
+    private boolean closed;
+    private long commandId;
+    private String serverVersion;
+
+    MongoShellSession(final OutputStream stdin, final AutoCloseable execStream) {
+        this.stdin = Objects.requireNonNull(stdin, "stdin is not supposed to be null");
+        this.execStream = execStream;
+    }
+
+    /**
+     * Starts a mongo shell in a running container.
+     *
+     * @param containerId a container to run a shell in
+     * @return an open session
+     */
+    public static MongoShellSession open(final String containerId) {
+        return open(containerId, Collections.emptyList());
+    }
+
+    /**
+     * Starts a mongo shell in a running container.
+     *
+     * @param containerId a container to run a shell in
+     * @param options     connection options of the mongo shell, for instance, a port of a node
+     * @return an open session
+     * @throws MongoShellSessionException if a shell does not start
+     */
+    public static MongoShellSession open(final String containerId, final List<String> options) {
+        final DockerClient client = DockerClientFactory.instance().client();
+        val execId = client.execCreateCmd(containerId)
+            .withAttachStdin(true)
+            .withAttachStdout(true)
+            .withAttachStderr(true)
+            .withCmd(
+                Stream.concat(Stream.of("mongo", "--quiet", "--norc"), options.stream())
+                    .toArray(String[]::new)
+            )
+            .exec()
+            .getId();
+        val stdinSource = new QueueInputStream();
+        final MongoShellSession[] session = new MongoShellSession[1];
+        val callback = new ResultCallback.Adapter<Frame>() {
+            @Override
+            public void onNext(final Frame frame) {
+                if (frame.getStreamType() == StreamType.STDOUT || frame.getStreamType() == StreamType.RAW) {
+                    session[0].onStdout(frame.getPayload());
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                session[0].onClosed();
+                super.onComplete();
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                session[0].onClosed();
+                super.onError(throwable);
+            }
+        };
+        session[0] = new MongoShellSession(stdinSource.getOutputStream(), callback);
+        client.execStartCmd(execId).withStdIn(stdinSource).exec(callback);
+        try {
+            session[0].setUp();
+        } catch (MongoShellSessionException e) {
+            session[0].close();
+            throw e;
+        }
+        return session[0];
+    }
+
+    /**
+     * @return a version of a server a session is connected to
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param command JS to evaluate
+     * @param timeout a time to wait for a result
+     * @return an exit code and stdout of a command
+     * @throws MongoShellSessionException if a session is closed or a result does not come in time
+     */
+    public Pair<Integer, String> execute(final String command, final Duration timeout) {
+        return executeAll(Collections.singletonList(command), timeout).get(0);
+    }
+
+    /**
+     * Writes all the commands in one go and reads their results in order.
+     * A session is closed if results do not come in time, as a shell may still be busy with a command.
+     *
+     * @param commands JS commands to evaluate one after another
+     * @param timeout  a time to wait for all the results
+     * @return exit codes and stdout of commands
+     * @throws MongoShellSessionException if a session is closed or results do not come in time
+     */
+    public synchronized List<Pair<Integer, String>> executeAll(final List<String> commands, final Duration timeout) {
+        val deadline = Deadline.after(timeout);
+        if (isClosed()) {
+            throw new MongoShellSessionException("A mongo shell session is closed", false);
+        }
+        val firstId = commandId + 1;
+        val sb = new StringBuilder();
+        for (String command : commands) {
+            sb.append(frame(++commandId, command)).append('\n');
+        }
+        try {
+            stdin.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+        } catch (IOException e) {
+            onClosed();
+            throw new MongoShellSessionException("A mongo shell session is closed", false, e);
+        }
+        final List<Pair<Integer, String>> results = new ArrayList<>(commands.size());
+        try {
+            for (long id = firstId; id <= commandId; id++) {
+                results.add(readResult(id, deadline));
+            }
+        } catch (MongoShellSessionException e) {
+            close();
+            throw e;
+        }
+        return results;
+    }
+
+    public boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    @Override
+    public void close() {
+        onClosed();
+        try {
+            stdin.close();
+            if (Objects.nonNull(execStream)) {
+                execStream.close();
+            }
+        } catch (Exception e) {
+            log.debug("Cannot close a mongo shell session", e);
+        }
+    }
+
+    void onStdout(final byte[] payload) {
+        synchronized (lock) {
+            stdout.append(new String(payload, StandardCharsets.UTF_8));
+            lock.notifyAll();
+        }
+    }
+
+    void onClosed() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    void setUp() {
+        val result = execute(SETUP_COMMAND, SETUP_TIMEOUT);
+        serverVersion = result.getRight().trim();
+    }
+
+    /**
+     * Wraps a command into a single line printing an end marker with an exit code.
+     * An uncaught exception is printed and gives exit code 1 as with mongo --eval.
+     *
+     * @param id      a command id
+     * @param command JS to evaluate
+     * @return a line to write to a shell
+     */
+    static String frame(final long id, final String command) {
+        return String.format(
+            "try {var mongoRsResult = eval(%s); if (mongoRsResult !== undefined) {shellPrintHelper(mongoRsResult);} " +
+                "mongoRsCode = 0;} catch (e) {if (e && e.mongoRsSessionExitCode !== undefined) " +
+                "{mongoRsCode = e.mongoRsSessionExitCode;} else {print(e); mongoRsCode = 1;}} " +
+                "print('%s %d ' + mongoRsCode + '>>>');",
+            toJsStringLiteral(command),
+            END_MARKER,
+            id
+        );
+    }
+
+    private Pair<Integer, String> readResult(final long id, final Deadline deadline) {
+        synchronized (lock) {
+            while (true) {
+                final Matcher matcher = END_PATTERN.matcher(stdout);
+                if (matcher.find()) {
+                    if (Long.parseLong(matcher.group(1)) != id) {
+                        throw new MongoShellSessionException(
+                            String.format("Expected a result of command %d, got %s", id, matcher.group(1)),
+                            true
+                        );
+                    }
+                    val exitCode = Integer.parseInt(matcher.group(2));
+                    val output = stdout.substring(0, matcher.start());
+                    stdout.delete(0, matcher.end());
+                    return Pair.of(exitCode, output);
+                }
+                if (closed) {
+                    throw new MongoShellSessionException("A mongo shell session is closed", true);
+                }
+                val remainingMs = deadline.remaining().toMillis();
+                if (remainingMs <= 0) {
+                    throw new MongoShellSessionException(
+                        String.format("A result of command %d did not come in time", id),
+                        true
+                    );
+                }
+                try {
+                    lock.wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MongoShellSessionException("Interrupted while waiting for a mongo shell", true, e);
+                }
+            }
+        }
+    }
+
+    private static String toJsStringLiteral(final String s) {
+        val sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.Network;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A process-wide pool of Docker networks leased by replica sets and released back on stop()
+ * so that networks are not created and removed per replica set, which the Docker daemon serializes.
+ * <p>Pooled networks are created via Network.newNetwork(), hence Ryuk removes them at the end of a session.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class NetworkPool {
+    private static final int MAX_IDLE_NETWORKS = 8;
+    private static final NetworkPool INSTANCE = new NetworkPool(
+        Network::newNetwork,
+        NetworkPool::hasNoContainers,
+        MAX_IDLE_NETWORKS
+    );
+
+    private final Supplier<Network> networkFactory;
+    private final Predicate<Network> reusable;
+    private final int maxIdleNetworks;
+    private final Deque<Network> idleNetworks = new ArrayDeque<>();
+
+    /**
+     * @param networkFactory  creates a new network
+     * @param reusable        whether a released network can be leased again
+     * @param maxIdleNetworks max number of networks to keep, the rest are closed on release
+     */
+    NetworkPool(
+        final Supplier<Network> networkFactory,
+        final Predicate<Network> reusable,
+        final int maxIdleNetworks
+    ) {
+        this.networkFactory = Objects.requireNonNull(networkFactory, "networkFactory is not supposed to be null");
+        this.reusable = Objects.requireNonNull(reusable, "reusable is not supposed to be null");
+        this.maxIdleNetworks = maxIdleNetworks;
+    }
+
+    public static NetworkPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return an idle network or a new one
+     */
+    public Network lease() {
+        synchronized (idleNetworks) {
+            val network = idleNetworks.pollFirst();
+            if (Objects.nonNull(network)) {
+                log.debug("Leasing a pooled network: {}", network.getId());
+                return network;
+            }
+        }
+        val network = networkFactory.get();
+        log.debug("Created a network for a pool: {}", network.getId());
+        return network;
+    }
+
+    /**
+     * Keeps a network for the next lease unless containers are still attached to it or a pool is full.
+     *
+     * @param network a network leased before
+     */
+    public void release(final Network network) {
+        Objects.requireNonNull(network, "network is not supposed to be null");
+        if (reusable.test(network)) {
+            synchronized (idleNetworks) {
+                if (idleNetworks.size() < maxIdleNetworks) {
+                    idleNetworks.addFirst(network);
+                    return;
+                }
+            }
+        }
+        try {
+            network.close();
+        } catch (RuntimeException e) {
+            log.warn("Cannot remove a network: {}", network.getId(), e);
+        }
+    }
+
+    int getIdleNetworkNumber() {
+        synchronized (idleNetworks) {
+            return idleNetworks.size();
+        }
+    }
+
+    private static boolean hasNoContainers(final Network network) {
+        try {
+            return Optional.ofNullable(
+                DockerClientFactory.instance().client()
+                    .inspectNetworkCmd()
+                    .withNetworkId(network.getId())
+                    .exec()
+                    .getContainers()
+            ).map(Map::isEmpty)
+                .orElse(true);
+        } catch (RuntimeException e) {
+            log.debug("Cannot inspect a network: {}", network.getId(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.ToString;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.testcontainers.containers.Network;
+
+import java.util.Objects;
+
+/**
+ * A Docker network leased from a pool on first use and released back on close(),
+ * so that it can be leased again by the next start() of the same or another replica set.
+ *
+ * @author Konstantin Silaev
+ */
+@ToString(of = "network")
+public class PooledNetwork implements Network {
+    private final NetworkPool pool;
+    private Network network;
+
+    public PooledNetwork(final NetworkPool pool) {
+        this.pool = Objects.requireNonNull(pool, "pool is not supposed to be null");
+    }
+
+    @Override
+    public synchronized String getId() {
+        if (Objects.isNull(network)) {
+            network = pool.lease();
+        }
+        return network.getId();
+    }
+
+    /**
+     * Releases a network to a pool if one has been leased.
+     */
+    @Override
+    public synchronized void close() {
+        if (Objects.nonNull(network)) {
+            pool.release(network);
+            network = null;
+        }
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return base;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs provisioning steps as a directed acyclic graph so that
+ * independent steps (for instance, starting Toxiproxy and MongoDB containers)
+ * overlap in time.
+ * <p>Steps have to be added after their dependencies, which rules out cycles.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class ProvisioningGraph {
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    /**
+     * Adds a step to a graph.
+     *
+     * @param name         a unique step name
+     * @param action       an action to run
+     * @param dependencies names of steps to complete before running the action
+     * @return this graph
+     */
+    public ProvisioningGraph addStep(
+        final String name,
+        final Runnable action,
+        final String... dependencies
+    ) {
+        Objects.requireNonNull(name, "name is not supposed to be null");
+        Objects.requireNonNull(action, "action is not supposed to be null");
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException(String.format("Step %s is already added", name));
+        }
+        final List<Step> dependencySteps = Arrays.stream(dependencies)
+            .map(d -> {
+                    final Step step = steps.get(d);
+                    if (Objects.isNull(step)) {
+                        throw new IllegalArgumentException(
+                            String.format("Step %s depends on unknown step %s", name, d)
+                        );
+                    }
+                    return step;
+                }
+            ).collect(Collectors.toList());
+        steps.put(name, new Step(name, action, dependencySteps));
+        return this;
+    }
+
+    /**
+     * Runs all the steps, waits for them to complete and reports a critical path.
+     *
+     * @param executor an executor to run steps on
+     * @return the critical path of a graph
+     * @throws MongoNodeInitializationException if any step fails
+     */
+    public List<String> execute(final Executor executor) {
+        val startedAt = System.nanoTime();
+        steps.values().forEach(step -> step.future = CompletableFuture.allOf(
+            step.dependencies.stream()
+                .map(d -> d.future)
+                .toArray(CompletableFuture[]::new)
+        ).thenRunAsync(step::run, executor));
+
+        try {
+            CompletableFuture.allOf(
+                steps.values().stream().map(s -> s.future).toArray(CompletableFuture[]::new)
+            ).join();
+        } catch (CompletionException e) {
+            val cause = steps.values().stream()
+                .map(s -> s.error)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(e.getCause());
+            throw new MongoNodeInitializationException("Provisioning step failed", cause);
+        }
+
+        val criticalPath = getCriticalPath();
+        log.debug(
+            "Provisioning took {} ms, critical path: {}",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+            criticalPath.stream()
+                .map(steps::get)
+                .map(s -> String.format("%s(%d ms)", s.getName(), s.getDurationMillis()))
+                .collect(Collectors.joining(" -> "))
+        );
+        return criticalPath;
+    }
+
+    /**
+     * Walks back from the step finished last through the dependencies finished last.
+     *
+     * @return step names from the first to the last one
+     */
+    List<String> getCriticalPath() {
+        final Comparator<Step> finishedLast = Comparator.comparingLong(s -> s.finishedAt);
+        final List<String> path = new ArrayList<>();
+        Step current = steps.values().stream().max(finishedLast).orElse(null);
+        while (Objects.nonNull(current)) {
+            path.add(current.getName());
+            current = current.dependencies.stream().max(finishedLast).orElse(null);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Step {
+        @Getter
+        private final String name;
+        private final Runnable action;
+        private final List<Step> dependencies;
+        private volatile CompletableFuture<Void> future;
+        private volatile Throwable error;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private void run() {
+            startedAt = System.nanoTime();
+            try {
+                action.run();
+            } catch (RuntimeException | Error e) {
+                error = e;
+                throw e;
+            } finally {
+                finishedAt = System.nanoTime();
+            }
+        }
+
+        private long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt);
+        }
+    }
+}
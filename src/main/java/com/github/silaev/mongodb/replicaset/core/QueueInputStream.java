@@ -0,0 +1,110 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * An input stream fed by its output stream via a queue, for instance, stdin of a long-lived docker exec.
+ * <p>Unlike PipedInputStream, it is not tied to the threads on either end, so it keeps working
+ * when the threads writing to it come and go, for instance, executor threads shut down after provisioning.
+ *
+ * @author Konstantin Silaev
+ */
+class QueueInputStream extends InputStream {
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+    private final QueueOutputStream outputStream = new QueueOutputStream();
+    private byte[] chunk;
+    private int position;
+    private boolean ended;
+    private volatile boolean writerClosed;
+
+    /**
+     * @return an output stream whose bytes this stream reads, closing it ends this stream
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public synchronized int available() {
+        return ended || chunk == null ? 0 : chunk.length - position;
+    }
+
+    @Override
+    public void close() {
+        outputStream.close();
+    }
+
+    /**
+     * Blocks until there are bytes to read or the stream ends.
+     *
+     * @return false if the stream has ended
+     */
+    private boolean nextChunk() throws IOException {
+        while (!ended && (chunk == null || position == chunk.length)) {
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input");
+            }
+            position = 0;
+            ended = chunk == END_OF_STREAM;
+        }
+        return !ended;
+    }
+
+    private class QueueOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (writerClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (len > 0) {
+                chunks.add(Arrays.copyOfRange(b, off, off + len));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!writerClosed) {
+                writerClosed = true;
+                chunks.add(END_OF_STREAM);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.MongoDbReplicaSet;
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.output.OutputFrame;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A bootstrap script the first working node runs once its mongod accepts connections (see selfInitialize),
+ * so that a replica set is initiated by the time containers are started instead of via docker exec.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class ReplicaSetBootstrap {
+    private static final String SCRIPT_PATH = "/docker-entrypoint-rs-bootstrap.js";
+    private static final String READY_MSG = "Replica set bootstrap is done:";
+    private static final String FAILED_MSG = "Replica set bootstrap failed";
+
+    private final String script;
+
+    /**
+     * Generates a script retrying rs.initiate until all members are reachable,
+     * stepping up the first member if needed and waiting for a replica set to be ready.
+     *
+     * @param initiateCommand     JS running rs.initiate and returning its result
+     * @param initiateTimeout     a time to retry rs.initiate for
+     * @param stepUpCommand       JS making the first member a master node or an empty string
+     * @param waitForReadyCommand JS waiting for a replica set to be ready, see {@link #buildReadyCondition(boolean)}
+     */
+    public ReplicaSetBootstrap(
+        final String initiateCommand,
+        final Duration initiateTimeout,
+        final String stepUpCommand,
+        final String waitForReadyCommand
+    ) {
+        Objects.requireNonNull(initiateCommand, "initiateCommand is not supposed to be null");
+        this.script = String.format(
+            "var attempt = 0; var initiateDeadline = Date.now() + %2$d; %1$s " +
+                "while (cfg.ok !== 1 && cfg.codeName !== 'AlreadyInitialized') { " +
+                "if (Date.now() > initiateDeadline) {print(tojson(cfg)); quit(1);} " +
+                "print('%3$s rs.initiate ' + attempt); sleep(1000); attempt++; %1$s }%n" +
+                "%6$s%n" +
+                "%4$s%n" +
+                "print('%5$s ' + db.version() + ' ' + rs.status().members.find(o => o.state === 1).name);",
+            "cfg = " + initiateCommand,
+            initiateTimeout.toMillis(),
+            MongoDbReplicaSet.WAITING_MSG,
+            waitForReadyCommand,
+            READY_MSG,
+            stepUpCommand
+        );
+    }
+
+    /**
+     * @param withArbiter whether a replica set has an arbiter node
+     * @return JS checking that there is a master node and an arbiter node (if any)
+     */
+    public static String buildReadyCondition(final boolean withArbiter) {
+        return "rs.status().members.filter(o => o.state === 1).length === 1" +
+            (withArbiter ? " && rs.status().members.find(o => o.state === 7) !== undefined" : "");
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    /**
+     * Makes a node run a bootstrap script once its mongod accepts connections.
+     * A failed script kills mongod and prints a failure line so that waiting stops early.
+     *
+     * @param mongoContainer a node to initiate a replica set from
+     * @param shellOptions   mongo shell options to connect to a node
+     * @param timeout        a time to wait for a replica set to be ready, including a container startup
+     */
+    @SneakyThrows(IOException.class)
+    public void applyTo(
+        final GenericContainer<?> mongoContainer,
+        final String shellOptions,
+        final Duration timeout
+    ) {
+        val scriptFile = Files.createTempFile("mongo-rs-bootstrap", ".js");
+        scriptFile.toFile().deleteOnExit();
+        Files.write(scriptFile, script.getBytes(StandardCharsets.UTF_8));
+        mongoContainer.withCopyFileToContainer(MountableFile.forHostPath(scriptFile, 0644), SCRIPT_PATH)
+            .withCreateContainerCmdModifier(
+                cmd -> cmd.withEntrypoint(
+                    "bash",
+                    "-c",
+                    String.format(
+                        "docker-entrypoint.sh mongod \"$@\" & pid=$!; " +
+                            "until mongo %1$s --quiet --eval 'db.adminCommand({ping: 1})' > /dev/null 2>&1; " +
+                            "do sleep 0.1; done; " +
+                            "mongo %1$s %2$s || { echo '%3$s'; kill $pid; }; " +
+                            "wait $pid",
+                        shellOptions,
+                        SCRIPT_PATH,
+                        FAILED_MSG
+                    ),
+                    "bash"
+                )
+            ).waitingFor(
+                Wait.forLogMessage(String.format(".*(%s|%s).*", READY_MSG, FAILED_MSG), 1)
+            ).withStartupTimeout(timeout)
+            .withStartupAttempts(1);
+    }
+
+    /**
+     * Checks a readiness line printed by a bootstrap script.
+     *
+     * @param bootstrapNode a node that ran a bootstrap script
+     * @return a MongoDB version of a node
+     * @throws MongoNodeInitializationException if a bootstrap script failed
+     */
+    public String verify(final GenericContainer<?> bootstrapNode) {
+        val logs = bootstrapNode.getLogs(OutputFrame.OutputType.STDOUT);
+        val readyLine = Arrays.stream(logs.split("\n"))
+            .filter(line -> line.startsWith(READY_MSG))
+            .findFirst()
+            .orElseThrow(() -> new MongoNodeInitializationException(
+                    String.format("Error occurred while bootstrapping a replica set: %s", logs)
+                )
+            );
+        log.debug("Bootstrapped a replica set: {}", readyLine);
+        return readyLine.substring(READY_MSG.length()).trim().split(" ")[0];
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import eu.rekawek.toxiproxy.Proxy;
+import eu.rekawek.toxiproxy.ToxiproxyClient;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.ToxiproxyContainer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps containers of a replica set across JVMs (see reuse): labels them by a replica set fingerprint
+ * and a node role, finds them on the next run and checks whether they still form a healthy replica set.
+ * <p>Requires testcontainers.reuse.enable=true in ~/.testcontainers.properties, which is checked by a caller.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class ReplicaSetReuse {
+    private static final String FINGERPRINT_LABEL = "com.github.silaev.mongodb.replicaset.fingerprint";
+    private static final String ROLE_LABEL = "com.github.silaev.mongodb.replicaset.role";
+    private static final String NETWORK_NAME_PREFIX = "mongo-rs-";
+    private static final Set<ReplicaSetMemberState> HEALTHY_MEMBER_STATES = EnumSet.of(
+        ReplicaSetMemberState.PRIMARY,
+        ReplicaSetMemberState.SECONDARY,
+        ReplicaSetMemberState.ARBITER
+    );
+
+    private final String fingerprint;
+
+    public ReplicaSetReuse(final String fingerprint) {
+        this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint is not supposed to be null");
+    }
+
+    /**
+     * @return a network named by a fingerprint that survives a JVM
+     */
+    public Network newNetwork() {
+        return new ReusableNetwork(NETWORK_NAME_PREFIX + fingerprint, FINGERPRINT_LABEL, fingerprint);
+    }
+
+    /**
+     * Makes a container reusable across JVMs.
+     * Labels make the Testcontainers config hash of each node unique and
+     * a fixed network alias replaces a random one so that the hash is stable.
+     *
+     * @param container a container to modify
+     * @param role      a unique name of a container in a replica set
+     * @param alias     a network alias
+     */
+    public void withReuse(
+        final GenericContainer<?> container,
+        final String role,
+        final String alias
+    ) {
+        container.withReuse(true)
+            .withLabel(FINGERPRINT_LABEL, fingerprint)
+            .withLabel(ROLE_LABEL, role);
+        container.setNetworkAliases(new ArrayList<>(Collections.singletonList(alias)));
+    }
+
+    /**
+     * Deletes proxies left by a previous run on a reused Toxiproxy container
+     * so that getProxy recreates them on the same ports.
+     *
+     * @param toxiproxy a Toxiproxy container
+     */
+    public void deleteToxiproxyProxies(final ToxiproxyContainer toxiproxy) {
+        try {
+            for (Proxy proxy : new ToxiproxyClient(toxiproxy.getHost(), toxiproxy.getControlPort()).getProxies()) {
+                proxy.delete();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not control proxy", e);
+        }
+    }
+
+    /**
+     * Finds running containers of a replica set with the same fingerprint left by a previous run.
+     *
+     * @return roles of reusable containers
+     */
+    public Set<String> findContainerRoles() {
+        return DockerClientFactory.instance().client().listContainersCmd()
+            .withLabelFilter(Collections.singletonMap(FINGERPRINT_LABEL, fingerprint))
+            .exec()
+            .stream()
+            .map(c -> c.getLabels().get(ROLE_LABEL))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Removes containers of a replica set with the same fingerprint, running or not,
+     * for instance, after a reused replica set turned out to be unhealthy.
+     */
+    public void removeContainers() {
+        val client = DockerClientFactory.instance().client();
+        client.listContainersCmd()
+            .withShowAll(true)
+            .withLabelFilter(Collections.singletonMap(FINGERPRINT_LABEL, fingerprint))
+            .exec()
+            .forEach(c -> {
+                    log.debug("Removing a container of a reusable replica set: {}", c.getId());
+                    client.removeContainerCmd(c.getId())
+                        .withForce(true)
+                        .withRemoveVolumes(true)
+                        .exec();
+                }
+            );
+    }
+
+    /**
+     * Checks whether reused nodes form a healthy replica set: every expected member is up
+     * and there is a single master node.
+     *
+     * @param expectedHosts ip:port of every node as registered in a replica set config
+     * @param mongoRsStatus a replica set status read from a reused node
+     * @throws MongoNodeInitializationException if a reused replica set is unhealthy
+     */
+    public void verifyHealthy(final Set<String> expectedHosts, final MongoRsStatus mongoRsStatus) {
+        final List<MongoNode> members = Optional.ofNullable(mongoRsStatus.getMembers())
+            .orElse(Collections.emptyList());
+        final Set<String> actualHosts = members.stream()
+            .filter(n -> HEALTHY_MEMBER_STATES.contains(n.getState()))
+            .map(n -> n.getIp() + ":" + n.getPort())
+            .collect(Collectors.toSet());
+        final long masterNumber = members.stream()
+            .filter(n -> n.getState() == ReplicaSetMemberState.PRIMARY)
+            .count();
+        if (Objects.equals(mongoRsStatus.getStatus(), 1) &&
+            members.size() == expectedHosts.size() &&
+            expectedHosts.equals(actualHosts) &&
+            masterNumber == 1) {
+            log.debug("Reusing a replica set with fingerprint: {}", fingerprint);
+            return;
+        }
+        throw new MongoNodeInitializationException(
+            String.format(
+                "Cannot reuse a replica set with fingerprint %s, expected members: %s, actual status: %s",
+                fingerprint, expectedHosts, mongoRsStatus
+            )
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.model.MongoSocketAddress;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Takes a snapshot of an initialized replica set and finds one to start from (see snapshot),
+ * storing nodes as {@link SnapshotImages}.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class ReplicaSetSnapshot {
+    private static final String DB_PATH = "/data/snapshot-db";
+
+    private final String fingerprint;
+    private final SnapshotImages snapshotImages;
+
+    public ReplicaSetSnapshot(final String fingerprint) {
+        this(fingerprint, new SnapshotImages(fingerprint));
+    }
+
+    /**
+     * Constructor for unit tests.
+     *
+     * @param fingerprint    a replica set fingerprint
+     * @param snapshotImages images of nodes
+     */
+    ReplicaSetSnapshot(final String fingerprint, final SnapshotImages snapshotImages) {
+        this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint is not supposed to be null");
+        this.snapshotImages = Objects.requireNonNull(snapshotImages, "snapshotImages is not supposed to be null");
+    }
+
+    /**
+     * Makes a MongoDB node keep data outside the /data/db volume
+     * because Docker does not commit volumes into an image.
+     *
+     * @param mongoContainer a MongoDB node to modify
+     */
+    public void withDbPath(final GenericContainer<?> mongoContainer) {
+        mongoContainer.withCreateContainerCmdModifier(
+            cmd -> cmd.withEntrypoint(
+                "bash",
+                "-c",
+                String.format(
+                    "mkdir -p %1$s && chown -R mongodb:mongodb %1$s && " +
+                        "exec docker-entrypoint.sh mongod --dbpath %1$s \"$@\"",
+                    DB_PATH
+                ),
+                "bash"
+            )
+        );
+    }
+
+    /**
+     * Finds host ports nodes were published on when a snapshot was taken.
+     *
+     * @param roles unique names of nodes in a replica set
+     * @return host ports in the order of roles or empty if any node has no snapshot
+     */
+    public Optional<List<Integer>> findHostPorts(final List<String> roles) {
+        final List<Integer> hostPorts = roles.stream()
+            .map(snapshotImages::findHostPort)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toList());
+        if (hostPorts.size() != roles.size()) {
+            log.debug("No complete snapshot of a replica set with fingerprint: {}", fingerprint);
+            return Optional.empty();
+        }
+        return Optional.of(hostPorts);
+    }
+
+    public String getImageName(final String role) {
+        return snapshotImages.getImageName(role);
+    }
+
+    /**
+     * Flushes data of each node to disk and commits it into an image.
+     * A failure is logged and ignored as a snapshot is only an optimization.
+     *
+     * @param nodes nodes and their addresses by role
+     * @param flush a command flushing data of a node to disk
+     */
+    public void take(
+        final Map<String, Pair<GenericContainer, MongoSocketAddress>> nodes,
+        final Consumer<GenericContainer> flush
+    ) {
+        try {
+            nodes.forEach((role, node) -> {
+                    flush.accept(node.getLeft());
+                    snapshotImages.commit(
+                        node.getLeft().getContainerId(),
+                        role,
+                        node.getRight().getMappedPort()
+                    );
+                }
+            );
+        } catch (Exception e) {
+            log.warn("Cannot take a snapshot of a replica set with fingerprint: {}", fingerprint, e);
+        }
+    }
+}
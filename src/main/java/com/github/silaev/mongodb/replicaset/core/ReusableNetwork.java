@@ -0,0 +1,82 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.dockerjava.api.DockerClient;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.Network;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A Docker network that survives a JVM so that containers attached to it can be reused.
+ * <p>It is looked up by name and created on demand with a label.
+ * Unlike Network.newNetwork(), it has no Testcontainers session label,
+ * hence it is neither removed by Ryuk nor by close().
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+@ToString(of = {"name", "id"})
+public class ReusableNetwork implements Network {
+    private final String name;
+    private final Map<String, String> labels;
+    private volatile String id;
+
+    public ReusableNetwork(final String name, final String labelKey, final String labelValue) {
+        this.name = Objects.requireNonNull(name, "name is not supposed to be null");
+        this.labels = Collections.singletonMap(labelKey, labelValue);
+    }
+
+    @Override
+    public synchronized String getId() {
+        if (Objects.isNull(id)) {
+            final DockerClient client = DockerClientFactory.instance().client();
+            id = client.listNetworksCmd()
+                .withNameFilter(name)
+                .exec()
+                .stream()
+                .filter(n -> name.equals(n.getName()))
+                .map(com.github.dockerjava.api.model.Network::getId)
+                .findFirst()
+                .orElseGet(() -> {
+                        log.debug("Creating a reusable network: {}", name);
+                        return client.createNetworkCmd()
+                            .withName(name)
+                            .withCheckDuplicate(true)
+                            .withLabels(labels)
+                            .exec()
+                            .getId();
+                    }
+                );
+        }
+        return id;
+    }
+
+    /**
+     * Keeps a network for the next run.
+     */
+    @Override
+    public void close() {
+        log.debug("Keeping a reusable network: {}", name);
+    }
+
+    /**
+     * Removes a network for good.
+     */
+    public synchronized void remove() {
+        if (Objects.nonNull(id)) {
+            DockerClientFactory.instance().client().removeNetworkCmd(id).exec();
+            id = null;
+        }
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return base;
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.dockerjava.api.exception.NotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.testcontainers.DockerClientFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Stores MongoDB nodes of an initialized replica set as local Docker images,
+ * one per node, tagged by a replica set fingerprint and a node role.
+ * <p>A host port each node was published on is kept as an image label
+ * because a replica set config refers to nodes by host ports.
+ * <p>Images are labeled with SNAPSHOT_LABEL set to a fingerprint and outlive a Testcontainers session,
+ * so they are removed by hand, for instance,
+ * {@code docker image rm $(docker image ls -q --filter label=com.github.silaev.mongodb.replicaset.snapshot)}.
+ *
+ * @author Konstantin Silaev
+ */
+@Slf4j
+public class SnapshotImages {
+    public static final String REPOSITORY = "mongodb-replica-set-snapshot";
+    public static final String SNAPSHOT_LABEL = "com.github.silaev.mongodb.replicaset.snapshot";
+    static final String HOST_PORT_LABEL = "com.github.silaev.mongodb.replicaset.host-port";
+
+    private final String fingerprint;
+
+    public SnapshotImages(final String fingerprint) {
+        this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint is not supposed to be null");
+    }
+
+    public String getImageName(final String role) {
+        return REPOSITORY + ":" + getTag(role);
+    }
+
+    /**
+     * Finds a host port a node was published on when its snapshot was taken.
+     *
+     * @param role a unique name of a node in a replica set
+     * @return a host port or empty if there is no snapshot of a node
+     */
+    public Optional<Integer> findHostPort(final String role) {
+        try {
+            val image = DockerClientFactory.instance().client()
+                .inspectImageCmd(getImageName(role))
+                .exec();
+            return Optional.ofNullable(image.getConfig())
+                .map(com.github.dockerjava.api.model.ContainerConfig::getLabels)
+                .map(labels -> labels.get(HOST_PORT_LABEL))
+                .map(Integer::valueOf);
+        } catch (NotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Commits a container into an image replacing a previous snapshot of the same node.
+     * <p>An image inherits labels of a container, including the Testcontainers session label
+     * Ryuk removes images by at the end of a session. The label is set to an empty value
+     * so that a snapshot is kept for the next session, which is what a snapshot is for.
+     *
+     * @param containerId a container of a node
+     * @param role        a unique name of a node in a replica set
+     * @param hostPort    a host port a node is published on
+     */
+    public void commit(final String containerId, final String role, final int hostPort) {
+        final Map<String, String> labels = new HashMap<>();
+        labels.put(SNAPSHOT_LABEL, fingerprint);
+        labels.put(HOST_PORT_LABEL, String.valueOf(hostPort));
+        labels.put(DockerClientFactory.TESTCONTAINERS_SESSION_ID_LABEL, "");
+        val imageId = DockerClientFactory.instance().client()
+            .commitCmd(containerId)
+            .withRepository(REPOSITORY)
+            .withTag(getTag(role))
+            .withLabels(labels)
+            .withPause(true)
+            .exec();
+        log.debug("Committed a snapshot of {} as {}: {}", role, getImageName(role), imageId);
+    }
+
+    private String getTag(final String role) {
+        return fingerprint + "-" + role;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+
+/**
+ * Receives changes of a replica set topology found by MongoRsStatusMonitor.
+ * Methods are called on a monitor thread and are not supposed to block.
+ *
+ * @author Konstantin Silaev
+ */
+public interface TopologyListener {
+    /**
+     * @param previousMaster a previous master node or null if there was none
+     * @param currentMaster  a current master node or null if there is none
+     */
+    default void onMasterChanged(final MongoNode previousMaster, final MongoNode currentMaster) {
+    }
+
+    /**
+     * @param previous a member before a change or null if it has been added
+     * @param current  a member after a change or null if it has been removed
+     */
+    default void onMemberStateChanged(final MongoNode previous, final MongoNode current) {
+    }
+}
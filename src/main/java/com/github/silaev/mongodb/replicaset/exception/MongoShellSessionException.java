@@ -0,0 +1,31 @@
+package com.github.silaev.mongodb.replicaset.exception;
+
+/**
+ * Thrown when a long-lived mongo shell session fails.
+ * Tells whether a command had reached a shell, as only a command that had not
+ * can be safely run again in another way.
+ *
+ * @author Konstantin Silaev
+ */
+public class MongoShellSessionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean commandSent;
+
+    public MongoShellSessionException(String message, boolean commandSent) {
+        super(message);
+        this.commandSent = commandSent;
+    }
+
+    public MongoShellSessionException(String message, boolean commandSent, Throwable cause) {
+        super(message, cause);
+        this.commandSent = commandSent;
+    }
+
+    /**
+     * @return true if a command might have been run by a shell
+     */
+    public boolean isCommandSent() {
+        return commandSent;
+    }
+}
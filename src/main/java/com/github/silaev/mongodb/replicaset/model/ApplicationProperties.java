@@ -3,6 +3,7 @@ package com.github.silaev.mongodb.replicaset.model;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -23,4 +24,28 @@ public class ApplicationProperties {
     private final int slaveDelayNumber;
     private final boolean useHostDockerInternal;
     private final List<String> commandLineOptions;
+    private final boolean parallelProvisioning;
+    private final boolean initiateWithArbiter;
+    private final boolean reuse;
+    private final boolean snapshot;
+    private final boolean selfInitialize;
+    private final boolean deterministicElection;
+    private final boolean driverTopologyMonitor;
+    private final boolean shellSession;
+    private final boolean driverControlPlane;
+    private final boolean statusMonitor;
+    private final boolean parallelTeardown;
+    private final boolean backgroundTeardown;
+    private final boolean startOnBuild;
+    private final boolean returnOnMasterReady;
+    private final boolean hostNetwork;
+    private final boolean dense;
+    private final boolean directNetwork;
+    private final boolean networkPool;
+    private final boolean sharedDockerHost;
+    private final Duration startTimeout;
+    private final Duration containerStartupTimeout;
+    private final Duration electionTimeout;
+    private final Duration arbiterTimeout;
+    private final Duration reelectionTimeout;
 }
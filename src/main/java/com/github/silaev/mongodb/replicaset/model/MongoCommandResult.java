@@ -0,0 +1,15 @@
+package com.github.silaev.mongodb.replicaset.model;
+
+import lombok.Value;
+
+/**
+ * An exit code and output of a command run on a node either via mongo --eval or in a shell session.
+ *
+ * @author Konstantin Silaev
+ */
+@Value(staticConstructor = "of")
+public class MongoCommandResult {
+    int exitCode;
+    String stdout;
+    String stderr;
+}
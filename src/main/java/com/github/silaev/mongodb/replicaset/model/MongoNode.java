@@ -3,7 +3,7 @@ package com.github.silaev.mongodb.replicaset.model;
 import lombok.Value;
 
 /**
- * Immutable class to load data via SnakeYml.
+ * Immutable class filled by a replica set status converter.
  * Describes a mongo node to use in public API.
  *
  * @author Konstantin Silaev
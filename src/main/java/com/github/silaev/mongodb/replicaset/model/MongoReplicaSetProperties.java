@@ -14,4 +14,12 @@ import lombok.NoArgsConstructor;
 public class MongoReplicaSetProperties {
     private Boolean enabled;
     private String mongoDockerImageName;
+    /*
+     * Timeouts as ISO-8601 durations, for instance, PT30S
+     */
+    private String startTimeout;
+    private String containerStartupTimeout;
+    private String electionTimeout;
+    private String arbiterTimeout;
+    private String reelectionTimeout;
 }
@@ -5,7 +5,7 @@ import lombok.Value;
 import java.util.List;
 
 /**
- * Immutable class to load data via SnakeYml.
+ * Immutable class filled by a replica set status converter.
  * Describing a mongo cluster to use in public API.
  *
  * @author Konstantin Silaev
@@ -0,0 +1,18 @@
+package com.github.silaev.mongodb.replicaset.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Immutable replica set status cached by a status monitor.
+ * A version grows by one on every change of a status.
+ *
+ * @author Konstantin Silaev
+ */
+@Value(staticConstructor = "of")
+public class MongoRsStatusSnapshot {
+    long version;
+    MongoRsStatus status;
+    Instant takenAt;
+}
@@ -3,6 +3,7 @@ package com.github.silaev.mongodb.replicaset.model;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -23,4 +24,28 @@ public final class UserInputProperties {
     private final Integer slaveDelayNumber;
     private final Boolean useHostDockerInternal;
     private final List<String> commandLineOptions;
+    private final Boolean parallelProvisioning;
+    private final Boolean initiateWithArbiter;
+    private final Boolean reuse;
+    private final Boolean snapshot;
+    private final Boolean selfInitialize;
+    private final Boolean deterministicElection;
+    private final Boolean driverTopologyMonitor;
+    private final Boolean shellSession;
+    private final Boolean driverControlPlane;
+    private final Boolean statusMonitor;
+    private final Boolean parallelTeardown;
+    private final Boolean backgroundTeardown;
+    private final Boolean startOnBuild;
+    private final Boolean returnOnMasterReady;
+    private final Boolean hostNetwork;
+    private final Boolean dense;
+    private final Boolean directNetwork;
+    private final Boolean networkPool;
+    private final Boolean sharedDockerHost;
+    private final Duration startTimeout;
+    private final Duration containerStartupTimeout;
+    private final Duration electionTimeout;
+    private final Duration arbiterTimeout;
+    private final Duration reelectionTimeout;
 }
@@ -0,0 +1,34 @@
+package com.github.silaev.mongodb.replicaset.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for provisioning work that should never keep a JVM alive.
+ *
+ * @author Konstantin Silaev
+ */
+public class ExecutorUtils {
+    private ExecutorUtils() {
+    }
+
+    /**
+     * Creates a bounded thread pool of daemon threads.
+     *
+     * @param namePrefix a prefix of a thread name
+     * @param threads    the number of threads in a pool
+     * @return a new fixed thread pool
+     */
+    public static ExecutorService newFixedDaemonThreadPool(final String namePrefix, final int threads) {
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(
+            Math.max(1, threads),
+            r -> {
+                final Thread thread = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+}
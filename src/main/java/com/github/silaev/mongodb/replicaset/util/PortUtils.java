@@ -0,0 +1,54 @@
+package com.github.silaev.mongodb.replicaset.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.Locale;
+
+/**
+ * Finds host ports to publish containers on.
+ * <p>A port is probed in the network namespace of the JVM, so it only tells about a Docker host
+ * when a Docker daemon is local and the JVM does not run in a container.
+ *
+ * @author Konstantin Silaev
+ */
+public class PortUtils {
+    private PortUtils() {
+    }
+
+    /**
+     * Finds a port that is free at the moment of a call.
+     * Another process may take it before it is used, so a caller should be ready to retry.
+     *
+     * @return a free local port
+     */
+    public static int findFreePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot find a free port", e);
+        }
+    }
+
+    /**
+     * Tells whether a container failed to start because a host port it was to be published on,
+     * or a port its process was to listen on, had been taken by someone else after it was found free.
+     *
+     * @param throwable a failure of starting a container
+     * @return true if retrying with other ports may help
+     */
+    public static boolean isPortConflict(final Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            final String message = t.getMessage();
+            if (message != null) {
+                final String lowerCaseMessage = message.toLowerCase(Locale.ENGLISH);
+                if (lowerCaseMessage.contains("port is already allocated") ||
+                    lowerCaseMessage.contains("address already in use")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
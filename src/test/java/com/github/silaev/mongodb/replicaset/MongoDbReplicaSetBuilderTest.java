@@ -8,6 +8,8 @@ import org.junit.jupiter.api.function.Executable;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -212,6 +214,130 @@ class MongoDbReplicaSetBuilderTest {
         assertThat(replicaSet.getAddArbiter()).isFalse();
     }
 
+    @Test
+    void shouldGetDefaultParallelProvisioning() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getParallelProvisioning()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.PARALLEL_PROVISIONING_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultReuse() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getReuse()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.REUSE_DEFAULT
+        );
+        assertThat(replicaSet.getFingerprint()).hasSize(16);
+    }
+
+    @Test
+    void shouldGetDefaultSnapshot() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getSnapshot()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.SNAPSHOT_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultSelfInitialize() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getSelfInitialize()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.SELF_INITIALIZE_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultDeterministicElection() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getDeterministicElection()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.DETERMINISTIC_ELECTION_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultShellSession() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getShellSession()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.SHELL_SESSION_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultDriverControlPlane() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getDriverControlPlane()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.DRIVER_CONTROL_PLANE_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultDense() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getDense()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.DENSE_DEFAULT
+        );
+    }
+
+    @Test
+    void shouldGetDefaultTimeouts() {
+        //GIVEN
+
+        //WHEN
+        val replicaSet = MongoDbReplicaSet.builder().build();
+
+        //THEN
+        assertThat(replicaSet.getStartTimeout()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.START_TIMEOUT_DEFAULT
+        );
+        assertThat(replicaSet.getContainerStartupTimeout()).isEqualTo(
+            UserInputToApplicationPropertiesConverter.CONTAINER_STARTUP_TIMEOUT_DEFAULT
+        );
+        assertThat(replicaSet.getElectionTimeout()).isEqualTo(
+            Duration.ofSeconds(UserInputToApplicationPropertiesConverter.AWAIT_NODE_INIT_ATTEMPTS)
+        );
+    }
+
     @Test
     void shouldGetEnabledFromSystemProperty() {
         //GIVEN
@@ -0,0 +1,193 @@
+package com.github.silaev.mongodb.replicaset;
+
+import com.github.silaev.mongodb.replicaset.exception.IncorrectUserInputException;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Konstantin Silaev
+ */
+class MongoDbReplicaSetPoolTest {
+    private static final String FINGERPRINT = "0123456789abcdef";
+    private final List<Runnable> pendingWarmUps = new ArrayList<>();
+    private final Executor warmUpExecutor = pendingWarmUps::add;
+    private final Executor cleanupExecutor = Runnable::run;
+    private final List<MongoDbReplicaSet> created = new ArrayList<>();
+    private final Supplier<MongoDbReplicaSet> factory = () -> {
+        val replicaSet = mock(MongoDbReplicaSet.class);
+        when(replicaSet.getFingerprint()).thenReturn(FINGERPRINT);
+        created.add(replicaSet);
+        return replicaSet;
+    };
+
+    @Test
+    void shouldLeaseWarmReplicaSetWithUniqueDatabase() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(2, warmUpExecutor, cleanupExecutor);
+        pool.warmUp(FINGERPRINT, factory);
+        runPendingWarmUps();
+
+        //WHEN
+        val lease1 = pool.lease(FINGERPRINT, factory);
+        val lease2 = pool.lease(FINGERPRINT, factory);
+
+        //THEN
+        assertThat(lease1.getDatabaseName()).startsWith("test_").isNotEqualTo(lease2.getDatabaseName());
+        assertThat(lease1.getReplicaSet()).isNotSameAs(lease2.getReplicaSet());
+        assertThat(created).containsExactly(lease1.getReplicaSet(), lease2.getReplicaSet());
+        verify(lease1.getReplicaSet()).start();
+        verify(lease2.getReplicaSet()).start();
+    }
+
+    @Test
+    void shouldBuildReplicaSetOnlyOnPoolMiss() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(1, warmUpExecutor, cleanupExecutor);
+        pool.warmUp(FINGERPRINT, factory);
+        runPendingWarmUps();
+
+        //WHEN
+        pool.lease(FINGERPRINT, factory);
+        val missLease = pool.lease(FINGERPRINT, factory);
+
+        //THEN
+        assertThat(created).hasSize(2);
+        assertThat(created.get(1)).isSameAs(missLease.getReplicaSet());
+    }
+
+    @Test
+    void shouldStopReplicaSetReleasedAfterCloseWithRejectingExecutor() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(
+            1,
+            warmUpExecutor,
+            command -> {
+                throw new RejectedExecutionException("shut down");
+            }
+        );
+        val lease = pool.lease(FINGERPRINT, factory);
+        val replicaSet = lease.getReplicaSet();
+
+        //WHEN
+        Executable executable = lease::close;
+
+        //THEN
+        assertDoesNotThrow(executable);
+        verify(replicaSet).stop();
+        verify(replicaSet, times(0)).dropDatabase(anyString());
+    }
+
+    @Test
+    void shouldNotStopReplicaSetTwiceWhenReleasedAfterClose() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(1, warmUpExecutor, cleanupExecutor);
+        val lease = pool.lease(FINGERPRINT, factory);
+        pool.close();
+
+        //WHEN
+        lease.close();
+
+        //THEN
+        verify(lease.getReplicaSet(), times(1)).stop();
+        verify(lease.getReplicaSet(), times(0)).dropDatabase(anyString());
+    }
+
+    @Test
+    void shouldGetFingerprintFromBuilderWithoutBuilding() {
+        //GIVEN
+        val builder = MongoDbReplicaSet.builder().replicaSetNumber(3).startOnBuild(true);
+
+        //WHEN
+        val actual = builder.getFingerprint();
+
+        //THEN
+        assertThat(actual).isEqualTo(MongoDbReplicaSet.builder().replicaSetNumber(3).build().getFingerprint());
+        assertThat(actual).isNotEqualTo(MongoDbReplicaSet.builder().replicaSetNumber(1).build().getFingerprint());
+    }
+
+    @Test
+    void shouldDropDatabaseAndReuseReplicaSetAfterRelease() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(1, warmUpExecutor, cleanupExecutor);
+        val lease = pool.lease(FINGERPRINT, factory);
+        val replicaSet = lease.getReplicaSet();
+
+        //WHEN
+        lease.close();
+        lease.close();
+        val nextLease = pool.lease(FINGERPRINT, factory);
+
+        //THEN
+        verify(replicaSet).dropDatabase(lease.getDatabaseName());
+        assertThat(nextLease.getReplicaSet()).isSameAs(replicaSet);
+        assertThat(nextLease.getDatabaseName()).isNotEqualTo(lease.getDatabaseName());
+    }
+
+    @Test
+    void shouldStopReplicaSetIfDatabaseCannotBeDropped() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(1, warmUpExecutor, cleanupExecutor);
+        val lease = pool.lease(FINGERPRINT, factory);
+        val replicaSet = lease.getReplicaSet();
+        doThrow(new IllegalStateException("boom")).when(replicaSet).dropDatabase(anyString());
+
+        //WHEN
+        lease.close();
+        val nextLease = pool.lease(FINGERPRINT, factory);
+
+        //THEN
+        verify(replicaSet).stop();
+        assertThat(nextLease.getReplicaSet()).isNotSameAs(replicaSet);
+    }
+
+    @Test
+    void shouldStopAllReplicaSetsOnClose() {
+        //GIVEN
+        val pool = new MongoDbReplicaSetPool(1, warmUpExecutor, cleanupExecutor);
+        val lease = pool.lease(FINGERPRINT, factory);
+        runPendingWarmUps();
+
+        //WHEN
+        pool.close();
+        Executable executable = () -> pool.lease(FINGERPRINT, factory);
+
+        //THEN
+        assertThat(created).hasSize(2).contains(lease.getReplicaSet());
+        created.forEach(r -> verify(r).stop());
+        assertThrows(IllegalStateException.class, executable);
+    }
+
+    @Test
+    void shouldNotBuildPoolWithIncorrectSize() {
+        //GIVEN
+        val poolBuilder = MongoDbReplicaSetPool.builder().size(0);
+
+        //WHEN
+        Executable executable = poolBuilder::build;
+
+        //THEN
+        assertThrows(IncorrectUserInputException.class, executable);
+    }
+
+    private void runPendingWarmUps() {
+        new ArrayList<>(pendingWarmUps).forEach(Runnable::run);
+        pendingWarmUps.clear();
+    }
+}
@@ -2,10 +2,18 @@ package com.github.silaev.mongodb.replicaset;
 
 import com.github.silaev.mongodb.replicaset.converter.impl.StringToMongoRsStatusConverter;
 import com.github.silaev.mongodb.replicaset.converter.impl.VersionConverter;
+import com.github.silaev.mongodb.replicaset.core.Deadline;
+import com.github.silaev.mongodb.replicaset.core.DockerEnvironment;
+import com.github.silaev.mongodb.replicaset.core.DriverTopologyMonitor;
 import com.github.silaev.mongodb.replicaset.exception.IncorrectUserInputException;
 import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.model.MongoCommandResult;
+import com.github.silaev.mongodb.replicaset.model.MongoDbVersion;
 import com.github.silaev.mongodb.replicaset.model.MongoNode;
 import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.MongoSocketAddress;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
 import com.github.silaev.mongodb.replicaset.service.ResourceService;
 import com.github.silaev.mongodb.replicaset.service.impl.ResourceServiceImpl;
 import lombok.val;
@@ -17,18 +25,46 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.testcontainers.containers.Container;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.Network;
 
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.github.silaev.mongodb.replicaset.MongoDbReplicaSet.COMPARATOR_MAPPED_PORT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -85,23 +121,19 @@ class MongoDbReplicaSetTest {
         //replicaSet
 
         val container = mock(GenericContainer.class);
-        val execResult = mock(Container.ExecResult.class);
+        val execResult = MongoCommandResult.of(CONTAINER_EXIT_CODE_ERROR, "", "");
         val nodeName = "nodeName";
-        val awaitNodeInitAttempts = 29;
-        when(execResult.getExitCode())
-            .thenReturn(CONTAINER_EXIT_CODE_ERROR);
-        val execResultStatusCommand = mock(Container.ExecResult.class);
-        doReturn(execResultStatusCommand)
+        val timeout = Duration.ofSeconds(29);
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "stdout", ""))
             .when(replicaSet)
             .execMongoDbCommandInContainer(container, MongoDbReplicaSet.STATUS_COMMAND);
-        when(execResultStatusCommand.getStdout()).thenReturn("stdout");
 
         //WHEN
         Executable executable = () -> replicaSet.checkMongoNodeExitCodeAfterWaiting(
             container,
             execResult,
             nodeName,
-            awaitNodeInitAttempts
+            timeout
         );
 
         //THEN
@@ -114,10 +146,7 @@ class MongoDbReplicaSetTest {
         //replicaSet
 
         val command = "command";
-        val execResult = mock(Container.ExecResult.class);
-        when(execResult.getExitCode())
-            .thenReturn(CONTAINER_EXIT_CODE_ERROR);
-        when(execResult.getStdout()).thenReturn("stdout");
+        val execResult = MongoCommandResult.of(CONTAINER_EXIT_CODE_ERROR, "stdout", "");
 
         //WHEN
         Executable executable =
@@ -182,13 +211,10 @@ class MongoDbReplicaSetTest {
         //replicaSet
 
         val command = "command";
-        val execResult = mock(Container.ExecResult.class);
-        when(execResult.getExitCode())
-            .thenReturn(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK);
         val stdout = resourceService.getString(
             resourceService.getResourceIO("shell-output/timeout-exceeds.txt")
         );
-        when(execResult.getStdout()).thenReturn(stdout);
+        val execResult = MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, stdout, "");
         when(converter.convert(stdout)).thenReturn(MongoRsStatus.of(0, null, null));
 
         //WHEN
@@ -198,4 +224,604 @@ class MongoDbReplicaSetTest {
         //THEN
         assertThrows(MongoNodeInitializationException.class, executable);
     }
+
+    @Test
+    void shouldGetMongoRsStatusFromAnotherNodeWhenFirstNodeFails() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val failedNode = mock(GenericContainer.class);
+        val workingNode = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), failedNode);
+        workingNodeStore.put(socketAddress(50002), workingNode);
+        val routedReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doThrow(new IllegalStateException("node is down"))
+            .when(routedReplicaSet)
+            .execMongoDbCommandInContainer(failedNode, MongoDbReplicaSet.STATUS_COMMAND);
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "stdout", ""))
+            .when(routedReplicaSet)
+            .execMongoDbCommandInContainer(workingNode, MongoDbReplicaSet.STATUS_COMMAND);
+        val status = MongoRsStatus.of(1, null, null);
+        when(converter.convert("stdout")).thenReturn(status);
+
+        //WHEN
+        val actual = routedReplicaSet.getMongoRsStatus();
+
+        //THEN
+        assertThat(actual).isEqualTo(status);
+    }
+
+    @Test
+    void shouldWaitForMasterOnAnotherNodeWhenFirstNodeFails() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val failedNode = mock(GenericContainer.class);
+        val workingNode = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), failedNode);
+        workingNodeStore.put(socketAddress(50002), workingNode);
+        val routedReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doThrow(new IllegalStateException("node is down"))
+            .when(routedReplicaSet)
+            .execMongoDbCommandInContainer(eq(failedNode), anyString());
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "ok", ""))
+            .when(routedReplicaSet)
+            .execMongoDbCommandInContainer(eq(workingNode), anyString());
+        when(converter.convert("ok")).thenReturn(MongoRsStatus.of(1, null, null));
+
+        //WHEN
+        routedReplicaSet.waitForMaster();
+        routedReplicaSet.enableConnections(Collections.emptyList());
+
+        //THEN
+        verify(routedReplicaSet).execMongoDbCommandInContainer(eq(workingNode), contains("o.state === 1"));
+        verify(routedReplicaSet).execMongoDbCommandInContainer(eq(workingNode), contains("dropConnections"));
+    }
+
+    @Test
+    void shouldGetMongoRsStatusOfSingleNodeReplicaSet() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val node = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), node);
+        val singleNodeReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "stdout", ""))
+            .when(singleNodeReplicaSet)
+            .execMongoDbCommandInContainer(node, MongoDbReplicaSet.STATUS_COMMAND);
+        val status = MongoRsStatus.of(
+            1,
+            MongoDbVersion.of(4, 4, 4),
+            Collections.singletonList(MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.PRIMARY))
+        );
+        when(converter.convert("stdout")).thenReturn(status);
+
+        //WHEN
+        val actual = singleNodeReplicaSet.getMongoRsStatus();
+
+        //THEN
+        assertThat(singleNodeReplicaSet.getReplicaSetNumber()).isEqualTo(1);
+        assertThat(actual).isEqualTo(status);
+    }
+
+    @Test
+    void shouldReattachToReusedSingleNodeReplicaSet() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val node = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), node);
+        val reusedReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "stdout", ""))
+            .when(reusedReplicaSet)
+            .execMongoDbCommandInContainer(node, MongoDbReplicaSet.STATUS_COMMAND);
+        when(converter.convert("stdout")).thenReturn(
+            MongoRsStatus.of(
+                1,
+                MongoDbVersion.of(4, 4, 4),
+                Collections.singletonList(MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.PRIMARY))
+            )
+        );
+
+        //WHEN
+        val reattached = reusedReplicaSet.reattachToReusedReplicaSet(Collections.singleton("mongo0"));
+
+        //THEN
+        assertThat(reattached).isTrue();
+    }
+
+    @Test
+    void shouldResumeAfterFailedAttemptWithoutInitiatingAgain() {
+        //GIVEN
+        val node = mock(GenericContainer.class);
+        when(node.isRunning()).thenReturn(true);
+        replicaSet.getStartedNodes().put("mongo1", node);
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "", ""))
+            .when(replicaSet)
+            .execMongoDbCommandInContainer(eq(node), anyString());
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "status", ""))
+            .when(replicaSet)
+            .execMongoDbCommandInContainer(node, MongoDbReplicaSet.STATUS_COMMAND);
+        when(converter.convert("status")).thenReturn(MongoRsStatus.of(1, null, null));
+
+        //WHEN
+        val resumed = replicaSet.resumeAfterFailedAttempt();
+        val masterNode = replicaSet.initMasterNode(node, Deadline.after(Duration.ofSeconds(5)));
+
+        //THEN
+        assertThat(resumed).isTrue();
+        assertThat(masterNode).isSameAs(node);
+        assertThat(replicaSet.getStartedNodes()).containsEntry("mongo1", node);
+        verify(node, never()).stop();
+        verify(replicaSet, never()).execMongoDbCommandInContainer(eq(node), contains("rs.initiate"));
+    }
+
+    @Test
+    void shouldNotResumeWhenStoppedNodeIsInInitiatedReplicaSet() {
+        //GIVEN
+        val runningNode = mock(GenericContainer.class);
+        val stoppedNode = mock(GenericContainer.class);
+        when(runningNode.isRunning()).thenReturn(true);
+        when(stoppedNode.isRunning()).thenReturn(false);
+        replicaSet.getStartedNodes().put("mongo1", runningNode);
+        replicaSet.getStartedNodes().put("mongo2", stoppedNode);
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "status", ""))
+            .when(replicaSet)
+            .execMongoDbCommandInContainer(runningNode, MongoDbReplicaSet.STATUS_COMMAND);
+        when(converter.convert("status")).thenReturn(MongoRsStatus.of(1, null, null));
+
+        //WHEN
+        val resumed = replicaSet.resumeAfterFailedAttempt();
+
+        //THEN
+        assertThat(resumed).isFalse();
+        verify(stoppedNode, never()).stop();
+    }
+
+    @Test
+    void shouldStartFromScratchOnLastAttempt() {
+        //GIVEN
+        val node = mock(GenericContainer.class);
+        when(node.isRunning()).thenReturn(true);
+        replicaSet.getStartedNodes().put("mongo1", node);
+        final List<Boolean> stoppedBeforeAttempt = new ArrayList<>();
+        doAnswer(invocation -> {
+                stoppedBeforeAttempt.add(
+                    mockingDetails(node).getInvocations().stream()
+                        .anyMatch(i -> "stop".equals(i.getMethod().getName()))
+                );
+                throw new MongoNodeInitializationException("boom");
+            }
+        ).when(replicaSet).startInternal();
+
+        //WHEN
+        Executable executable = replicaSet::start;
+
+        //THEN
+        assertThrows(MongoNodeInitializationException.class, executable);
+        assertThat(stoppedBeforeAttempt).containsExactly(false, false, true);
+        assertThat(replicaSet.getStartedNodes()).isEmpty();
+    }
+
+    @Test
+    void shouldStepUpFirstMemberWithoutSearchingForMasterNode() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val firstNode = mock(GenericContainer.class);
+        val secondNode = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), firstNode);
+        workingNodeStore.put(socketAddress(50002), secondNode);
+        val deterministicReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doReturn(true).when(deterministicReplicaSet).getDeterministicElection();
+        doReturn(2).when(deterministicReplicaSet).getReplicaSetNumber();
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "ok", ""))
+            .when(deterministicReplicaSet)
+            .execMongoDbCommandInContainer(eq(firstNode), anyString());
+        when(converter.convert("ok")).thenReturn(MongoRsStatus.of(1, MongoDbVersion.of(4, 4, 4), null));
+
+        //WHEN
+        val masterNode = deterministicReplicaSet.initMasterNode(firstNode, Deadline.after(Duration.ofSeconds(5)));
+        deterministicReplicaSet.dropDatabase("test");
+
+        //THEN
+        assertThat(masterNode).isSameAs(firstNode);
+        verify(deterministicReplicaSet).execMongoDbCommandInContainer(eq(firstNode), contains("replSetStepUp"));
+        verify(deterministicReplicaSet).execMongoDbCommandInContainer(eq(firstNode), contains("dropDatabase"));
+        verify(deterministicReplicaSet, never()).execMongoDbCommandInContainer(eq(firstNode), contains("o.state === 1"));
+    }
+
+    @Test
+    void shouldWaitForBackgroundTeardownBeforeStart() throws Exception {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val node = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), node);
+        val teardownReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doReturn(true).when(teardownReplicaSet).getBackgroundTeardown();
+        doNothing().when(teardownReplicaSet).startInternal();
+        val nodeStopped = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                nodeStopped.await();
+                return null;
+            }
+        ).when(node).stop();
+        CompletableFuture.runAsync(teardownReplicaSet::stop).get(5, TimeUnit.SECONDS);
+
+        //WHEN
+        val start = CompletableFuture.runAsync(teardownReplicaSet::start);
+
+        //THEN
+        assertThrows(TimeoutException.class, () -> start.get(200, TimeUnit.MILLISECONDS));
+        verify(teardownReplicaSet, never()).startInternal();
+        nodeStopped.countDown();
+        start.get(5, TimeUnit.SECONDS);
+        verify(teardownReplicaSet).startInternal();
+    }
+
+    @Test
+    void shouldReturnSameFutureWhileStartAsyncIsInProgressOrDone() throws Exception {
+        //GIVEN
+        val provisioning = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                provisioning.await();
+                return null;
+            }
+        ).when(replicaSet).startInternal();
+
+        //WHEN
+        val first = replicaSet.startAsync();
+        val second = replicaSet.startAsync();
+        provisioning.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        val third = replicaSet.startAsync();
+
+        //THEN
+        assertThat(second).isSameAs(first);
+        assertThat(third).isSameAs(first);
+        verify(replicaSet).startInternal();
+    }
+
+    @Test
+    void shouldStartOverAfterFailedStartAsync() {
+        //GIVEN
+        doThrow(new IncorrectUserInputException("boom"))
+            .doNothing()
+            .when(replicaSet).startInternal();
+        val failed = replicaSet.startAsync();
+        assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+
+        //WHEN
+        val restarted = replicaSet.startAsync();
+
+        //THEN
+        assertThat(restarted).isNotSameAs(failed);
+        assertThat(restarted.join()).isSameAs(replicaSet);
+    }
+
+    @Test
+    void shouldNotWaitForStartAsyncOnProvisioningThread() throws Exception {
+        //GIVEN
+        val startAsyncReturned = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                startAsyncReturned.await();
+                replicaSet.start();
+                return null;
+            }
+        ).when(replicaSet).startInternal();
+
+        //WHEN
+        val future = replicaSet.startAsync();
+        startAsyncReturned.countDown();
+
+        //THEN
+        assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(replicaSet);
+        verify(replicaSet).startInternal();
+    }
+
+    @Test
+    void shouldBeFullyConvergedAfterStartWithoutReturnOnMasterReady() {
+        //GIVEN
+        doNothing().when(replicaSet).startInternal();
+
+        //WHEN
+        replicaSet.start();
+
+        //THEN
+        assertThat(replicaSet.awaitFullyConverged()).isCompletedWithValue(replicaSet);
+    }
+
+    @Test
+    void shouldBeFullyConvergedAfterStartWithReturnOnMasterReadyAndSnapshot() {
+        //GIVEN
+        doReturn(true).when(replicaSet).getReturnOnMasterReady();
+        doReturn(true).when(replicaSet).getSnapshot();
+        doNothing().when(replicaSet).startInternal();
+
+        //WHEN
+        replicaSet.start();
+
+        //THEN
+        assertThat(replicaSet.awaitFullyConverged()).isCompletedWithValue(replicaSet);
+    }
+
+    @Test
+    void shouldConvergeInBackgroundAfterStartWithReturnOnMasterReady() {
+        //GIVEN
+        doReturn(true).when(replicaSet).getReturnOnMasterReady();
+        doNothing().when(replicaSet).startInternal();
+
+        //WHEN
+        replicaSet.start();
+
+        //THEN
+        val exception = assertThrows(
+            ExecutionException.class,
+            () -> replicaSet.awaitFullyConverged().get(5, TimeUnit.SECONDS)
+        );
+        assertThat(exception.getCause())
+            .isInstanceOf(MongoNodeInitializationException.class)
+            .hasMessageContaining("stopped before converging");
+    }
+
+    @Test
+    void shouldStopWithoutDriverOnClasspath() throws Exception {
+        //GIVEN
+        try (val classLoader = new DriverHidingClassLoader()) {
+            val builderClass = classLoader.loadClass(MongoDbReplicaSet.class.getName() + "$MongoDbReplicaSetBuilder");
+            val builder = classLoader.loadClass(MongoDbReplicaSet.class.getName())
+                .getMethod("builder")
+                .invoke(null);
+            builderClass.getMethod("replicaSetNumber", Integer.class).invoke(builder, 3);
+            val hiddenDriverReplicaSet = builderClass.getMethod("build").invoke(builder);
+
+            //WHEN
+            Executable executable = () -> hiddenDriverReplicaSet.getClass().getMethod("stop").invoke(hiddenDriverReplicaSet);
+
+            //THEN
+            assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("com.mongodb.MongoCommandException"));
+            assertDoesNotThrow(executable);
+        }
+    }
+
+    @Test
+    void shouldRunNodeOnItsOwnLoopbackPortWithHostNetwork() {
+        //GIVEN
+        doReturn(true).when(replicaSet).isHostNetworkEnabled();
+        val port = 50005;
+
+        //WHEN
+        val container = replicaSet.createMongoDbContainer(mock(Network.class), false, "mongo-node-0", "mongo:4.4.4", port);
+        val address = replicaSet.getMongoSocketAddress("dockerhost", port);
+
+        //THEN
+        assertThat(container.getNetworkMode()).isEqualTo("host");
+        assertThat(container.getNetwork()).isNull();
+        assertThat(container.getExposedPorts()).isEmpty();
+        assertThat(String.join(" ", container.getCommandParts()))
+            .contains("--bind_ip 127.0.0.1")
+            .contains("--port " + port);
+        assertThat(address).isEqualTo(
+            MongoSocketAddress.builder().ip("127.0.0.1").replSetPort(port).mappedPort(port).build()
+        );
+    }
+
+    @Test
+    void shouldAddressNodeByAliasAndPortOfItsRoleWithDirectNetwork() {
+        //GIVEN
+        doReturn(true).when(replicaSet).isDirectNetworkEnabled();
+        doReturn(3).when(replicaSet).getReplicaSetNumber();
+        val network = mock(Network.class);
+
+        //WHEN
+        val container = replicaSet.createMongoDbContainer(network, false, "mongo-node-1", "mongo:4.4.4", null);
+        final List<String> aliases = container.getNetworkAliases();
+        val alias = aliases.stream()
+            .filter(a -> a.startsWith("mongo-node-1-"))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+        val address = replicaSet.getMongoSocketAddress(alias, 27018);
+
+        //THEN
+        assertThat(container.getNetwork()).isSameAs(network);
+        assertThat(container.getExposedPorts()).isEmpty();
+        assertThat(String.join(" ", container.getCommandParts()))
+            .contains("--bind_ip 0.0.0.0")
+            .contains("--port 27018");
+        assertThat(address).isEqualTo(
+            MongoSocketAddress.builder().ip(alias).replSetPort(27018).mappedPort(27018).build()
+        );
+    }
+
+    @Test
+    void shouldAttachSharedDockerHostInsteadOfStartingOwnOne() {
+        //GIVEN
+        final Map<String, Pair<GenericContainer, MongoSocketAddress>> supplementaryNodeStore = new HashMap<>();
+        val network = mock(Network.class);
+        val sharedReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                new TreeMap<>(COMPARATOR_MAPPED_PORT),
+                supplementaryNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                network
+            ));
+        val dockerEnvironment = mock(DockerEnvironment.class);
+        when(dockerEnvironment.getHostIpAddress()).thenReturn("localhost");
+        doReturn(dockerEnvironment).when(sharedReplicaSet).getDockerEnvironment();
+        doReturn(3).when(sharedReplicaSet).getReplicaSetNumber();
+        doReturn(true).when(sharedReplicaSet).getSharedDockerHost();
+
+        //WHEN
+        sharedReplicaSet.decideOnDockerHost();
+        sharedReplicaSet.decideOnDockerHost();
+        sharedReplicaSet.stop();
+
+        //THEN
+        assertThat(supplementaryNodeStore).isEmpty();
+        val inOrder = inOrder(dockerEnvironment, network);
+        inOrder.verify(dockerEnvironment, times(2)).attachDockerHost(anyString(), eq(network), eq("dockerhost"));
+        inOrder.verify(dockerEnvironment).detachDockerHost(network);
+        inOrder.verify(network).close();
+    }
+
+    @Test
+    void shouldWaitForNodesDownViaTopologyMonitorWithoutMongoShell() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val node = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), node);
+        val monitoredReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        val monitor = mock(DriverTopologyMonitor.class);
+        doReturn(Optional.of(monitor)).when(monitoredReplicaSet).getTopologyMonitor();
+        doReturn(3).when(monitoredReplicaSet).getReplicaSetNumber();
+        when(monitor.awaitNodesDown(eq(1), any(Duration.class))).thenReturn(true);
+        when(monitor.awaitNodesDown(eq(2), any(Duration.class))).thenReturn(false);
+        when(monitor.getShortDescription()).thenReturn("{type=REPLICA_SET, servers=[]}");
+
+        //WHEN
+        monitoredReplicaSet.waitForMongoNodesDown(1);
+        Executable executable = () -> monitoredReplicaSet.waitForMongoNodesDown(2);
+
+        //THEN
+        val exception = assertThrows(MongoNodeInitializationException.class, executable);
+        assertThat(exception).hasMessageContaining("2 node(s) is(are) down")
+            .hasMessageContaining("{type=REPLICA_SET, servers=[]}");
+        verify(monitoredReplicaSet, never()).execMongoDbCommandInContainer(any(GenericContainer.class), anyString());
+    }
+
+    @Test
+    void shouldServeStatusFromMemoryAndRefreshItAfterWaiting() {
+        //GIVEN
+        final TreeMap<MongoSocketAddress, GenericContainer> workingNodeStore = new TreeMap<>(COMPARATOR_MAPPED_PORT);
+        val node = mock(GenericContainer.class);
+        workingNodeStore.put(socketAddress(50001), node);
+        val monitoredReplicaSet = spy(
+            new MongoDbReplicaSet(
+                converter,
+                workingNodeStore,
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                mock(Network.class)
+            ));
+        doReturn(true).when(monitoredReplicaSet).getStatusMonitor();
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "status", ""))
+            .when(monitoredReplicaSet)
+            .execMongoDbCommandInContainer(node, MongoDbReplicaSet.STATUS_COMMAND);
+        doReturn(MongoCommandResult.of(MongoDbReplicaSet.CONTAINER_EXIT_CODE_OK, "", ""))
+            .when(monitoredReplicaSet)
+            .execMongoDbCommandInContainer(eq(node), contains("o.state === 1"));
+        val status = MongoRsStatus.of(
+            1,
+            MongoDbVersion.of(4, 4, 4),
+            Collections.singletonList(MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.PRIMARY))
+        );
+        when(converter.convert("status")).thenReturn(status);
+        monitoredReplicaSet.startStatusMonitor();
+
+        //WHEN
+        val first = monitoredReplicaSet.getMongoRsStatus();
+        val second = monitoredReplicaSet.getMongoRsStatus();
+        val snapshot = monitoredReplicaSet.getMongoRsStatusSnapshot();
+        monitoredReplicaSet.waitForMaster();
+        monitoredReplicaSet.stop();
+
+        //THEN
+        assertThat(first).isSameAs(second).isEqualTo(status);
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+        verify(monitoredReplicaSet, times(2)).execMongoDbCommandInContainer(node, MongoDbReplicaSet.STATUS_COMMAND);
+        assertThrows(IllegalStateException.class, monitoredReplicaSet::getMongoRsStatusSnapshot);
+    }
+
+    private static MongoSocketAddress socketAddress(final int mappedPort) {
+        return MongoSocketAddress.builder()
+            .ip("dockerhost")
+            .replSetPort(mappedPort)
+            .mappedPort(mappedPort)
+            .build();
+    }
+
+    /**
+     * Loads classes of a test classpath on its own except for the ones of the MongoDB driver
+     * as if org.mongodb:mongodb-driver-sync, declared as compileOnly, were not added by a user.
+     */
+    private static class DriverHidingClassLoader extends URLClassLoader {
+        DriverHidingClassLoader() throws MalformedURLException {
+            super(getClasspath(), ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("com.mongodb.") || name.startsWith("org.bson.")) {
+                throw new ClassNotFoundException(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        private static URL[] getClasspath() throws MalformedURLException {
+            val testClassLoader = MongoDbReplicaSetTest.class.getClassLoader();
+            if (testClassLoader instanceof URLClassLoader) {
+                return ((URLClassLoader) testClassLoader).getURLs();
+            }
+            val entries = System.getProperty("java.class.path").split(File.pathSeparator);
+            val urls = new URL[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            }
+            return urls;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package com.github.silaev.mongodb.replicaset.converter.impl;
+
+import com.github.silaev.mongodb.replicaset.model.ApplicationProperties;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Konstantin Silaev
+ */
+class ApplicationPropertiesToFingerprintConverterTest {
+    private final ApplicationPropertiesToFingerprintConverter converter =
+        new ApplicationPropertiesToFingerprintConverter();
+
+    @Test
+    void shouldConvertSameTopologyToSameFingerprint() {
+        //GIVEN
+        val properties = getProperties(Collections.emptyList(), true);
+        val sameTopologyProperties = getProperties(Collections.emptyList(), false);
+
+        //WHEN
+        val fingerprint = converter.convert(properties);
+        val sameTopologyFingerprint = converter.convert(sameTopologyProperties);
+
+        //THEN
+        assertThat(fingerprint)
+            .hasSize(16)
+            .isEqualTo(sameTopologyFingerprint);
+    }
+
+    @Test
+    void shouldConvertDifferentCommandLineOptionsToDifferentFingerprints() {
+        //GIVEN
+        val properties = getProperties(Collections.emptyList(), true);
+        val otherProperties = getProperties(Arrays.asList("--oplogSize", "50"), true);
+
+        //WHEN
+        val fingerprint = converter.convert(properties);
+        val otherFingerprint = converter.convert(otherProperties);
+
+        //THEN
+        assertThat(fingerprint).isNotEqualTo(otherFingerprint);
+    }
+
+    private ApplicationProperties getProperties(
+        final List<String> commandLineOptions,
+        final boolean parallelProvisioning
+    ) {
+        return ApplicationProperties.builder()
+            .replicaSetNumber(3)
+            .awaitNodeInitAttempts(29)
+            .mongoDockerImageName("mongo:4.4.4")
+            .commandLineOptions(commandLineOptions)
+            .parallelProvisioning(parallelProvisioning)
+            .reuse(true)
+            .build();
+    }
+}
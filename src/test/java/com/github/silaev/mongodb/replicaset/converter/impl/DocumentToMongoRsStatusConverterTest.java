@@ -0,0 +1,51 @@
+package com.github.silaev.mongodb.replicaset.converter.impl;
+
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import lombok.val;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DocumentToMongoRsStatusConverterTest {
+    private final DocumentToMongoRsStatusConverter converter = new DocumentToMongoRsStatusConverter();
+
+    @Test
+    void shouldConvertReplSetGetStatusReply() {
+        //GIVEN
+        val source = Document.parse(
+            "{\"set\": \"docker-rs\", \"ok\": 1.0, \"version\": \"4.4.4\", \"members\": [" +
+                "{\"_id\": 1, \"name\": \"dockerhost:27018\", \"health\": 1.0, \"state\": 2}, " +
+                "{\"_id\": 0, \"name\": \"dockerhost:27017\", \"health\": 1.0, \"state\": 1}]}"
+        );
+
+        //WHEN
+        val mongoRsStatus = converter.convert(source);
+
+        //THEN
+        assertThat(mongoRsStatus.getStatus()).isEqualTo(1);
+        assertThat(mongoRsStatus.getVersion().getMajor()).isEqualTo(4);
+        assertThat(mongoRsStatus.getMembers()).extracting(MongoNode::getPort, MongoNode::getState)
+            .containsExactly(
+                tuple(27017, ReplicaSetMemberState.PRIMARY),
+                tuple(27018, ReplicaSetMemberState.SECONDARY)
+            );
+    }
+
+    @Test
+    void shouldConvertNotYetInitializedNodeReply() {
+        //GIVEN
+        val source = Document.parse(
+            "{\"ok\": 0.0, \"errmsg\": \"no replset config has been received\", \"code\": 94, \"version\": \"5.0.5\"}"
+        );
+
+        //WHEN
+        val mongoRsStatus = converter.convert(source);
+
+        //THEN
+        assertThat(mongoRsStatus.getStatus()).isZero();
+        assertThat(mongoRsStatus.getMembers()).isEmpty();
+    }
+}
@@ -1,8 +1,13 @@
 package com.github.silaev.mongodb.replicaset.converter.impl;
 
+import com.github.silaev.mongodb.replicaset.MongoDbReplicaSet;
+import com.github.silaev.mongodb.replicaset.model.MongoDbVersion;
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
 import com.github.silaev.mongodb.replicaset.service.ResourceService;
 import com.github.silaev.mongodb.replicaset.service.impl.ResourceServiceImpl;
 import lombok.val;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -10,7 +15,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 class StringToMongoRsStatusConverterTest {
     private final StringToMongoRsStatusConverter converter = new StringToMongoRsStatusConverter(
-        new YmlConverterImpl(),
         new VersionConverter()
     );
     private final ResourceService resourceService = new ResourceServiceImpl();
@@ -20,6 +24,9 @@ class StringToMongoRsStatusConverterTest {
         "shell-output/rs-status.txt, 1, 5",
         "shell-output/rs-status-framed.txt, 1, 3",
         "shell-output/rs-status-plain.txt, 1, 0",
+        "shell-output/rs-status-plain-wo-status.txt, 0, 0",
+        "shell-output/rs-status-double-primaries.txt, 1, 3",
+        "shell-output/rs-status-json.txt, 1, 3",
         "shell-output/timeout-exceeds.txt, 0, 0"
     })
     void shouldConvert(final String fileName, final int status, final int membersNumber) {
@@ -35,4 +42,34 @@ class StringToMongoRsStatusConverterTest {
         val members = mongoRsStatusActual.getMembers();
         assertThat(members.size()).isEqualTo(membersNumber);
     }
+
+    @Test
+    void shouldReadMembersFromCompactJson() {
+        // GIVEN
+        val rsStatus = resourceService.getString(resourceService.getResourceIO("shell-output/rs-status-json.txt"));
+
+        // WHEN
+        val mongoRsStatusActual = converter.convert(rsStatus);
+
+        // THEN
+        assertThat(mongoRsStatusActual.getVersion()).isEqualTo(MongoDbVersion.of(4, 4, 4));
+        assertThat(mongoRsStatusActual.getMembers()).containsExactly(
+            MongoNode.of("dockerhost", 27017, 1.0, ReplicaSetMemberState.PRIMARY),
+            MongoNode.of("dockerhost", 27018, 1.0, ReplicaSetMemberState.SECONDARY),
+            MongoNode.of("dockerhost", 27019, 0.0, ReplicaSetMemberState.DOWN)
+        );
+    }
+
+    @Test
+    void shouldExtractRawPayloadSkippingWaitingMessages() {
+        // GIVEN
+        val stdout = "MongoDB shell version v4.4.4\nMongoDB server version: 4.4.4\n" +
+            MongoDbReplicaSet.WAITING_MSG + " a single master node 0\ndockerhost:27017\n";
+
+        // WHEN
+        val payload = converter.extractRawPayloadFromMongoDBShell(stdout);
+
+        // THEN
+        assertThat(payload).isEqualTo("dockerhost:27017");
+    }
 }
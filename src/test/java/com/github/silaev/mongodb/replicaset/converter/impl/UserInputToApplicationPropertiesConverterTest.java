@@ -17,8 +17,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -111,6 +113,70 @@ class UserInputToApplicationPropertiesConverterTest {
         assertThrows(IncorrectUserInputException.class, executable);
     }
 
+    @Test
+    void shouldNotConvertBecauseOfInitiateWithArbiterWithoutArbiter() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .initiateWithArbiter(true)
+            .replicaSetNumber(2)
+            .build();
+
+        //WHEN
+        Executable executable = () -> converter.convert(inputProperties);
+
+        //THEN
+        assertThrows(IncorrectUserInputException.class, executable);
+    }
+
+    @Test
+    void shouldNotConvertBecauseOfSnapshotWithToxiproxy() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .snapshot(true)
+            .addToxiproxy(true)
+            .replicaSetNumber(3)
+            .build();
+
+        //WHEN
+        Executable executable = () -> converter.convert(inputProperties);
+
+        //THEN
+        assertThrows(IncorrectUserInputException.class, executable);
+    }
+
+    @Test
+    void shouldNotConvertBecauseOfSnapshotWithReuse() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .snapshot(true)
+            .reuse(true)
+            .replicaSetNumber(3)
+            .build();
+
+        //WHEN
+        Executable executable = () -> converter.convert(inputProperties);
+
+        //THEN
+        val exception = assertThrows(IncorrectUserInputException.class, executable);
+        assertThat(exception.getMessage()).isEqualTo("Please, set either reuse or snapshot");
+    }
+
+    @Test
+    void shouldNotConvertBecauseOfSelfInitializeWithToxiproxy() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .selfInitialize(true)
+            .addToxiproxy(true)
+            .replicaSetNumber(3)
+            .build();
+
+        //WHEN
+        Executable executable = () -> converter.convert(inputProperties);
+
+        //THEN
+        assertThrows(IncorrectUserInputException.class, executable);
+    }
+
     @Test
     void shouldNotConvertBecauseSlaveDelayNumberIsMoreThanReplicaSetNumber() {
         //GIVEN
@@ -141,4 +207,35 @@ class UserInputToApplicationPropertiesConverterTest {
         //THEN
         assertThrows(IncorrectUserInputException.class, executable);
     }
+
+    @Test
+    void shouldDeriveTimeoutsFromAwaitNodeInitAttempts() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .awaitNodeInitAttempts(10)
+            .arbiterTimeout(Duration.ofSeconds(3))
+            .build();
+
+        //WHEN
+        val properties = converter.convert(inputProperties);
+
+        //THEN
+        assertThat(properties.getElectionTimeout()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(properties.getArbiterTimeout()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(properties.getReelectionTimeout()).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    void shouldNotConvertBecauseOfNonPositiveTimeout() {
+        //GIVEN
+        val inputProperties = UserInputProperties.builder()
+            .startTimeout(Duration.ZERO)
+            .build();
+
+        //WHEN
+        Executable executable = () -> converter.convert(inputProperties);
+
+        //THEN
+        assertThrows(IncorrectUserInputException.class, executable);
+    }
 }
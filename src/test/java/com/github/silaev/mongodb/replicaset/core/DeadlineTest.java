@@ -0,0 +1,38 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadlineTest {
+
+    @Test
+    void shouldTakeEarlierDeadline() {
+        //GIVEN
+        val phaseDeadline = Deadline.after(Duration.ofMinutes(1));
+        val startDeadline = Deadline.after(Duration.ofSeconds(1));
+
+        //WHEN
+        val deadline = phaseDeadline.min(startDeadline);
+
+        //THEN
+        assertThat(deadline).isSameAs(startDeadline);
+        assertThat(phaseDeadline.min(null)).isSameAs(phaseDeadline);
+    }
+
+    @Test
+    void shouldHaveNothingRemainingWhenExpired() {
+        //GIVEN
+        val deadline = Deadline.after(Duration.ofNanos(-1));
+
+        //WHEN
+        val remaining = deadline.remaining();
+
+        //THEN
+        assertThat(deadline.isExpired()).isTrue();
+        assertThat(remaining).isEqualTo(Duration.ZERO);
+    }
+}
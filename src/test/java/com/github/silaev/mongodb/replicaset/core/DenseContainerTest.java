@@ -0,0 +1,65 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DenseContainerTest {
+    @Test
+    void shouldStartProcessesAtOnceAndKeepContainerRunning() {
+        //GIVEN
+        val startCommands = Arrays.asList("mongod --port 50001", "mongod --port 50002");
+
+        //WHEN
+        val entrypoint = DenseContainer.buildEntrypoint(startCommands);
+
+        //THEN
+        assertThat(entrypoint)
+            .containsSubsequence(
+                "(mongod --port 50001) & pids=\"$pids $!\"; ",
+                "(mongod --port 50002) & pids=\"$pids $!\"; ",
+                "for pid in $pids; do wait $pid || status=1; done; ",
+                "echo 'All mongod processes are started'; else echo 'A mongod process failed to start'; "
+            ).endsWith("exec sleep infinity");
+    }
+
+    @Test
+    void shouldDoNothingOnStopBeforeStart() {
+        //GIVEN
+        val denseContainer = DenseContainer.builder()
+            .mongoDockerImageName("mongo:4.4.4")
+            .roles(Arrays.asList("mongo-node-0", "mongo-node-1"))
+            .commandLineOptions(Collections.emptyList())
+            .startupTimeout(Duration.ofSeconds(60))
+            .build();
+
+        //WHEN
+        Executable executable = denseContainer::stop;
+
+        //THEN
+        assertDoesNotThrow(executable);
+    }
+
+    @Test
+    void shouldRequireImageName() {
+        //GIVEN
+        val builder = DenseContainer.builder()
+            .roles(Arrays.asList("mongo-node-0", "mongo-node-1"))
+            .commandLineOptions(Collections.emptyList())
+            .startupTimeout(Duration.ofSeconds(60));
+
+        //WHEN
+        Executable executable = builder::build;
+
+        //THEN
+        assertThrows(NullPointerException.class, executable);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.mongodb.MongoTimeoutException;
+import lombok.val;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class DriverAdminClientTest {
+    private static final Document BUILD_INFO = new Document("buildInfo", 1);
+    private static final Document REPL_SET_GET_STATUS = new Document("replSetGetStatus", 1);
+
+    private final DriverAdminClient client = spy(new DriverAdminClient("localhost", 27017));
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void shouldRunBuildInfoOnlyOnceForSeveralStatusReads() {
+        //GIVEN
+        doReturn(new Document("version", "4.4.4")).when(client).runCommand(BUILD_INFO);
+        doReturn(new Document("ok", 1)).when(client).runCommand(REPL_SET_GET_STATUS);
+
+        //WHEN
+        client.getStatus();
+        client.getStatus();
+        val status = client.getStatus();
+
+        //THEN
+        assertThat(status.getString(DriverAdminClient.VERSION_FIELD)).isEqualTo("4.4.4");
+        verify(client, times(3)).runCommand(REPL_SET_GET_STATUS);
+        verify(client, times(1)).runCommand(BUILD_INFO);
+    }
+
+    @Test
+    void shouldRunBuildInfoAgainIfItFailed() {
+        //GIVEN
+        doThrow(new MongoTimeoutException("Timed out"))
+            .doReturn(new Document("version", "5.0.5"))
+            .when(client).runCommand(argThat(BUILD_INFO::equals));
+        doReturn(new Document("ok", 1)).when(client).runCommand(REPL_SET_GET_STATUS);
+
+        //WHEN
+        assertThatThrownBy(client::getStatus).isInstanceOf(MongoTimeoutException.class);
+        val status = client.getStatus();
+
+        //THEN
+        assertThat(status.getString(DriverAdminClient.VERSION_FIELD)).isEqualTo("5.0.5");
+        verify(client, times(2)).runCommand(BUILD_INFO);
+    }
+}
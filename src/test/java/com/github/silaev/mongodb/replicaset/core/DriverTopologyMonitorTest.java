@@ -0,0 +1,150 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.mongodb.MongoSocketOpenException;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterConnectionMode;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ClusterType;
+import com.mongodb.connection.ServerConnectionState;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DriverTopologyMonitorTest {
+    private static final ServerAddress NODE_1 = new ServerAddress("dockerhost", 27017);
+    private static final ServerAddress NODE_2 = new ServerAddress("dockerhost", 27018);
+
+    private final DriverTopologyMonitor monitor = new DriverTopologyMonitor();
+
+    @Test
+    void shouldCompleteWaitingForMasterOnTopologyChange() throws Exception {
+        //GIVEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_SECONDARY), server(NODE_2, ServerType.REPLICA_SET_SECONDARY));
+        val masterFound = CompletableFuture.supplyAsync(() -> monitor.awaitMaster(Duration.ofSeconds(10)));
+
+        //WHEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_PRIMARY), server(NODE_2, ServerType.REPLICA_SET_SECONDARY));
+
+        //THEN
+        assertThat(masterFound.get(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldWaitForMasterOtherThanPreviousOne() {
+        //GIVEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_PRIMARY), server(NODE_2, ServerType.REPLICA_SET_SECONDARY));
+
+        //WHEN
+        val reelected = monitor.awaitMasterOtherThan(
+            NODE_1.getHost(),
+            NODE_1.getPort(),
+            Duration.ofMillis(50)
+        );
+
+        //THEN
+        assertThat(reelected).isFalse();
+    }
+
+    @Test
+    void shouldCountUnreachableNodesAsDown() {
+        //GIVEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_PRIMARY), unreachableServer(NODE_2));
+
+        //WHEN
+        val oneNodeDown = monitor.awaitNodesDown(1, Duration.ofMillis(50));
+        val allNodesUp = monitor.awaitAllNodesUp(Duration.ofMillis(50));
+
+        //THEN
+        assertThat(oneNodeDown).isTrue();
+        assertThat(allNodesUp).isFalse();
+    }
+
+    @Test
+    void shouldNotCountNodesNotContactedYetAsDown() {
+        //GIVEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_PRIMARY), server(NODE_2, ServerType.UNKNOWN));
+
+        //WHEN
+        val oneNodeDown = monitor.awaitNodesDown(1, Duration.ofMillis(50));
+
+        //THEN
+        assertThat(oneNodeDown).isFalse();
+    }
+
+    @Test
+    void shouldAcceptTopologyChangesWhileWaiting() throws Exception {
+        //GIVEN
+        publish(server(NODE_1, ServerType.REPLICA_SET_PRIMARY), server(NODE_2, ServerType.REPLICA_SET_SECONDARY));
+        val nodeDown = CompletableFuture.supplyAsync(() -> monitor.awaitNodesDown(1, Duration.ofSeconds(10)));
+
+        //WHEN
+        CompletableFuture.runAsync(
+            () -> publish(server(NODE_1, ServerType.REPLICA_SET_SECONDARY), server(NODE_2, ServerType.REPLICA_SET_PRIMARY))
+        ).get(1, TimeUnit.SECONDS);
+        CompletableFuture.runAsync(
+            () -> publish(unreachableServer(NODE_1), server(NODE_2, ServerType.REPLICA_SET_PRIMARY))
+        ).get(1, TimeUnit.SECONDS);
+
+        //THEN
+        assertThat(nodeDown.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(monitor.awaitMasterOtherThan(NODE_1.getHost(), NODE_1.getPort(), Duration.ofMillis(50))).isTrue();
+    }
+
+    @Test
+    void shouldTimeOutWithoutAnyTopology() {
+        //GIVEN
+        //no events
+
+        //WHEN
+        val masterFound = monitor.awaitMaster(Duration.ofMillis(50));
+
+        //THEN
+        assertThat(masterFound).isFalse();
+        assertThat(monitor.getShortDescription()).isEqualTo("none");
+    }
+
+    private void publish(final ServerDescription... servers) {
+        val clusterId = new ClusterId();
+        val empty = new ClusterDescription(
+            ClusterConnectionMode.MULTIPLE,
+            ClusterType.REPLICA_SET,
+            Collections.emptyList()
+        );
+        monitor.clusterDescriptionChanged(
+            new ClusterDescriptionChangedEvent(
+                clusterId,
+                new ClusterDescription(ClusterConnectionMode.MULTIPLE, ClusterType.REPLICA_SET, Arrays.asList(servers)),
+                empty
+            )
+        );
+    }
+
+    private ServerDescription server(final ServerAddress address, final ServerType type) {
+        return ServerDescription.builder()
+            .address(address)
+            .state(type == ServerType.UNKNOWN ? ServerConnectionState.CONNECTING : ServerConnectionState.CONNECTED)
+            .type(type)
+            .setName(type == ServerType.UNKNOWN ? null : "docker-rs")
+            .build();
+    }
+
+    private ServerDescription unreachableServer(final ServerAddress address) {
+        return ServerDescription.builder()
+            .address(address)
+            .state(ServerConnectionState.CONNECTING)
+            .type(ServerType.UNKNOWN)
+            .exception(new MongoSocketOpenException("Exception opening socket", address))
+            .build();
+    }
+}
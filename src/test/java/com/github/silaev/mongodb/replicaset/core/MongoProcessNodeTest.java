@@ -0,0 +1,27 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoProcessNodeTest {
+
+    @Test
+    void shouldBuildStartCommandWithOwnPortAndPaths() {
+        //GIVEN
+        val options = Arrays.asList("--replSet", "docker-rs", "--setParameter", "key='value'");
+
+        //WHEN
+        val command = MongoProcessNode.buildStartCommand(27018, options);
+
+        //THEN
+        assertThat(command).isEqualTo(
+            "mkdir -p /data/db/27018 && mongod --fork --port 27018 --dbpath /data/db/27018 " +
+                "--logpath /data/db/27018.log --pidfilepath /data/db/27018.pid " +
+                "'--replSet' 'docker-rs' '--setParameter' 'key='\\''value'\\'''"
+        );
+    }
+}
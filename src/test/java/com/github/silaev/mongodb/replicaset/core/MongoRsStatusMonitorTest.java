@@ -0,0 +1,132 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.model.MongoDbVersion;
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MongoRsStatusMonitorTest {
+    private static final MongoDbVersion VERSION = MongoDbVersion.of(4, 4, 4);
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final MongoRsStatusMonitor monitor = new MongoRsStatusMonitor(
+        () -> {
+            fetches.incrementAndGet();
+            return status(ReplicaSetMemberState.PRIMARY, ReplicaSetMemberState.SECONDARY);
+        },
+        60_000
+    );
+
+    @Test
+    void shouldServeSnapshotFromMemory() {
+        //GIVEN
+        monitor.start();
+
+        //WHEN
+        val first = monitor.getSnapshot();
+        val second = monitor.getSnapshot();
+        monitor.close();
+
+        //THEN
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(second).isSameAs(first);
+        assertThat(first.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIncrementVersionOnlyOnChange() {
+        //GIVEN
+        monitor.update(status(ReplicaSetMemberState.PRIMARY, ReplicaSetMemberState.SECONDARY));
+
+        //WHEN
+        val unchanged = monitor.update(status(ReplicaSetMemberState.PRIMARY, ReplicaSetMemberState.SECONDARY));
+        val changed = monitor.update(status(ReplicaSetMemberState.SECONDARY, ReplicaSetMemberState.PRIMARY));
+
+        //THEN
+        assertThat(unchanged.getVersion()).isEqualTo(1);
+        assertThat(changed.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotifyOfMasterAndMemberStateChanges() {
+        //GIVEN
+        final List<Pair<MongoNode, MongoNode>> masterChanges = new ArrayList<>();
+        final List<Pair<MongoNode, MongoNode>> memberChanges = new ArrayList<>();
+        monitor.addListener(new TopologyListener() {
+            @Override
+            public void onMasterChanged(final MongoNode previousMaster, final MongoNode currentMaster) {
+                masterChanges.add(Pair.of(previousMaster, currentMaster));
+            }
+
+            @Override
+            public void onMemberStateChanged(final MongoNode previous, final MongoNode current) {
+                memberChanges.add(Pair.of(previous, current));
+            }
+        });
+        monitor.update(status(ReplicaSetMemberState.PRIMARY, ReplicaSetMemberState.SECONDARY));
+
+        //WHEN
+        monitor.update(status(ReplicaSetMemberState.DOWN, ReplicaSetMemberState.PRIMARY));
+
+        //THEN
+        assertThat(masterChanges).containsExactly(
+            Pair.of(node(27017, ReplicaSetMemberState.PRIMARY), node(27018, ReplicaSetMemberState.PRIMARY))
+        );
+        assertThat(memberChanges).containsExactly(
+            Pair.of(node(27017, ReplicaSetMemberState.PRIMARY), node(27017, ReplicaSetMemberState.DOWN)),
+            Pair.of(node(27018, ReplicaSetMemberState.SECONDARY), node(27018, ReplicaSetMemberState.PRIMARY))
+        );
+    }
+
+    @Test
+    void shouldServeSnapshotWhileListenerIsBlocked() throws Exception {
+        //GIVEN
+        val listenerCalled = new CountDownLatch(1);
+        val listenerReleased = new CountDownLatch(1);
+        monitor.addListener(new TopologyListener() {
+            @Override
+            public void onMasterChanged(final MongoNode previousMaster, final MongoNode currentMaster) {
+                listenerCalled.countDown();
+                try {
+                    listenerReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        monitor.update(status(ReplicaSetMemberState.PRIMARY, ReplicaSetMemberState.SECONDARY));
+        val update = CompletableFuture.runAsync(
+            () -> monitor.update(status(ReplicaSetMemberState.SECONDARY, ReplicaSetMemberState.PRIMARY))
+        );
+        assertThat(listenerCalled.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //WHEN
+        val snapshot = CompletableFuture.supplyAsync(monitor::getSnapshot).get(5, TimeUnit.SECONDS);
+
+        //THEN
+        assertThat(snapshot.getVersion()).isEqualTo(2);
+        listenerReleased.countDown();
+        update.get(5, TimeUnit.SECONDS);
+    }
+
+    private static MongoRsStatus status(final ReplicaSetMemberState first, final ReplicaSetMemberState second) {
+        return MongoRsStatus.of(1, VERSION, Arrays.asList(node(27017, first), node(27018, second)));
+    }
+
+    private static MongoNode node(final int port, final ReplicaSetMemberState state) {
+        return MongoNode.of("dockerhost", port, 1.0, state);
+    }
+}
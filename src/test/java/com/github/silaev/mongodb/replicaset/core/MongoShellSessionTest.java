@@ -0,0 +1,107 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoShellSessionException;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MongoShellSessionTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private final ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    private final MongoShellSession session = new MongoShellSession(stdin, null);
+
+    @Test
+    void shouldPipelineCommandsAndSplitResultsByEndMarkers() throws Exception {
+        //GIVEN
+        val results = CompletableFuture.supplyAsync(
+            () -> session.executeAll(Arrays.asList("rs.status()", "quit(1)"), TIMEOUT)
+        );
+
+        //WHEN
+        stdout("{ \"ok\" : 1 }\n" + MongoShellSession.END_MARKER + " 1 0>>>\n");
+        stdout("Waiting for 0\n" + MongoShellSession.END_MARKER + " 2 1>>>\n");
+
+        //THEN
+        assertThat(results.get(1, TimeUnit.SECONDS)).containsExactly(
+            Pair.of(0, "{ \"ok\" : 1 }\n"),
+            Pair.of(1, "Waiting for 0\n")
+        );
+        assertThat(stdin.toString(StandardCharsets.UTF_8.name()).split("\n")).hasSize(2);
+    }
+
+    @Test
+    void shouldFrameMultiLineCommandAsSingleLine() {
+        //GIVEN
+        val command = "cfg = rs.initiate({\n    \"_id\": \"docker-rs\"\n});";
+
+        //WHEN
+        val line = MongoShellSession.frame(7, command);
+
+        //THEN
+        assertThat(line)
+            .doesNotContain("\n")
+            .contains("eval(\"cfg = rs.initiate({\\n    \\\"_id\\\": \\\"docker-rs\\\"\\n});\")")
+            .contains(MongoShellSession.END_MARKER + " 7 ");
+    }
+
+    @Test
+    void shouldFailWithoutSendingWhenSessionIsClosed() {
+        //GIVEN
+        session.onClosed();
+
+        //WHEN
+        Executable executable = () -> session.execute("rs.status()", TIMEOUT);
+
+        //THEN
+        val exception = assertThrows(MongoShellSessionException.class, executable);
+        assertThat(exception.isCommandSent()).isFalse();
+        assertThat(stdin.size()).isZero();
+    }
+
+    @Test
+    void shouldFailAsSentWhenSessionClosesWhileWaitingForResult() throws Exception {
+        //GIVEN
+        val result = CompletableFuture.supplyAsync(() -> session.execute("rs.reconfig(cfg)", TIMEOUT));
+        while (stdin.size() == 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        //WHEN
+        session.onClosed();
+
+        //THEN
+        val exception = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(MongoShellSessionException.class);
+        assertThat(((MongoShellSessionException) exception.getCause()).isCommandSent()).isTrue();
+    }
+
+    @Test
+    void shouldFailAndCloseWhenResultDoesNotComeInTime() {
+        //GIVEN
+        val timeout = Duration.ofMillis(50);
+
+        //WHEN
+        Executable executable = () -> session.execute("sleep(60000)", timeout);
+
+        //THEN
+        val exception = assertThrows(MongoShellSessionException.class, executable);
+        assertThat(exception.isCommandSent()).isTrue();
+        assertThat(session.isClosed()).isTrue();
+    }
+
+    private void stdout(final String output) {
+        session.onStdout(output.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class NetworkPoolTest {
+
+    @Test
+    void shouldLeaseReleasedNetworkAgain() {
+        //GIVEN
+        val pool = new NetworkPool(() -> mock(Network.class), n -> true, 1);
+        val pooledNetwork = new PooledNetwork(pool);
+        pooledNetwork.getId();
+        pooledNetwork.close();
+
+        //WHEN
+        val network = pool.lease();
+
+        //THEN
+        verify(network, never()).close();
+        assertThat(pool.getIdleNetworkNumber()).isZero();
+        assertThat(pool.lease()).isNotSameAs(network);
+    }
+
+    @Test
+    void shouldCloseNetworkThatCannotBeReused() {
+        //GIVEN
+        val network = mock(Network.class);
+        val pool = new NetworkPool(() -> network, n -> false, 1);
+        val pooledNetwork = new PooledNetwork(pool);
+        pooledNetwork.getId();
+
+        //WHEN
+        pooledNetwork.close();
+
+        //THEN
+        verify(network).close();
+        assertThat(pool.getIdleNetworkNumber()).isZero();
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.Network;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PooledNetworkTest {
+    private final AtomicInteger createdNetworks = new AtomicInteger();
+    private final NetworkPool pool = new NetworkPool(
+        () -> {
+            val network = mock(Network.class);
+            when(network.getId()).thenReturn("network-" + createdNetworks.incrementAndGet());
+            return network;
+        },
+        n -> true,
+        1
+    );
+
+    @Test
+    void shouldNotLeaseNetworkUntilUsed() {
+        //GIVEN
+        val pooledNetwork = new PooledNetwork(pool);
+
+        //WHEN
+        pooledNetwork.close();
+
+        //THEN
+        assertThat(createdNetworks.get()).isZero();
+        assertThat(pool.getIdleNetworkNumber()).isZero();
+    }
+
+    @Test
+    void shouldHandNetworkOfStoppedReplicaSetToNextOne() {
+        //GIVEN
+        val firstReplicaSetNetwork = new PooledNetwork(pool);
+        val firstId = firstReplicaSetNetwork.getId();
+        assertThat(firstReplicaSetNetwork.getId()).isEqualTo(firstId);
+        firstReplicaSetNetwork.close();
+        val secondReplicaSetNetwork = new PooledNetwork(pool);
+
+        //WHEN
+        val secondId = secondReplicaSetNetwork.getId();
+
+        //THEN
+        assertThat(secondId).isEqualTo(firstId);
+        assertThat(createdNetworks.get()).isEqualTo(1);
+        assertThat(pool.getIdleNetworkNumber()).isZero();
+    }
+
+    @Test
+    void shouldReleaseNetworkOnlyOnce() {
+        //GIVEN
+        val network = mock(Network.class);
+        val closingPool = new NetworkPool(() -> network, n -> false, 1);
+        val pooledNetwork = new PooledNetwork(closingPool);
+        pooledNetwork.getId();
+        pooledNetwork.close();
+
+        //WHEN
+        pooledNetwork.close();
+
+        //THEN
+        verify(network).close();
+    }
+}
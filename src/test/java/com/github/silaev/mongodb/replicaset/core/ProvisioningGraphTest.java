@@ -0,0 +1,93 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.util.ExecutorUtils;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProvisioningGraphTest {
+    private final ExecutorService executorService =
+        ExecutorUtils.newFixedDaemonThreadPool("provisioning-graph-test", 4);
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldRunIndependentStepsInParallelAndReportCriticalPath() {
+        //GIVEN
+        val bothStarted = new CountDownLatch(2);
+        final List<String> order = new CopyOnWriteArrayList<>();
+        val graph = new ProvisioningGraph()
+            .addStep("network", () -> order.add("network"))
+            .addStep("toxiproxy", () -> awaitEachOther(bothStarted), "network")
+            .addStep("node", () -> {
+                awaitEachOther(bothStarted);
+                sleep(50);
+            }, "network")
+            .addStep("init", () -> order.add("init"), "toxiproxy", "node");
+
+        //WHEN
+        val criticalPath = graph.execute(executorService);
+
+        //THEN
+        assertThat(order).containsExactly("network", "init");
+        assertThat(criticalPath).containsExactly("network", "node", "init");
+    }
+
+    @Test
+    void shouldNotRunDependentStepsAfterFailure() {
+        //GIVEN
+        final List<String> order = new CopyOnWriteArrayList<>();
+        val graph = new ProvisioningGraph()
+            .addStep("node", () -> {
+                throw new IllegalStateException("node failed");
+            })
+            .addStep("init", () -> order.add("init"), "node");
+
+        //WHEN
+        Executable executable = () -> graph.execute(executorService);
+
+        //THEN
+        val exception = assertThrows(MongoNodeInitializationException.class, executable);
+        assertThat(exception.getCause()).isInstanceOf(IllegalStateException.class);
+        assertThat(order).isEmpty();
+    }
+
+    @Test
+    void shouldNotAddStepWithUnknownDependency() {
+        //GIVEN
+        val graph = new ProvisioningGraph();
+
+        //WHEN
+        Executable executable = () -> graph.addStep("init", () -> {
+        }, "node");
+
+        //THEN
+        assertThrows(IllegalArgumentException.class, executable);
+    }
+
+    @SneakyThrows
+    private void awaitEachOther(final CountDownLatch latch) {
+        latch.countDown();
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @SneakyThrows
+    private void sleep(final long millis) {
+        TimeUnit.MILLISECONDS.sleep(millis);
+    }
+}
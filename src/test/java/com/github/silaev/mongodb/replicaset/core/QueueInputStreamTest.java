@@ -0,0 +1,47 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueueInputStreamTest {
+    private final QueueInputStream stdin = new QueueInputStream();
+
+    @Test
+    void shouldReadWhatWasWrittenByThreadsThatHaveEnded() throws Exception {
+        //GIVEN
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        CompletableFuture.runAsync(() -> write("rs.status()\n"), executorService).get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+        assertThat(executorService.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        write("db.version()\n");
+        stdin.getOutputStream().close();
+
+        //WHEN
+        val buffer = new byte[64];
+        val sb = new StringBuilder();
+        int read;
+        while ((read = stdin.read(buffer, 0, buffer.length)) != -1) {
+            sb.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+
+        //THEN
+        assertThat(sb.toString()).isEqualTo("rs.status()\ndb.version()\n");
+        assertThat(stdin.read()).isEqualTo(-1);
+    }
+
+    private void write(final String s) {
+        try {
+            stdin.getOutputStream().write(s.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.output.OutputFrame;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaSetBootstrapTest {
+    private final ReplicaSetBootstrap bootstrap = new ReplicaSetBootstrap(
+        "rs.initiate({})",
+        Duration.ofSeconds(30),
+        "rs.stepDown()",
+        "waitForReady()"
+    );
+
+    @Test
+    void shouldRetryInitiateUpToTimeoutBeforeSteppingUpAndWaiting() {
+        //WHEN
+        val script = bootstrap.getScript();
+
+        //THEN
+        assertThat(script)
+            .startsWith("var attempt = 0; var initiateDeadline = Date.now() + 30000; cfg = rs.initiate({}) ")
+            .containsSubsequence("attempt++; cfg = rs.initiate({}) }", "rs.stepDown()", "waitForReady()");
+    }
+
+    @Test
+    void shouldReadVersionFromReadinessLine() {
+        //GIVEN
+        val bootstrapNode = mock(GenericContainer.class);
+        when(bootstrapNode.getLogs(OutputFrame.OutputType.STDOUT)).thenReturn(
+            "Waiting for rs.initiate 0\nReplica set bootstrap is done: 4.4.4 dockerhost:50001\n"
+        );
+
+        //WHEN
+        val version = bootstrap.verify(bootstrapNode);
+
+        //THEN
+        assertThat(version).isEqualTo("4.4.4");
+    }
+
+    @Test
+    void shouldFailWithoutReadinessLine() {
+        //GIVEN
+        val bootstrapNode = mock(GenericContainer.class);
+        when(bootstrapNode.getLogs(OutputFrame.OutputType.STDOUT)).thenReturn(
+            "{ \"ok\" : 0 }\nReplica set bootstrap failed\n"
+        );
+
+        //WHEN
+        Executable executable = () -> bootstrap.verify(bootstrapNode);
+
+        //THEN
+        val exception = assertThrows(MongoNodeInitializationException.class, executable);
+        assertThat(exception.getMessage()).contains("Replica set bootstrap failed");
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.model.MongoDbVersion;
+import com.github.silaev.mongodb.replicaset.model.MongoNode;
+import com.github.silaev.mongodb.replicaset.model.MongoRsStatus;
+import com.github.silaev.mongodb.replicaset.model.ReplicaSetMemberState;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplicaSetReuseTest {
+    private static final MongoDbVersion VERSION = MongoDbVersion.of(4, 4, 4);
+
+    private final ReplicaSetReuse reuse = new ReplicaSetReuse("0123456789abcdef");
+
+    @Test
+    void shouldAcceptReplicaSetWithAllMembersUpAndSingleMaster() {
+        //GIVEN
+        val expectedHosts = new HashSet<>(Arrays.asList("dockerhost:50001", "dockerhost:50002", "dockerhost:50003"));
+        val mongoRsStatus = MongoRsStatus.of(
+            1,
+            VERSION,
+            Arrays.asList(
+                MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.PRIMARY),
+                MongoNode.of("dockerhost", 50002, 1.0, ReplicaSetMemberState.SECONDARY),
+                MongoNode.of("dockerhost", 50003, 0.0, ReplicaSetMemberState.ARBITER)
+            )
+        );
+
+        //WHEN
+        Executable executable = () -> reuse.verifyHealthy(expectedHosts, mongoRsStatus);
+
+        //THEN
+        assertDoesNotThrow(executable);
+    }
+
+    @Test
+    void shouldRejectReplicaSetWithMemberDown() {
+        //GIVEN
+        val expectedHosts = new HashSet<>(Arrays.asList("dockerhost:50001", "dockerhost:50002"));
+        val mongoRsStatus = MongoRsStatus.of(
+            1,
+            VERSION,
+            Arrays.asList(
+                MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.PRIMARY),
+                MongoNode.of("dockerhost", 50002, 1.0, ReplicaSetMemberState.DOWN)
+            )
+        );
+
+        //WHEN
+        Executable executable = () -> reuse.verifyHealthy(expectedHosts, mongoRsStatus);
+
+        //THEN
+        val exception = assertThrows(MongoNodeInitializationException.class, executable);
+        assertThat(exception.getMessage()).contains("0123456789abcdef");
+    }
+
+    @Test
+    void shouldRejectReplicaSetWithoutMaster() {
+        //GIVEN
+        val expectedHosts = new HashSet<>(Arrays.asList("dockerhost:50001", "dockerhost:50002"));
+        val mongoRsStatus = MongoRsStatus.of(
+            1,
+            VERSION,
+            Arrays.asList(
+                MongoNode.of("dockerhost", 50001, 1.0, ReplicaSetMemberState.SECONDARY),
+                MongoNode.of("dockerhost", 50002, 1.0, ReplicaSetMemberState.SECONDARY)
+            )
+        );
+
+        //WHEN
+        Executable executable = () -> reuse.verifyHealthy(expectedHosts, mongoRsStatus);
+
+        //THEN
+        assertThrows(MongoNodeInitializationException.class, executable);
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.silaev.mongodb.replicaset.core;
+
+import com.github.silaev.mongodb.replicaset.exception.MongoNodeInitializationException;
+import com.github.silaev.mongodb.replicaset.model.MongoSocketAddress;
+import com.github.silaev.mongodb.replicaset.model.Pair;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaSetSnapshotTest {
+    private final SnapshotImages snapshotImages = mock(SnapshotImages.class);
+    private final ReplicaSetSnapshot snapshot = new ReplicaSetSnapshot("0123456789abcdef", snapshotImages);
+
+    @Test
+    void shouldFindHostPortsOfAllNodesInOrderOfRoles() {
+        //GIVEN
+        when(snapshotImages.findHostPort("mongo-node-0")).thenReturn(Optional.of(50002));
+        when(snapshotImages.findHostPort("mongo-node-1")).thenReturn(Optional.of(50001));
+
+        //WHEN
+        val hostPorts = snapshot.findHostPorts(Arrays.asList("mongo-node-0", "mongo-node-1"));
+
+        //THEN
+        assertThat(hostPorts).contains(Arrays.asList(50002, 50001));
+    }
+
+    @Test
+    void shouldNotStartFromIncompleteSnapshot() {
+        //GIVEN
+        when(snapshotImages.findHostPort("mongo-node-0")).thenReturn(Optional.of(50001));
+        when(snapshotImages.findHostPort("mongo-node-1")).thenReturn(Optional.empty());
+
+        //WHEN
+        val hostPorts = snapshot.findHostPorts(Arrays.asList("mongo-node-0", "mongo-node-1"));
+
+        //THEN
+        assertThat(hostPorts).isEmpty();
+    }
+
+    @Test
+    void shouldCommitEachNodeAfterFlushingIt() {
+        //GIVEN
+        val nodes = nodes(node("id-0"), node("id-1"));
+
+        //WHEN
+        snapshot.take(nodes, mongoContainer -> {
+        });
+
+        //THEN
+        verify(snapshotImages).commit("id-0", "mongo-node-0", 50000);
+        verify(snapshotImages).commit("id-1", "mongo-node-1", 50001);
+    }
+
+    @Test
+    void shouldIgnoreNodeThatCannotBeFlushed() {
+        //GIVEN
+        val nodes = nodes(node("id-0"), node("id-1"));
+
+        //WHEN
+        snapshot.take(nodes, mongoContainer -> {
+            throw new MongoNodeInitializationException("flushing data before a snapshot");
+        });
+
+        //THEN
+        verify(snapshotImages, never()).commit(anyString(), anyString(), anyInt());
+    }
+
+    private static GenericContainer node(final String containerId) {
+        val mongoContainer = mock(GenericContainer.class);
+        when(mongoContainer.getContainerId()).thenReturn(containerId);
+        return mongoContainer;
+    }
+
+    private static Map<String, Pair<GenericContainer, MongoSocketAddress>> nodes(final GenericContainer... containers) {
+        final Map<String, Pair<GenericContainer, MongoSocketAddress>> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < containers.length; i++) {
+            nodes.put(
+                "mongo-node-" + i,
+                Pair.of(containers[i], MongoSocketAddress.builder().ip("dockerhost").mappedPort(50000 + i).build())
+            );
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.silaev.mongodb.replicaset.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.ContainerLaunchException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Konstantin Silaev
+ */
+class PortUtilsTest {
+
+    @Test
+    void shouldFindPortConflictInCauses() {
+        //GIVEN
+        val failure = new ContainerLaunchException(
+            "Container startup failed",
+            new IllegalStateException(
+                "Status 500: driver failed programming external connectivity: Bind for 0.0.0.0:50123 failed: " +
+                    "port is already allocated"
+            )
+        );
+
+        //WHEN
+        val actual = PortUtils.isPortConflict(failure);
+
+        //THEN
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void shouldNotTakeOtherFailureForPortConflict() {
+        //GIVEN
+        val failure = new ContainerLaunchException("Container startup failed", new IllegalStateException("timeout"));
+
+        //WHEN
+        val actual = PortUtils.isPortConflict(failure);
+
+        //THEN
+        assertThat(actual).isFalse();
+    }
+}